@@ -0,0 +1,69 @@
+package com.autodrive.simulation;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeded scenario generator shared by the benchmarks, so that results stay comparable
+ * across commits: the same parameters always give the same field, cars and commands.
+ */
+public final class BenchmarkScenarios {
+
+    public static final long SEED = 20240601L;
+
+    private BenchmarkScenarios() {
+    }
+
+    /**
+     * @param carCount      number of cars, each on its own start cell
+     * @param density       share of the field cells holding a car at the start (0-1]
+     * @param commandLength number of commands of every car
+     */
+    public static Scenario generate(int carCount, double density, int commandLength) {
+        Random random = new Random(SEED ^ carCount * 31L ^ commandLength * 1_000_003L ^ Double.hashCode(density));
+        int side = (int) Math.max(2, Math.ceil(Math.sqrt(carCount / density)));
+        Field field = new Field(side, side);
+
+        Set<Long> used = new HashSet<>();
+        List<Car> cars = new ArrayList<>(carCount);
+        while (cars.size() < carCount) {
+            int x = random.nextInt(side);
+            int y = random.nextInt(side);
+            if (used.add((long) x << 32 | y)) {
+                cars.add(new Car("C" + cars.size(), x, y,
+                        Direction.values()[random.nextInt(4)], commands(random, commandLength)));
+            }
+        }
+        return new Scenario(field, cars);
+    }
+
+    /**
+     * @return commands with two forward moves for every turn
+     */
+    public static String commands(Random random, int length) {
+        char[] commands = new char[length];
+        for (int i = 0; i < length; i++) {
+            commands[i] = "LRFFFF".charAt(random.nextInt(6));
+        }
+        return new String(commands);
+    }
+
+    /**
+     * @return fresh cars in the start state of the scenario, since a run moves and deactivates them
+     */
+    public static List<Car> copyCars(Scenario scenario) {
+        List<Car> copy = new ArrayList<>(scenario.getCars().size());
+        for (Car car : scenario.getCars()) {
+            copy.add(new Car(car.getName(), car.getX(), car.getY(), car.getDirection(), car.getCommands()));
+        }
+        return copy;
+    }
+}
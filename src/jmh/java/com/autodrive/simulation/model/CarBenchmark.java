@@ -0,0 +1,63 @@
+package com.autodrive.simulation.model;
+
+import com.autodrive.simulation.BenchmarkScenarios;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-command costs: {@link Car#execute(char, Field)} and the {@link Direction} turns.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarBenchmark {
+
+    private static final int COMMANDS = 1024;
+
+    private final Field field = new Field(1000, 1000);
+    private Car car;
+    private char[] commands;
+    private Direction[] directions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkScenarios.SEED);
+        commands = BenchmarkScenarios.commands(random, COMMANDS).toCharArray();
+        car = new Car("A", 500, 500, Direction.N, new String(commands));
+        directions = new Direction[COMMANDS];
+        for (int i = 0; i < COMMANDS; i++) {
+            directions[i] = Direction.values()[random.nextInt(4)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public Car execute() {
+        for (char command : commands) {
+            car.execute(command, field);
+        }
+        return car;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void left(Blackhole blackhole) {
+        for (Direction direction : directions) {
+            blackhole.consume(direction.left());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void right(Blackhole blackhole) {
+        for (Direction direction : directions) {
+            blackhole.consume(direction.right());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.BenchmarkScenarios;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move phase of one step over a whole fleet: the per-car {@link Car#executeStep(int, Field)}
+ * path against the scalar and the SIMD {@link MoveKernel}.
+ * <p>
+ * The {@code vector} benchmark falls back to the scalar kernel when the forked JVM lacks
+ * {@code --add-modules jdk.incubator.vector}; the {@code jmh} task passes it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoveKernelBenchmark {
+
+    private static final int STEPS = 64;
+
+    @Param({"1000", "100000"})
+    public int carCount;
+
+    private Field field;
+    private List<Car> cars;
+    private int[][] codes;
+    private int[] x;
+    private int[] y;
+    private int[] dir;
+    private boolean[] moved;
+    private MoveKernel scalar;
+    private MoveKernel vector;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void createFleet() {
+        Scenario scenario = BenchmarkScenarios.generate(carCount, 0.2, STEPS);
+        field = scenario.getField();
+        cars = scenario.getCars();
+        codes = new int[STEPS][carCount];
+        x = new int[carCount];
+        y = new int[carCount];
+        dir = new int[carCount];
+        moved = new boolean[carCount];
+        for (int car = 0; car < carCount; car++) {
+            Car source = cars.get(car);
+            for (int s = 0; s < STEPS; s++) {
+                codes[s][car] = source.getProgram().codeAt(s);
+            }
+            x[car] = source.getX();
+            y[car] = source.getY();
+            dir[car] = source.getDirection().ordinal();
+        }
+        scalar = new ScalarMoveKernel();
+        vector = MoveKernel.create();
+    }
+
+    @Benchmark
+    public List<Car> perCar() {
+        int current = step;
+        step = (current + 1) % STEPS;
+        for (Car car : cars) {
+            car.executeStep(current, field);
+        }
+        return cars;
+    }
+
+    @Benchmark
+    public boolean[] scalarKernel() {
+        return runKernel(scalar);
+    }
+
+    @Benchmark
+    public boolean[] vectorKernel() {
+        return runKernel(vector);
+    }
+
+    private boolean[] runKernel(MoveKernel kernel) {
+        int current = step;
+        step = (current + 1) % STEPS;
+        kernel.step(carCount, codes[current], x, y, dir, field.getWidth(), field.getHeight(), moved);
+        return moved;
+    }
+}
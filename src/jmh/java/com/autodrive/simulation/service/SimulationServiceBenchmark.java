@@ -0,0 +1,98 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.BenchmarkScenarios;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Scenario;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole runs of a {@link SimulationService} across fleet sizes, field densities and program lengths.
+ * <p>
+ * Other implementations can be compared with {@code -p service=...}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationServiceBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int carCount;
+
+    /** Share of the field cells holding a car at the start. */
+    @Param({"0.01", "0.2"})
+    public double density;
+
+    @Param({"10", "100", "1000"})
+    public int commandLength;
+
+    @Param({"SimulationServiceImpl"})
+    public String service;
+
+    private SimulationService simulationService;
+    private Scenario scenario;
+    private List<Car> cars;
+
+    @Setup(Level.Trial)
+    public void createScenario() {
+        simulationService = create(service);
+        scenario = BenchmarkScenarios.generate(carCount, density, commandLength);
+    }
+
+    /**
+     * Stops the worker processes of the distributed service.
+     */
+    @TearDown(Level.Trial)
+    public void closeService() throws Exception {
+        if (simulationService instanceof AutoCloseable) {
+            ((AutoCloseable) simulationService).close();
+        }
+    }
+
+    /**
+     * Runs mutate their cars, so each invocation starts from a fresh copy. Runs take far
+     * longer than the per-invocation setup overhead.
+     */
+    @Setup(Level.Invocation)
+    public void resetCars() {
+        cars = BenchmarkScenarios.copyCars(scenario);
+    }
+
+    @Benchmark
+    public CollisionResult run() {
+        return simulationService.run(scenario.getField(), cars);
+    }
+
+    @Benchmark
+    public CollisionLog runAll() {
+        return simulationService.runAll(scenario.getField(), cars);
+    }
+
+    private static SimulationService create(String name) {
+        switch (name) {
+            case "SimulationServiceImpl":
+                return new SimulationServiceImpl();
+            case "ArraySimulationServiceImpl":
+                return new ArraySimulationServiceImpl();
+            case "ParallelSimulationServiceImpl":
+                return new ParallelSimulationServiceImpl();
+            case "RunLengthSimulationServiceImpl":
+                return new RunLengthSimulationServiceImpl();
+            case "EventDrivenSimulationServiceImpl":
+                return new EventDrivenSimulationServiceImpl();
+            case "KernelSimulationServiceImpl":
+                return new KernelSimulationServiceImpl();
+            case "OffHeapSimulationServiceImpl":
+                return new OffHeapSimulationServiceImpl();
+            case "DistributedSimulationServiceImpl":
+                return new DistributedSimulationServiceImpl(2, 2);
+            default:
+                throw new IllegalArgumentException("Unknown service: " + name);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.autodrive.simulation.visualization;
+
+import com.autodrive.simulation.BenchmarkScenarios;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracing a car and rendering its frame with {@link MovementVisualizer}, without the console output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovementVisualizerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int commandLength;
+
+    private final MovementVisualizer visualizer =
+            new MovementVisualizer(Writer.nullWriter(), MovementVisualizer.Layout.PER_CAR, true);
+    private final Field field = new Field(100, 100);
+    private List<Car> cars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cars = List.of(new Car("A", 50, 50, Direction.N,
+                BenchmarkScenarios.commands(new Random(BenchmarkScenarios.SEED), commandLength)));
+    }
+
+    @Benchmark
+    public void displayMovementPatterns() {
+        visualizer.displayMovementPatterns(field, cars);
+    }
+}
@@ -1,23 +1,87 @@
 package com.autodrive.simulation;
 
+import com.autodrive.simulation.cli.HeadlessRunner;
 import com.autodrive.simulation.cli.SimulationCliRunner;
+import com.autodrive.simulation.cli.SimulationResultPrinter;
+import com.autodrive.simulation.io.ScenarioFileParser;
+import com.autodrive.simulation.io.ScenarioFormatException;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.server.SimulationServer;
 import com.autodrive.simulation.visualization.MovementPatternVisualizer;
 import com.autodrive.simulation.visualization.MovementVisualizer;
 import com.autodrive.simulation.service.SimulationService;
 import com.autodrive.simulation.service.SimulationServiceImpl;
 
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
  * Main entry point for the Auto Driving Car Simulation application.
  * This is a simple Java console application that simulates autonomous cars
  * moving on a rectangular field with collision detection.
+ * <p>
+ * When started with the path of a scenario file (see {@link ScenarioFileParser}),
+ * the scenario is run directly and only the result is printed; an invalid file is reported
+ * with its path and line on standard error.
+ * <p>
+ * {@code --headless <input> <output> [workers]} runs a scenario file, or every file of a
+ * directory, on a pool of workers and writes the results as JSON lines (see {@link HeadlessRunner}).
+ * <p>
+ * {@code --serve <port> [workers] [queue]} keeps serving scenarios over HTTP until the JVM is
+ * stopped (see {@link SimulationServer}).
  */
 public class SimulationMain {
 
-    public static void main(String[] args) {
-        Scanner scanner = new Scanner(System.in);
+    public static void main(String[] args) throws IOException {
         SimulationService simulationService = new SimulationServiceImpl();
+
+        if (args.length > 0 && args[0].equals("--headless")) {
+            if (args.length < 3 || args.length > 4) {
+                System.err.println("Usage: --headless <input> <output> [workers]");
+                System.exit(2);
+            }
+            int workers = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            HeadlessRunner runner = new HeadlessRunner(simulationService);
+            runner.run(Path.of(args[1]), Path.of(args[2]), workers);
+            System.err.println(runner.getScenarioCount() + " scenarios, " + runner.getCollisionCount()
+                    + " with a collision, " + runner.getErrorCount() + " unreadable");
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--serve")) {
+            if (args.length < 2 || args.length > 4) {
+                System.err.println("Usage: --serve <port> [workers] [queue]");
+                System.exit(2);
+            }
+            int workers = args.length >= 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            int queue = args.length == 4 ? Integer.parseInt(args[3]) : workers * 16;
+            SimulationServer server = new SimulationServer(simulationService,
+                    new InetSocketAddress(Integer.parseInt(args[1])), workers, queue);
+            server.getMetrics().register("server");
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+            server.start();
+            System.err.println("Serving on port " + server.getPort() + " with " + workers + " workers, queue " + queue);
+            return;
+        }
+
+        if (args.length == 1) {
+            Scenario scenario;
+            try {
+                scenario = new ScenarioFileParser().parse(Path.of(args[0]));
+            } catch (ScenarioFormatException e) {
+                // The message already starts with the line number
+                System.err.println(args[0] + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+            new SimulationResultPrinter().printSimulationResult(scenario.getCars(),
+                    simulationService.run(scenario.getField(), scenario.getCars()));
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
         MovementPatternVisualizer visualizer = new MovementVisualizer();
 
         SimulationCliRunner runner = new SimulationCliRunner(simulationService, visualizer, scanner);
@@ -0,0 +1,191 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.SimulationService;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs many independent {@link Scenario}s concurrently on a fixed pool of worker threads.
+ * <p>
+ * Scenarios are pulled from the input only while fewer than {@code maxInFlight} of them
+ * are queued or running, so an arbitrarily long input stream is processed in bounded
+ * memory: a slow consumer or slow simulations simply stop the input from being read.
+ * Results are handed to the consumer on the calling thread, either in input order or as
+ * soon as each scenario completes.
+ * <p>
+ * The {@link SimulationService} is shared by every worker; the implementations in this
+ * project keep no state between calls and can be used concurrently.
+ */
+public class BatchSimulationRunner implements AutoCloseable {
+
+    /**
+     * Order in which results are handed to the consumer.
+     */
+    public enum ResultOrder {
+        /** Results follow the order of the input; one slow scenario holds back the later ones. */
+        INPUT,
+        /** Results are delivered as soon as their scenario completes. */
+        COMPLETION
+    }
+
+    private final SimulationService simulationService;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+
+    /**
+     * Uses up to four queued scenarios per worker.
+     */
+    public BatchSimulationRunner(SimulationService simulationService, int parallelism) {
+        this(simulationService, parallelism, parallelism * 4);
+    }
+
+    /**
+     * @param parallelism number of worker threads
+     * @param maxInFlight maximum number of scenarios read from the input but not yet delivered;
+     *                    at least {@code parallelism} to keep every worker busy
+     */
+    public BatchSimulationRunner(SimulationService simulationService, int parallelism, int maxInFlight) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        this.simulationService = simulationService;
+        this.maxInFlight = maxInFlight;
+        this.executor = Executors.newFixedThreadPool(parallelism, new WorkerFactory());
+    }
+
+    public void run(Stream<Scenario> scenarios, ResultOrder order, Consumer<ScenarioResult> consumer) {
+        run(scenarios.iterator(), order, consumer);
+    }
+
+    /**
+     * Runs every scenario of the input and hands each result to the consumer.
+     * Returns once every result has been delivered.
+     *
+     * @throws IllegalStateException when a scenario fails or the calling thread is interrupted;
+     *                               scenarios still in flight are cancelled
+     */
+    public void run(Iterator<Scenario> scenarios, ResultOrder order, Consumer<ScenarioResult> consumer) {
+        if (order == ResultOrder.INPUT) {
+            runInInputOrder(scenarios, consumer);
+        } else {
+            runInCompletionOrder(scenarios, consumer);
+        }
+    }
+
+    private void runInInputOrder(Iterator<Scenario> scenarios, Consumer<ScenarioResult> consumer) {
+        ArrayDeque<Future<ScenarioResult>> pending = new ArrayDeque<>();
+        try {
+            for (long index = 0; scenarios.hasNext(); index++) {
+                if (pending.size() == maxInFlight) {
+                    consumer.accept(await(pending.poll()));
+                }
+                pending.add(executor.submit(task(index, scenarios.next())));
+
+                // Hand over whatever is already finished so results do not wait for the input
+                while (!pending.isEmpty() && pending.peek().isDone()) {
+                    consumer.accept(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                consumer.accept(await(pending.poll()));
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void runInCompletionOrder(Iterator<Scenario> scenarios, Consumer<ScenarioResult> consumer) {
+        // Only this call's tasks go through the completion queue, and at most maxInFlight of them
+        CompletionService<ScenarioResult> completion = new ExecutorCompletionService<>(executor);
+        ArrayDeque<Future<ScenarioResult>> pending = new ArrayDeque<>();
+        int inFlight = 0;
+        try {
+            for (long index = 0; scenarios.hasNext(); index++) {
+                if (inFlight == maxInFlight) {
+                    consumer.accept(await(take(completion)));
+                    inFlight--;
+                }
+                pending.add(completion.submit(task(index, scenarios.next())));
+                inFlight++;
+
+                Future<ScenarioResult> done;
+                while ((done = completion.poll()) != null) {
+                    consumer.accept(await(done));
+                    inFlight--;
+                }
+                pending.removeIf(Future::isDone);
+            }
+            for (; inFlight > 0; inFlight--) {
+                consumer.accept(await(take(completion)));
+            }
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Callable<ScenarioResult> task(long index, Scenario scenario) {
+        return () -> {
+            try {
+                return new ScenarioResult(index, scenario,
+                        simulationService.run(scenario.getField(), scenario.getCars()));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Scenario " + index + " failed", e);
+            }
+        };
+    }
+
+    private static Future<ScenarioResult> take(CompletionService<ScenarioResult> completion) {
+        try {
+            return completion.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a scenario", e);
+        }
+    }
+
+    private static ScenarioResult await(Future<ScenarioResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a scenario", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the worker threads; scenarios still running are interrupted.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class WorkerFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final int pool = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger worker = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "simulation-batch-" + pool + "-" + worker.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
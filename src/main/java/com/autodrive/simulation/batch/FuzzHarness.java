@@ -0,0 +1,144 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs generated scenarios through a {@link SimulationService} on several threads and
+ * reports throughput and collision statistics.
+ * <p>
+ * Each worker claims blocks of scenario indexes and generates its scenarios itself, so
+ * nothing is shared between workers but the index counter and no scenario outlives its
+ * run; millions of scenarios need no more memory than one per worker. The elapsed time
+ * covers generation as well as simulation.
+ * <p>
+ * A scenario on which the service throws is counted as a failure and the run goes on;
+ * the report names the lowest failed index so the scenario can be regenerated.
+ */
+public class FuzzHarness {
+
+    private static final int BLOCK = 64;
+
+    private final SimulationService simulationService;
+    private final int workers;
+
+    public FuzzHarness(SimulationService simulationService, int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Workers must be positive: " + workers);
+        }
+        this.simulationService = simulationService;
+        this.workers = workers;
+    }
+
+    /**
+     * Runs the scenarios {@code [0, scenarios)} of the generator and waits for all of them.
+     *
+     * @throws IllegalStateException when the calling thread is interrupted; the workers are stopped
+     */
+    public FuzzReport run(ScenarioGenerator generator, long scenarios) {
+        AtomicLong next = new AtomicLong();
+        Tally total = new Tally();
+        Thread[] threads = new Thread[workers];
+        long start = System.nanoTime();
+        for (int w = 0; w < workers; w++) {
+            threads[w] = new Thread(() -> {
+                Tally tally = new Tally();
+                for (long from = next.getAndAdd(BLOCK); from < scenarios && !Thread.currentThread().isInterrupted();
+                     from = next.getAndAdd(BLOCK)) {
+                    for (long index = from, to = Math.min(from + BLOCK, scenarios); index < to; index++) {
+                        runOne(generator, index, tally);
+                    }
+                }
+                synchronized (total) {
+                    total.add(tally);
+                }
+            }, "fuzz-worker-" + w);
+            threads[w].setDaemon(true);
+            threads[w].start();
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fuzzing", e);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (total) {
+            return new FuzzReport(total.scenarios, total.cars, total.commands, total.collisions,
+                    total.collidedCars, total.collisionStepSum, total.maxCollisionStep, total.failures,
+                    total.firstFailedScenario, total.firstFailure, elapsed);
+        }
+    }
+
+    private void runOne(ScenarioGenerator generator, long index, Tally tally) {
+        Scenario scenario = generator.generate(index);
+        CollisionResult collision;
+        try {
+            collision = simulationService.run(scenario.getField(), scenario.getCars());
+        } catch (RuntimeException e) {
+            tally.fail(index, e.toString());
+            return;
+        }
+
+        tally.scenarios++;
+        tally.cars += scenario.getCars().size();
+        for (Car car : scenario.getCars()) {
+            tally.commands += car.getCommandCount();
+        }
+        if (collision != null) {
+            tally.collisions++;
+            tally.collidedCars += collision.getCollidedCarNames().size();
+            tally.collisionStepSum += collision.getStep();
+            tally.maxCollisionStep = Math.max(tally.maxCollisionStep, collision.getStep());
+        }
+    }
+
+    /** Counters of one worker, merged into the total once the worker is done. */
+    private static final class Tally {
+        long scenarios;
+        long cars;
+        long commands;
+        long collisions;
+        long collidedCars;
+        long collisionStepSum;
+        int maxCollisionStep;
+        long failures;
+        long firstFailedScenario = -1;
+        String firstFailure;
+
+        void fail(long index, String failure) {
+            failures++;
+            if (firstFailedScenario < 0 || index < firstFailedScenario) {
+                firstFailedScenario = index;
+                firstFailure = failure;
+            }
+        }
+
+        void add(Tally other) {
+            scenarios += other.scenarios;
+            cars += other.cars;
+            commands += other.commands;
+            collisions += other.collisions;
+            collidedCars += other.collidedCars;
+            collisionStepSum += other.collisionStepSum;
+            maxCollisionStep = Math.max(maxCollisionStep, other.maxCollisionStep);
+            failures += other.failures;
+            if (other.firstFailedScenario >= 0
+                    && (firstFailedScenario < 0 || other.firstFailedScenario < firstFailedScenario)) {
+                firstFailedScenario = other.firstFailedScenario;
+                firstFailure = other.firstFailure;
+            }
+        }
+    }
+}
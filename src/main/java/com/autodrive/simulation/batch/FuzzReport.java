@@ -0,0 +1,134 @@
+package com.autodrive.simulation.batch;
+
+/**
+ * Throughput and collision statistics of a {@link FuzzHarness} run.
+ */
+public final class FuzzReport {
+
+    private final long scenarios;
+    private final long cars;
+    private final long commands;
+    private final long collisions;
+    private final long collidedCars;
+    private final long collisionStepSum;
+    private final int maxCollisionStep;
+    private final long failures;
+    private final long firstFailedScenario;
+    private final String firstFailure;
+    private final long elapsedNanos;
+
+    FuzzReport(long scenarios, long cars, long commands, long collisions, long collidedCars,
+               long collisionStepSum, int maxCollisionStep, long failures, long firstFailedScenario,
+               String firstFailure, long elapsedNanos) {
+        this.scenarios = scenarios;
+        this.cars = cars;
+        this.commands = commands;
+        this.collisions = collisions;
+        this.collidedCars = collidedCars;
+        this.collisionStepSum = collisionStepSum;
+        this.maxCollisionStep = maxCollisionStep;
+        this.failures = failures;
+        this.firstFailedScenario = firstFailedScenario;
+        this.firstFailure = firstFailure;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of scenarios that ran to completion
+     */
+    public long getScenarios() {
+        return scenarios;
+    }
+
+    public long getCars() {
+        return cars;
+    }
+
+    /**
+     * @return the total number of commands of the completed scenarios
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return the number of scenarios that ended with a collision
+     */
+    public long getCollisions() {
+        return collisions;
+    }
+
+    public long getCollidedCars() {
+        return collidedCars;
+    }
+
+    /**
+     * @return the share of the scenarios that ended with a collision
+     */
+    public double getCollisionRate() {
+        return scenarios == 0 ? 0 : (double) collisions / scenarios;
+    }
+
+    /**
+     * @return the mean step of the collisions, or {@code 0} without any
+     */
+    public double getMeanCollisionStep() {
+        return collisions == 0 ? 0 : (double) collisionStepSum / collisions;
+    }
+
+    public int getMaxCollisionStep() {
+        return maxCollisionStep;
+    }
+
+    /**
+     * @return the number of scenarios on which the service threw
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the lowest index of a failed scenario, to regenerate it with
+     *         {@link ScenarioGenerator#generate(long)}, or {@code -1} without failures
+     */
+    public long getFirstFailedScenario() {
+        return firstFailedScenario;
+    }
+
+    /**
+     * @return the exception of {@link #getFirstFailedScenario()}, or {@code null}
+     */
+    public String getFirstFailure() {
+        return firstFailure;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getScenariosPerSecond() {
+        return perSecond(scenarios);
+    }
+
+    /**
+     * @return {@link #getCommands()} per second; a run that stops at its collision skips
+     *         the remaining commands, so this is an upper bound of the commands executed
+     */
+    public double getCommandsPerSecond() {
+        return perSecond(commands);
+    }
+
+    private double perSecond(long count) {
+        return elapsedNanos == 0 ? 0 : count * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%d scenarios (%d cars, %d commands) in %.3f s: %.0f scenarios/s, %.0f commands/s;"
+                        + " %d collisions (%.2f%%, %d cars, mean step %.1f, max step %d); %d failures",
+                scenarios, cars, commands, elapsedNanos / 1e9, getScenariosPerSecond(), getCommandsPerSecond(),
+                collisions, getCollisionRate() * 100, collidedCars, getMeanCollisionStep(), maxCollisionStep,
+                failures);
+        return failures == 0 ? summary : summary + ", first at scenario " + firstFailedScenario + ": " + firstFailure;
+    }
+}
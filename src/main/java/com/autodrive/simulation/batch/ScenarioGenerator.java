@@ -0,0 +1,137 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Produces random scenarios for load and fuzz testing.
+ * <p>
+ * Scenario {@code i} only depends on the seed and {@code i}, so any scenario of a run can be
+ * regenerated on its own, in any thread. Every generated car would pass
+ * {@link com.autodrive.simulation.cli.CarCreator}: a unique non-empty name, a position
+ * inside the field and a non-empty command string of L, R and F. Cars start on distinct cells.
+ * <p>
+ * Generators are immutable; the {@code with} methods return a changed copy:
+ * <pre>
+ * new ScenarioGenerator(42).withField(200, 200).withDensity(0.05).withCommandLength(10, 500)
+ * </pre>
+ */
+public final class ScenarioGenerator {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final double density;
+    private final int minCommands;
+    private final int maxCommands;
+    private final double forwardShare;
+
+    /**
+     * Creates a generator of 10x10 fields, 10% of whose cells hold a car, with 1 to 20
+     * commands per car, two thirds of them forward.
+     */
+    public ScenarioGenerator(long seed) {
+        this(seed, 10, 10, 0.1, 1, 20, 2.0 / 3);
+    }
+
+    private ScenarioGenerator(long seed, int width, int height, double density,
+                              int minCommands, int maxCommands, double forwardShare) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        this.minCommands = minCommands;
+        this.maxCommands = maxCommands;
+        this.forwardShare = forwardShare;
+    }
+
+    public ScenarioGenerator withField(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Field must be at least 1x1: " + width + "x" + height);
+        }
+        return new ScenarioGenerator(seed, width, height, density, minCommands, maxCommands, forwardShare);
+    }
+
+    /**
+     * @param density share of the cells that hold a car at the start, in {@code (0, 1]};
+     *                every scenario has at least one car
+     */
+    public ScenarioGenerator withDensity(double density) {
+        if (!(density > 0 && density <= 1)) {
+            throw new IllegalArgumentException("Density must be in (0, 1]: " + density);
+        }
+        return new ScenarioGenerator(seed, width, height, density, minCommands, maxCommands, forwardShare);
+    }
+
+    /**
+     * Command counts are drawn uniformly from {@code [min, max]}.
+     */
+    public ScenarioGenerator withCommandLength(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Command length must satisfy 1 <= min <= max: " + min + ", " + max);
+        }
+        return new ScenarioGenerator(seed, width, height, density, min, max, forwardShare);
+    }
+
+    /**
+     * @param forwardShare probability of an F command; the rest is split evenly between L and R
+     */
+    public ScenarioGenerator withForwardShare(double forwardShare) {
+        if (!(forwardShare >= 0 && forwardShare <= 1)) {
+            throw new IllegalArgumentException("Forward share must be in [0, 1]: " + forwardShare);
+        }
+        return new ScenarioGenerator(seed, width, height, density, minCommands, maxCommands, forwardShare);
+    }
+
+    /**
+     * @return the number of cars of every generated scenario
+     */
+    public int getCarCount() {
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, Math.round(density * width * (double) height)));
+    }
+
+    /**
+     * @return the scenario with the given index
+     */
+    public Scenario generate(long index) {
+        SplittableRandom random = new SplittableRandom(mix(seed ^ mix(index)));
+        long cells = (long) width * height;
+        int count = getCarCount();
+
+        Set<Long> taken = new HashSet<>();
+        char[] commands = new char[maxCommands];
+        List<Car> cars = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            long cell;
+            do {
+                cell = random.nextLong(cells);
+            } while (!taken.add(cell));
+
+            int length = random.nextInt(minCommands, maxCommands + 1);
+            for (int k = 0; k < length; k++) {
+                double draw = random.nextDouble();
+                commands[k] = draw < forwardShare ? 'F' : draw < (1 + forwardShare) / 2 ? 'L' : 'R';
+            }
+            cars.add(new Car("C" + c, (int) (cell % width), (int) (cell / width),
+                    DIRECTIONS[random.nextInt(DIRECTIONS.length)], new String(commands, 0, length)));
+        }
+        return new Scenario(new Field(width, height), cars);
+    }
+
+    /** SplitMix64 finalizer, so neighbouring indexes get unrelated streams. */
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ z >>> 27) * 0x94D049BB133111EBL;
+        return z ^ z >>> 31;
+    }
+}
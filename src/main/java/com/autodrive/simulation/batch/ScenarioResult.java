@@ -0,0 +1,45 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+
+/**
+ * Outcome of one scenario of a batch.
+ */
+public final class ScenarioResult {
+
+    private final long index;
+    private final Scenario scenario;
+    private final CollisionResult collision;
+
+    public ScenarioResult(long index, Scenario scenario, CollisionResult collision) {
+        this.index = index;
+        this.scenario = scenario;
+        this.collision = collision;
+    }
+
+    /**
+     * @return the position of the scenario in the input, starting at 0
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the scenario, whose cars hold their state at the end of the run
+     */
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    /**
+     * @return the first collision of the scenario, or {@code null} if there was none
+     */
+    public CollisionResult getCollision() {
+        return collision;
+    }
+
+    public boolean hasCollision() {
+        return collision != null;
+    }
+}
@@ -0,0 +1,197 @@
+package com.autodrive.simulation.cli;
+
+import com.autodrive.simulation.batch.BatchSimulationRunner;
+import com.autodrive.simulation.batch.ScenarioResult;
+import com.autodrive.simulation.io.JsonLinesWriter;
+import com.autodrive.simulation.io.ScenarioFileParser;
+import com.autodrive.simulation.io.ScenarioFormatException;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Runs scenario files without any prompt and streams the results as JSON lines.
+ * <p>
+ * The input is a scenario file (see {@link ScenarioFileParser}) or a directory whose
+ * regular files are all scenario files, taken in name order. Scenarios run on a
+ * {@link BatchSimulationRunner}; results are written in input order, one line per car,
+ * following {@link SimulationResultPrinter}:
+ * <pre>
+ * {"scenario":"a.txt","car":"A","x":5,"y":4,"direction":"S"}
+ * {"scenario":"b.txt","car":"A","collidesWith":["B"],"position":"5,4","step":7}
+ * {"scenario":"c.txt","error":"Line 2: ..."}
+ * </pre>
+ * Without a collision every car is written with its final position; with one, only the
+ * collided cars are. A file that cannot be parsed gets a single error line and the run goes on.
+ */
+public class HeadlessRunner {
+
+    /** Stands in for a file that could not be parsed, so its error keeps its place in the output. */
+    private static final Scenario UNPARSED = new Scenario(new Field(1, 1), List.of());
+
+    private final SimulationService simulationService;
+    private final ScenarioFileParser parser = new ScenarioFileParser();
+
+    private long scenarioCount;
+    private long collisionCount;
+    private long errorCount;
+
+    public HeadlessRunner(SimulationService simulationService) {
+        this.simulationService = simulationService;
+    }
+
+    /**
+     * Runs every scenario of the input and writes its result lines to the output file.
+     */
+    public void run(Path input, Path output, int workers) throws IOException {
+        List<Path> files = scenarioFiles(input);
+        // Name and parse error of each scenario handed to the runner but not written yet
+        ArrayDeque<String[]> pending = new ArrayDeque<>();
+        Iterator<Path> remaining = files.iterator();
+        Iterator<Scenario> scenarios = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return remaining.hasNext();
+            }
+
+            @Override
+            public Scenario next() {
+                if (!remaining.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Path file = remaining.next();
+                String name = input.equals(file) ? file.getFileName().toString() : input.relativize(file).toString();
+                try {
+                    Scenario scenario = parser.parse(file);
+                    pending.add(new String[]{name, null});
+                    return scenario;
+                } catch (ScenarioFormatException | IOException e) {
+                    pending.add(new String[]{name, e.getMessage()});
+                    return UNPARSED;
+                }
+            }
+        };
+
+        try (JsonLinesWriter writer = new JsonLinesWriter(output);
+             BatchSimulationRunner runner = new BatchSimulationRunner(simulationService, workers)) {
+            runner.run(scenarios, BatchSimulationRunner.ResultOrder.INPUT, result -> {
+                String[] entry = pending.poll();
+                if (entry[1] != null) {
+                    errorCount++;
+                    StringBuilder line = writer.beginLine().append("{\"scenario\":");
+                    JsonLinesWriter.appendString(line, entry[0]).append(",\"error\":");
+                    JsonLinesWriter.appendString(line, entry[1]).append('}');
+                    writer.endLine();
+                } else {
+                    scenarioCount++;
+                    write(writer, entry[0], result);
+                }
+            });
+        }
+    }
+
+    /**
+     * @return the number of scenarios that ran in the last calls to {@link #run(Path, Path, int)}
+     */
+    public long getScenarioCount() {
+        return scenarioCount;
+    }
+
+    /**
+     * @return the number of scenarios that ended with a collision
+     */
+    public long getCollisionCount() {
+        return collisionCount;
+    }
+
+    /**
+     * @return the number of files that could not be parsed
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    private void write(JsonLinesWriter writer, String scenario, ScenarioResult result) {
+        List<Car> cars = result.getScenario().getCars();
+        CollisionResult collision = result.getCollision();
+        if (collision == null) {
+            for (Car car : cars) {
+                StringBuilder line = beginCar(writer, scenario, car);
+                line.append(",\"x\":").append(car.getX())
+                        .append(",\"y\":").append(car.getY())
+                        .append(",\"direction\":\"").append(car.getDirection()).append("\"}");
+                writer.endLine();
+            }
+            return;
+        }
+
+        collisionCount++;
+        Map<String, String> others = othersByName(collision.getCollidedCarNames());
+        for (Car car : cars) {
+            String collidesWith = others.get(car.getName());
+            if (collidesWith != null) {
+                StringBuilder line = beginCar(writer, scenario, car);
+                line.append(",\"collidesWith\":").append(collidesWith).append(",\"position\":");
+                JsonLinesWriter.appendString(line, collision.getPosition())
+                        .append(",\"step\":").append(collision.getStep()).append('}');
+                writer.endLine();
+            }
+        }
+    }
+
+    private static StringBuilder beginCar(JsonLinesWriter writer, String scenario, Car car) {
+        StringBuilder line = writer.beginLine().append("{\"scenario\":");
+        JsonLinesWriter.appendString(line, scenario).append(",\"car\":");
+        return JsonLinesWriter.appendString(line, car.getName());
+    }
+
+    /**
+     * Maps each collided name to the JSON array of the other names, built once per name.
+     * Like {@link SimulationResultPrinter}, only the first occurrence of the name is left out.
+     */
+    private static Map<String, String> othersByName(List<String> names) {
+        Map<String, String> others = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (others.containsKey(names.get(i))) {
+                continue;
+            }
+            StringBuilder array = new StringBuilder().append('[');
+            for (int j = 0; j < names.size(); j++) {
+                if (j != i) {
+                    if (array.length() > 1) {
+                        array.append(',');
+                    }
+                    JsonLinesWriter.appendString(array, names.get(j));
+                }
+            }
+            others.put(names.get(i), array.append(']').toString());
+        }
+        return others;
+    }
+
+    private static List<Path> scenarioFiles(Path input) throws IOException {
+        if (!Files.isDirectory(input)) {
+            return List.of(input);
+        }
+        try (Stream<Path> entries = Files.list(input)) {
+            return entries.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.autodrive.simulation.model.Field;
 import com.autodrive.simulation.model.Car;
 import com.autodrive.simulation.service.CollisionResult;
 import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.TrajectoryTrace;
 import com.autodrive.simulation.visualization.MovementPatternVisualizer;
 
 import java.util.*;
@@ -134,23 +135,15 @@ public class SimulationCliRunner {
         // Print car list before simulation
         resultPrinter.printCarList(cars);
 
-        // Create deep copy of cars for visualization (before simulation mutates them)
-        List<Car> initialCars = new ArrayList<>();
-        for (Car car : cars) {
-            initialCars.add(new Car(
-                    car.getName(),
-                    car.getX(),
-                    car.getY(),
-                    car.getDirection(),
-                    car.getCommands()));
-        }
+        // Record the run so the movement patterns replay it instead of simulating a copy of the cars
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+        CollisionResult collisionResult = simulationService.run(field, cars, trace);
 
-        // Display movement patterns visualization using initial state
-        movementVisualizer.displayMovementPatterns(field, initialCars);
+        // Display movement patterns visualization from the recorded trace
+        movementVisualizer.displayMovementPatterns(field, cars, trace);
 
         System.out.println();
         System.out.println("=== Running Simulation ===");
-        CollisionResult collisionResult = simulationService.run(field, cars);
 
         resultPrinter.printSimulationResult(cars, collisionResult);
     }
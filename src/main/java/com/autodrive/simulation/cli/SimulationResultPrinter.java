@@ -3,8 +3,10 @@ package com.autodrive.simulation.cli;
 import com.autodrive.simulation.model.Car;
 import com.autodrive.simulation.service.CollisionResult;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Responsible only for printing results to the console.
@@ -32,17 +34,12 @@ public class SimulationResultPrinter {
         System.out.println("After simulation, the result is:");
 
         if (collisionResult != null) {
+            Map<String, String> others = othersByName(collisionResult.getCollidedCarNames());
+            String suffix = " at (" + collisionResult.getPosition() + ") at step " + collisionResult.getStep();
             for (Car car : cars) {
-                if (collisionResult.getCollidedCarNames().contains(car.getName())) {
-                    List<String> others = new ArrayList<>(collisionResult.getCollidedCarNames());
-                    others.remove(car.getName());
-                    String otherNames = String.join(", ", others);
-
-                    System.out.println(String.format("- %s, collides with %s at (%s) at step %d",
-                            car.getName(),
-                            otherNames,
-                            collisionResult.getPosition(),
-                            collisionResult.getStep()));
+                String otherNames = others.get(car.getName());
+                if (otherNames != null) {
+                    System.out.println("- " + car.getName() + ", collides with " + otherNames + suffix);
                 }
             }
             return;
@@ -56,5 +53,20 @@ public class SimulationResultPrinter {
                     car.getDirection()));
         }
     }
-}
 
+    /**
+     * Maps each collided name to the other names, joined once per name instead of once per car.
+     * A name listed twice only leaves out its first occurrence.
+     */
+    private static Map<String, String> othersByName(List<String> names) {
+        Map<String, String> others = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!others.containsKey(names.get(i))) {
+                List<String> rest = new ArrayList<>(names);
+                rest.remove(i);
+                others.put(names.get(i), String.join(", ", rest));
+            }
+        }
+        return others;
+    }
+}
@@ -0,0 +1,112 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.service.CheckpointStore;
+import com.autodrive.simulation.service.StateSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * {@link CheckpointStore} that spills every snapshot to a file, laid out as written by
+ * {@link StateSnapshot#writeTo(ByteBuffer)}, one after the other.
+ * <p>
+ * Only the step and file offset of each snapshot stay on the heap; a lookup reads one
+ * snapshot back with a positional read, so lookups may run concurrently once every snapshot
+ * was added.
+ */
+public final class CheckpointFileStore implements CheckpointStore {
+
+    private final FileChannel channel;
+    private int[] steps = new int[16];
+    /** Snapshot {@code i} spans {@code [offsets[i], offsets[i + 1])}. */
+    private long[] offsets = new long[17];
+    private int count;
+
+    /**
+     * Creates (or truncates) the given file.
+     *
+     * @param deleteOnClose remove the file once the store is closed (on some platforms as soon as it is opened)
+     */
+    public CheckpointFileStore(Path path, boolean deleteOnClose) throws IOException {
+        Set<StandardOpenOption> options = EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (deleteOnClose) {
+            options.add(StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        this.channel = FileChannel.open(path, options);
+    }
+
+    @Override
+    public void add(StateSnapshot snapshot) {
+        if (count > 0 && steps[count - 1] >= snapshot.getStep()) {
+            throw new IllegalArgumentException("Snapshots must be added in increasing step order");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(StateSnapshot.byteSize(snapshot.getCarCount()));
+        snapshot.writeTo(buffer);
+        buffer.flip();
+        long offset = offsets[count];
+        try {
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer, offset);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (count == steps.length) {
+            steps = Arrays.copyOf(steps, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2 + 1);
+        }
+        steps[count] = snapshot.getStep();
+        offsets[count + 1] = offset;
+        count++;
+    }
+
+    @Override
+    public StateSnapshot floor(int step) {
+        int index = Arrays.binarySearch(steps, 0, count, step);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        if (index < 0) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offsets[index + 1] - offsets[index]));
+        try {
+            long position = offsets[index];
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position + buffer.position());
+                if (read < 0) {
+                    throw new IOException("Checkpoint file truncated");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        return StateSnapshot.readFrom(buffer);
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.autodrive.simulation.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes one JSON value per line to a UTF-8 file.
+ * <p>
+ * Lines are appended to a chunk in memory on the calling thread; full chunks are written
+ * to the file by a background thread, the same way {@link TrajectoryLogWriter} hands over
+ * its buffers. When the disk falls behind, the caller waits for a free chunk.
+ * <p>
+ * A line is built in place: {@link #beginLine()} returns the chunk to append the value to,
+ * and {@link #endLine()} terminates it. The writer is not thread-safe.
+ */
+public final class JsonLinesWriter implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int CHUNKS = 4;
+    private static final StringBuilder END_OF_STREAM = new StringBuilder(0);
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    private final BlockingQueue<StringBuilder> filled = new ArrayBlockingQueue<>(CHUNKS);
+    private final BlockingQueue<StringBuilder> free = new ArrayBlockingQueue<>(CHUNKS);
+    private final Thread flusher;
+    private volatile IOException failure;
+    private StringBuilder chunk;
+    private long lineCount;
+    private boolean closed;
+
+    /**
+     * Creates (or truncates) the output file.
+     */
+    public JsonLinesWriter(Path path) throws IOException {
+        this.out = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        this.chunk = new StringBuilder(CHUNK_SIZE + 256);
+        for (int i = 1; i < CHUNKS; i++) {
+            free.add(new StringBuilder(CHUNK_SIZE + 256));
+        }
+        this.flusher = new Thread(this::flushChunks, "json-lines-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * @return the builder to append the next value to; it must not be kept after {@link #endLine()}
+     */
+    public StringBuilder beginLine() {
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        return chunk;
+    }
+
+    /**
+     * Terminates the line started with {@link #beginLine()}.
+     */
+    public void endLine() {
+        chunk.append('\n');
+        lineCount++;
+        if (chunk.length() >= CHUNK_SIZE) {
+            try {
+                filled.put(chunk);
+                chunk = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing JSON lines", e);
+            }
+        }
+    }
+
+    /**
+     * Writes an already formatted value as one line.
+     */
+    public void writeLine(CharSequence json) {
+        beginLine().append(json);
+        endLine();
+    }
+
+    /**
+     * @return the number of lines written so far
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Appends the value as a JSON string literal, escaping quotes, backslashes and control characters.
+     */
+    public static StringBuilder appendString(StringBuilder target, String value) {
+        target.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                target.append('\\').append(c);
+            } else if (c == '\n') {
+                target.append("\\n");
+            } else if (c == '\r') {
+                target.append("\\r");
+            } else if (c == '\t') {
+                target.append("\\t");
+            } else if (c < 0x20) {
+                target.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            } else {
+                target.append(c);
+            }
+        }
+        return target.append('"');
+    }
+
+    /**
+     * Writes the pending lines and waits until they are in the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            filled.put(chunk);
+            filled.put(END_OF_STREAM);
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing JSON lines", e);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushChunks() {
+        try {
+            while (true) {
+                StringBuilder next = filled.take();
+                if (next == END_OF_STREAM) {
+                    if (failure == null) {
+                        out.flush();
+                    }
+                    return;
+                }
+                try {
+                    if (failure == null) {
+                        out.append(next);
+                    }
+                } catch (IOException e) {
+                    // Keep recycling chunks so the caller does not block forever
+                    failure = e;
+                }
+                next.setLength(0);
+                free.put(next);
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
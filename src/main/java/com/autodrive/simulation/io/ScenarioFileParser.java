@@ -0,0 +1,306 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Loads a {@link Scenario} from a text file without going through the interactive prompts.
+ * <p>
+ * The first non-blank line holds the field size, every following non-blank line one car:
+ * <pre>
+ * 10 10
+ * A 1 2 N FFRFFFFRRL
+ * B 7 8 W FFLFFFFFFF
+ * </pre>
+ * Lines starting with {@code #} are ignored. Cars are validated with the same rules as
+ * {@link com.autodrive.simulation.cli.CarCreator}: the position must be inside the field,
+ * the direction one of N, E, S, W and the commands only L, R, F (in either case).
+ * <p>
+ * The file is memory-mapped and parsed byte by byte in a single pass: numbers, directions
+ * and commands are decoded straight from the mapped bytes, and only the name and the
+ * command string of each car are allocated.
+ */
+public class ScenarioFileParser {
+
+    private static final int MAX_WINDOW = Integer.MAX_VALUE;
+
+    /** Upper-case command for each byte, or 0 for bytes that are not a command. */
+    private static final byte[] COMMANDS = new byte[256];
+
+    static {
+        for (char command : new char[]{'L', 'R', 'F'}) {
+            COMMANDS[command] = (byte) command;
+            COMMANDS[Character.toLowerCase(command)] = (byte) command;
+        }
+    }
+
+    private final int window;
+
+    public ScenarioFileParser() {
+        this(MAX_WINDOW);
+    }
+
+    /**
+     * @param window maximum number of bytes mapped at once; no line may be longer
+     */
+    ScenarioFileParser(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("window must be at least 2 bytes");
+        }
+        this.window = window;
+    }
+
+    /**
+     * @throws ScenarioFormatException when the file does not hold a valid scenario
+     */
+    public Scenario parse(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Parse(channel).run();
+        }
+    }
+
+    /**
+     * Parses a scenario already held in memory, such as a request body, with the same rules as a file.
+     *
+     * @throws ScenarioFormatException when the bytes do not hold a valid scenario
+     */
+    public Scenario parse(byte[] bytes) throws IOException {
+        return new Parse(ByteBuffer.wrap(bytes)).run();
+    }
+
+    private final class Parse {
+
+        private final FileChannel channel;
+        private final long size;
+
+        private ByteBuffer buffer;
+        private long bufferStart;
+        private long lineNumber;
+        /** Cursor and end (exclusive) of the line being parsed, relative to {@link #buffer}. */
+        private int pos;
+        private int end;
+        private byte[] scratch = new byte[64];
+
+        private Field field;
+        private final List<Car> cars = new ArrayList<>();
+
+        Parse(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+        }
+
+        /** Parses {@code bytes} as a single window, which is never remapped. */
+        Parse(ByteBuffer bytes) {
+            this.channel = null;
+            this.size = bytes.limit();
+            this.buffer = bytes;
+        }
+
+        Scenario run() throws IOException {
+            long offset = 0;
+            map(0);
+            while (offset < size) {
+                int lineStart = (int) (offset - bufferStart);
+                int lineEnd = indexOfNewline(lineStart);
+                if (lineEnd < 0) {
+                    if (bufferStart + buffer.limit() < size) {
+                        if (lineStart == 0) {
+                            throw new ScenarioFormatException(lineNumber + 1, "Line is longer than " + window + " bytes");
+                        }
+                        // The line runs past the mapped window; map again starting at the line
+                        map(offset);
+                        continue;
+                    }
+                    lineEnd = buffer.limit();
+                }
+
+                lineNumber++;
+                pos = lineStart;
+                end = lineEnd;
+                parseLine();
+                offset = bufferStart + lineEnd + 1;
+            }
+
+            if (field == null) {
+                throw new ScenarioFormatException(Math.max(lineNumber, 1), "Missing field size line");
+            }
+            return new Scenario(field, cars);
+        }
+
+        private void map(long offset) throws IOException {
+            if (channel == null) {
+                return;
+            }
+            bufferStart = offset;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(window, size - offset));
+        }
+
+        private int indexOfNewline(int from) {
+            int limit = buffer.limit();
+            for (int i = from; i < limit; i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void parseLine() {
+            skipBlanks();
+            if (pos == end || buffer.get(pos) == '#') {
+                return;
+            }
+
+            if (field == null) {
+                int width = parseInt("Please enter exactly two integers.", "Please enter valid integers.");
+                int height = parseInt("Please enter exactly two integers.", "Please enter valid integers.");
+                expectEndOfLine("Please enter exactly two integers.");
+                if (width <= 0 || height <= 0) {
+                    throw error("Field size must be positive.");
+                }
+                field = new Field(width, height);
+                return;
+            }
+
+            String format = "Invalid format! Use: name x y Direction commands";
+            int nameStart = pos;
+            int nameLength = tokenLength();
+            String name = new String(copy(nameStart, nameLength), 0, nameLength, StandardCharsets.UTF_8);
+
+            String invalidPosition = "Invalid position! Enter integers for x and y.";
+            int x = parseInt(format, invalidPosition);
+            int y = parseInt(format, invalidPosition);
+
+            skipBlanks();
+            if (tokenLength() != 1) {
+                throw error(pos == end ? format : "Invalid direction! Use N, E, S, or W.");
+            }
+            Direction direction = direction(buffer.get(pos - 1));
+
+            if (!field.isInside(x, y)) {
+                throw error("Position (" + x + ", " + y + ") is outside field boundaries!");
+            }
+
+            skipBlanks();
+            int commandsStart = pos;
+            int commandsLength = tokenLength();
+            if (commandsLength == 0) {
+                throw error("Invalid commands! Only L, R, F are allowed.");
+            }
+            byte[] commands = copy(commandsStart, commandsLength);
+            for (int i = 0; i < commandsLength; i++) {
+                commands[i] = COMMANDS[commands[i] & 0xFF];
+                if (commands[i] == 0) {
+                    throw error("Invalid commands! Only L, R, F are allowed.");
+                }
+            }
+            expectEndOfLine(format);
+
+            cars.add(new Car(name, x, y, direction,
+                    new String(commands, 0, commandsLength, StandardCharsets.ISO_8859_1)));
+        }
+
+        private Direction direction(byte value) {
+            switch (value) {
+                case 'N': case 'n':
+                    return Direction.N;
+                case 'E': case 'e':
+                    return Direction.E;
+                case 'S': case 's':
+                    return Direction.S;
+                case 'W': case 'w':
+                    return Direction.W;
+                default:
+                    throw error("Invalid direction! Use N, E, S, or W.");
+            }
+        }
+
+        /**
+         * Parses an optionally signed decimal int, like {@link Integer#parseInt(String)}.
+         */
+        private int parseInt(String missingMessage, String invalidMessage) {
+            skipBlanks();
+            if (pos == end) {
+                throw error(missingMessage);
+            }
+            int start = pos;
+            int length = tokenLength();
+            boolean negative = buffer.get(start) == '-';
+            int digits = start + (negative || buffer.get(start) == '+' ? 1 : 0);
+            if (digits == start + length) {
+                throw error(invalidMessage);
+            }
+
+            long value = 0;
+            for (int i = digits; i < start + length; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw error(invalidMessage);
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw error(invalidMessage);
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw error(invalidMessage);
+            }
+            return (int) value;
+        }
+
+        /**
+         * Moves the cursor past the token at the cursor.
+         *
+         * @return the length of the token
+         */
+        private int tokenLength() {
+            int start = pos;
+            while (pos < end && !isBlank(buffer.get(pos))) {
+                pos++;
+            }
+            return pos - start;
+        }
+
+        private void skipBlanks() {
+            while (pos < end && isBlank(buffer.get(pos))) {
+                pos++;
+            }
+        }
+
+        private void expectEndOfLine(String message) {
+            skipBlanks();
+            if (pos != end) {
+                throw error(message);
+            }
+        }
+
+        private byte[] copy(int from, int length) {
+            if (scratch.length < length) {
+                scratch = Arrays.copyOf(scratch, Math.max(length, scratch.length * 2));
+            }
+            buffer.get(from, scratch, 0, length);
+            return scratch;
+        }
+
+        private ScenarioFormatException error(String message) {
+            return new ScenarioFormatException(lineNumber, message);
+        }
+    }
+
+    private static boolean isBlank(byte value) {
+        return value == ' ' || value == '\t' || value == '\r';
+    }
+}
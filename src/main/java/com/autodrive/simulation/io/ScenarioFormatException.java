@@ -0,0 +1,23 @@
+package com.autodrive.simulation.io;
+
+/**
+ * Thrown when a scenario file does not follow the expected format or holds an invalid car.
+ */
+public class ScenarioFormatException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long line;
+
+    public ScenarioFormatException(long line, String message) {
+        super("Line " + line + ": " + message);
+        this.line = line;
+    }
+
+    /**
+     * @return the 1-based number of the offending line
+     */
+    public long getLine() {
+        return line;
+    }
+}
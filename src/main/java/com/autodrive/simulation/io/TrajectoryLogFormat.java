@@ -0,0 +1,45 @@
+package com.autodrive.simulation.io;
+
+/**
+ * Layout of the binary trajectory log shared by {@link TrajectoryLogWriter} and {@link TrajectoryLogReader}.
+ * <p>
+ * <pre>
+ * header: MAGIC (int), car count (varint),
+ *         per car: x, y (zig-zag varints), heading ordinal, active flag (bytes), command count (varint)
+ * step:   STEP, one 2-bit move code per moving car (4 per byte, low bits first),
+ *         exception count (varint), per exception: position gap (varint), x, y (zig-zag varints), heading,
+ *         deactivated count (varint), deactivated cars (varint gaps between car indexes)
+ * end:    END
+ * </pre>
+ * The moving list of a step holds the cars, in list order, that are still active and have a
+ * command for that step; both sides derive it from the command counts and the deactivated cars.
+ * A car executing a command either stays, turns or moves one cell ahead, so nearly every car
+ * step fits in two bits; anything else is stored as an exception with the absolute state.
+ */
+final class TrajectoryLogFormat {
+
+    static final int MAGIC = 0x41544C31;
+
+    static final int END = 0;
+    static final int STEP = 1;
+
+    static final int STAY = 0;
+    static final int LEFT = 1;
+    static final int RIGHT = 2;
+    static final int FORWARD = 3;
+
+    static final int[] DX = {0, 1, 0, -1};
+    static final int[] DY = {1, 0, -1, 0};
+
+    private TrajectoryLogFormat() {
+    }
+
+    static long zigZag(int value) {
+        return (value << 1 ^ value >> 31) & 0xFFFFFFFFL;
+    }
+
+    static int unZigZag(long value) {
+        int bits = (int) value;
+        return bits >>> 1 ^ -(bits & 1);
+    }
+}
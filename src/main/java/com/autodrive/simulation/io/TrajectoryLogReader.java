@@ -0,0 +1,233 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.model.Direction;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.autodrive.simulation.io.TrajectoryLogFormat.*;
+
+/**
+ * Streams the steps of a log written by {@link TrajectoryLogWriter}.
+ * <p>
+ * The file is memory-mapped one window at a time and decoded as {@link #nextStep()} is
+ * called, so only the current state of the cars is held in memory, whatever the length
+ * of the run.
+ */
+public final class TrajectoryLogReader implements AutoCloseable {
+
+    private static final int MAX_WINDOW = 1 << 30;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final FileChannel channel;
+    private final long size;
+    private final int window;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+
+    private final int[] x;
+    private final int[] y;
+    private final byte[] dir;
+    private final boolean[] active;
+    private final int[] commandCount;
+    private final int[] lastStep;
+
+    private final int[] moving;
+    private int movingCount;
+    private int step;
+    private boolean finished;
+
+    public TrajectoryLogReader(Path path) throws IOException {
+        this(path, MAX_WINDOW);
+    }
+
+    /**
+     * @param window maximum number of bytes mapped at once
+     */
+    TrajectoryLogReader(Path path, int window) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.window = window;
+        try {
+            map(0);
+            if (getInt() != MAGIC) {
+                throw new IOException("Not a trajectory log: " + path);
+            }
+
+            int cars = (int) getVarint();
+            this.x = new int[cars];
+            this.y = new int[cars];
+            this.dir = new byte[cars];
+            this.active = new boolean[cars];
+            this.commandCount = new int[cars];
+            this.lastStep = new int[cars];
+            this.moving = new int[cars];
+            for (int i = 0; i < cars; i++) {
+                x[i] = unZigZag(getVarint());
+                y[i] = unZigZag(getVarint());
+                dir[i] = get();
+                active[i] = get() != 0;
+                commandCount[i] = (int) getVarint();
+                lastStep[i] = -1;
+                if (active[i] && commandCount[i] > 0) {
+                    moving[movingCount++] = i;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the next step of the log to the car states.
+     *
+     * @return {@code false} once the log has no more steps
+     */
+    public boolean nextStep() throws IOException {
+        if (finished) {
+            return false;
+        }
+        int marker = get();
+        if (marker == END) {
+            finished = true;
+            return false;
+        }
+        if (marker != STEP) {
+            throw new IOException("Corrupt trajectory log at step " + step);
+        }
+
+        int packed = 0;
+        for (int i = 0; i < movingCount; i++) {
+            if ((i & 3) == 0) {
+                packed = get() & 0xFF;
+            }
+            int car = moving[i];
+            switch (packed >>> ((i & 3) * 2) & 3) {
+                case LEFT:
+                    dir[car] = (byte) (dir[car] + 3 & 3);
+                    break;
+                case RIGHT:
+                    dir[car] = (byte) (dir[car] + 1 & 3);
+                    break;
+                case FORWARD:
+                    x[car] += DX[dir[car]];
+                    y[car] += DY[dir[car]];
+                    break;
+                default:
+                    break;
+            }
+            lastStep[car] = step;
+        }
+
+        int exceptions = (int) getVarint();
+        int position = -1;
+        for (int e = 0; e < exceptions; e++) {
+            position += 1 + (int) getVarint();
+            int car = moving[position];
+            x[car] = unZigZag(getVarint());
+            y[car] = unZigZag(getVarint());
+            dir[car] = get();
+        }
+
+        int deactivated = (int) getVarint();
+        int car = -1;
+        for (int d = 0; d < deactivated; d++) {
+            car += 1 + (int) getVarint();
+            active[car] = false;
+        }
+
+        // Deactivated cars and cars without a command for the next step leave the moving list
+        int next = 0;
+        for (int i = 0; i < movingCount; i++) {
+            if (active[moving[i]] && commandCount[moving[i]] > step + 1) {
+                moving[next++] = moving[i];
+            }
+        }
+        movingCount = next;
+        step++;
+        return true;
+    }
+
+    public int getCarCount() {
+        return x.length;
+    }
+
+    /**
+     * @return the number of steps applied so far; {@code 0} before the first call to {@link #nextStep()}
+     */
+    public int getStep() {
+        return step;
+    }
+
+    public int getX(int car) {
+        return x[car];
+    }
+
+    public int getY(int car) {
+        return y[car];
+    }
+
+    public Direction getDirection(int car) {
+        return DIRECTIONS[dir[car]];
+    }
+
+    /**
+     * @return {@code false} once the car was deactivated by a collision
+     */
+    public boolean isActive(int car) {
+        return active[car];
+    }
+
+    /**
+     * @return whether the car executed a command in the last step applied
+     */
+    public boolean executedLastStep(int car) {
+        return step > 0 && lastStep[car] == step - 1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void map(long offset) throws IOException {
+        bufferStart = offset;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(window, size - offset));
+    }
+
+    private byte get() throws IOException {
+        if (!buffer.hasRemaining()) {
+            long next = bufferStart + buffer.limit();
+            if (next >= size) {
+                throw new EOFException("Truncated trajectory log");
+            }
+            map(next);
+        }
+        return buffer.get();
+    }
+
+    private long getVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt varint in trajectory log");
+    }
+
+    private int getInt() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = value << 8 | get() & 0xFF;
+        }
+        return value;
+    }
+}
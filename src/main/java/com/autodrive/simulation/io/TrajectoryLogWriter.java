@@ -0,0 +1,294 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.service.TrajectoryRecorder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.autodrive.simulation.io.TrajectoryLogFormat.*;
+
+/**
+ * {@link TrajectoryRecorder} that stores every step of a run in a compact binary file,
+ * laid out as described in {@link TrajectoryLogFormat}.
+ * <p>
+ * Steps are encoded into fixed-size buffers on the simulation thread; full buffers are
+ * written to the file channel by a background thread. When the disk falls behind, the
+ * simulation waits for a free buffer, so memory stays bounded.
+ * <p>
+ * The log must be closed to write its end marker and wait for pending writes.
+ */
+public final class TrajectoryLogWriter implements TrajectoryRecorder, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BUFFERS = 4;
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(BUFFERS);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(BUFFERS);
+    private final Thread flusher;
+    private volatile IOException failure;
+    private ByteBuffer buffer;
+    private boolean closed;
+
+    /** Last written state of each car. */
+    private final int[] x;
+    private final int[] y;
+    private final byte[] dir;
+    private final int[] commandCount;
+
+    /** Cars expected to record in the current step, in list order, with the move code each recorded. */
+    private int[] moving;
+    private int movingCount;
+    private final int[] code;
+    private int cursor;
+    private int step;
+
+    /** Moving-list positions of the cars whose move did not fit a 2-bit code, and those cars. */
+    private int[] exceptions = new int[16];
+    private int[] exceptionCars = new int[16];
+    private int exceptionCount;
+
+    /** Cars deactivated by collisions of the current step. */
+    private final boolean[] inactive;
+    private int[] deactivated = new int[16];
+    private int deactivatedCount;
+
+    /**
+     * Creates (or truncates) the log file and writes the current state of the cars as its header.
+     */
+    public TrajectoryLogWriter(Path path, List<Car> cars) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        for (int i = 1; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        }
+        this.flusher = new Thread(this::flushBuffers, "trajectory-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        int size = cars.size();
+        this.x = new int[size];
+        this.y = new int[size];
+        this.dir = new byte[size];
+        this.commandCount = new int[size];
+        this.moving = new int[size];
+        this.code = new int[size];
+        this.inactive = new boolean[size];
+
+        putInt(MAGIC);
+        putVarint(size);
+        for (int i = 0; i < size; i++) {
+            Car car = cars.get(i);
+            x[i] = car.getX();
+            y[i] = car.getY();
+            dir[i] = (byte) car.getDirection().ordinal();
+            commandCount[i] = car.getCommandCount();
+            putVarint(zigZag(x[i]));
+            putVarint(zigZag(y[i]));
+            put(dir[i]);
+            put(car.isActive() ? 1 : 0);
+            putVarint(commandCount[i]);
+            if (car.isActive() && commandCount[i] > 0) {
+                moving[movingCount++] = i;
+            }
+        }
+    }
+
+    @Override
+    public void record(int car, int newX, int newY, Direction direction) {
+        while (cursor < movingCount && moving[cursor] < car) {
+            cursor++;
+        }
+        if (cursor == movingCount || moving[cursor] != car) {
+            throw new IllegalStateException("Car " + car + " has no command at step " + step);
+        }
+
+        int heading = direction.ordinal();
+        int move;
+        if (newX == x[car] && newY == y[car]) {
+            move = heading == dir[car] ? STAY : heading == (dir[car] + 3 & 3) ? LEFT : heading == (dir[car] + 1 & 3) ? RIGHT : -1;
+        } else {
+            move = heading == dir[car] && newX == x[car] + DX[heading] && newY == y[car] + DY[heading] ? FORWARD : -1;
+        }
+        if (move < 0) {
+            if (exceptionCount == exceptions.length) {
+                exceptions = Arrays.copyOf(exceptions, exceptionCount * 2);
+                exceptionCars = Arrays.copyOf(exceptionCars, exceptionCount * 2);
+            }
+            exceptionCars[exceptionCount] = car;
+            exceptions[exceptionCount++] = cursor;
+            move = STAY;
+        }
+
+        x[car] = newX;
+        y[car] = newY;
+        dir[car] = (byte) heading;
+        code[cursor] = move;
+        cursor++;
+    }
+
+    @Override
+    public void deactivated(int car) {
+        if (inactive[car]) {
+            return;
+        }
+        inactive[car] = true;
+        if (deactivatedCount == deactivated.length) {
+            deactivated = Arrays.copyOf(deactivated, deactivatedCount * 2);
+        }
+        deactivated[deactivatedCount++] = car;
+    }
+
+    /**
+     * Writes the step. Every car of the moving list has to record it; the move code of a
+     * car that did not is written as a stay.
+     */
+    @Override
+    public void endStep(int completedStep) {
+        if (completedStep != step) {
+            throw new IllegalStateException("Expected step " + step + " but got " + completedStep);
+        }
+
+        put(STEP);
+        int packed = 0;
+        for (int i = 0; i < movingCount; i++) {
+            packed |= code[i] << (i & 3) * 2;
+            code[i] = STAY;
+            if ((i & 3) == 3 || i == movingCount - 1) {
+                put(packed);
+                packed = 0;
+            }
+        }
+
+        putVarint(exceptionCount);
+        int previous = -1;
+        for (int e = 0; e < exceptionCount; e++) {
+            int position = exceptions[e];
+            int car = exceptionCars[e];
+            putVarint(position - previous - 1);
+            putVarint(zigZag(x[car]));
+            putVarint(zigZag(y[car]));
+            put(dir[car]);
+            previous = position;
+        }
+
+        Arrays.sort(deactivated, 0, deactivatedCount);
+        putVarint(deactivatedCount);
+        previous = -1;
+        for (int d = 0; d < deactivatedCount; d++) {
+            putVarint(deactivated[d] - previous - 1);
+            previous = deactivated[d];
+        }
+
+        // Next step: cars still active that have a command for it
+        int next = 0;
+        for (int i = 0; i < movingCount; i++) {
+            int car = moving[i];
+            if (!inactive[car] && commandCount[car] > step + 1) {
+                moving[next++] = car;
+            }
+        }
+        movingCount = next;
+        cursor = 0;
+        exceptionCount = 0;
+        deactivatedCount = 0;
+        step++;
+    }
+
+    /**
+     * Writes the end marker and waits until everything is on disk.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            put(END);
+            handOver(buffer);
+            handOver(END_OF_STREAM);
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the trajectory log", e);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushBuffers() {
+        try {
+            while (true) {
+                ByteBuffer next = filled.take();
+                if (next == END_OF_STREAM) {
+                    return;
+                }
+                try {
+                    if (failure == null) {
+                        while (next.hasRemaining()) {
+                            channel.write(next);
+                        }
+                    }
+                } catch (IOException e) {
+                    // Keep recycling buffers so the simulation thread does not block forever
+                    failure = e;
+                }
+                next.clear();
+                free.put(next);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handOver(ByteBuffer full) throws InterruptedException {
+        full.flip();
+        filled.put(full);
+    }
+
+    private void put(int value) {
+        if (!buffer.hasRemaining()) {
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            try {
+                handOver(buffer);
+                buffer = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing the trajectory log", e);
+            }
+        }
+        buffer.put((byte) value);
+    }
+
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            put((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        put((int) value);
+    }
+
+    private void putInt(int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            put(value >>> shift);
+        }
+    }
+}
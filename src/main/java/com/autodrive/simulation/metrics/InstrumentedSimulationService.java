@@ -0,0 +1,132 @@
+package com.autodrive.simulation.metrics;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.service.CollisionLog;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.TrajectoryRecorder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * {@link SimulationService} decorator that records every run in a {@link SimulationMetrics}.
+ * <p>
+ * A run is timed with {@link System#nanoTime()}, and its allocations are read from the
+ * calling thread through {@link com.sun.management.ThreadMXBean} when the JVM supports it;
+ * memory allocated by worker threads of a parallel delegate is not included. Steps, cars and
+ * collisions are derived from the cars and the result, so the delegate needs no changes.
+ */
+public class InstrumentedSimulationService implements SimulationService {
+
+    private final SimulationService delegate;
+    private final SimulationMetrics metrics;
+    private final com.sun.management.ThreadMXBean allocations;
+
+    public InstrumentedSimulationService(SimulationService delegate, SimulationMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.allocations = allocationCounter();
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) threads;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        Run run = new Run(cars);
+        try {
+            CollisionResult result = delegate.run(field, cars);
+            run.finished(result == null ? stepCount(cars) : result.getStep(), result == null ? 0 : 1);
+            return result;
+        } catch (RuntimeException | Error e) {
+            run.failed();
+            throw e;
+        }
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars, TrajectoryRecorder recorder) {
+        Run run = new Run(cars);
+        try {
+            CollisionResult result = delegate.run(field, cars, recorder);
+            run.finished(result == null ? stepCount(cars) : result.getStep(), result == null ? 0 : 1);
+            return result;
+        } catch (RuntimeException | Error e) {
+            run.failed();
+            throw e;
+        }
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        Run run = new Run(cars);
+        try {
+            CollisionLog log = delegate.runAll(field, cars);
+            run.finished(stepCount(cars), log.size());
+            return log;
+        } catch (RuntimeException | Error e) {
+            run.failed();
+            throw e;
+        }
+    }
+
+    private static int stepCount(List<Car> cars) {
+        int steps = 0;
+        if (cars != null) {
+            for (Car car : cars) {
+                steps = Math.max(steps, car.getCommandCount());
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Start time, allocation counter and active cars of one run on the calling thread.
+     */
+    private final class Run {
+
+        private final long start;
+        private final long allocatedAtStart;
+        private final int carCount;
+        private final long activeCars;
+
+        Run(List<Car> cars) {
+            this.carCount = cars == null ? 0 : cars.size();
+            long active = 0;
+            for (int i = 0; i < carCount; i++) {
+                if (cars.get(i).isActive()) {
+                    active++;
+                }
+            }
+            this.activeCars = active;
+            metrics.runStarted(active);
+            this.allocatedAtStart = allocations == null ? -1 : allocations.getCurrentThreadAllocatedBytes();
+            this.start = System.nanoTime();
+        }
+
+        void finished(int steps, int collisions) {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocatedAtStart < 0 ? -1 : allocations.getCurrentThreadAllocatedBytes() - allocatedAtStart;
+            metrics.runFinished(nanos, steps, carCount, collisions, activeCars, allocated);
+        }
+
+        void failed() {
+            metrics.runFailed(System.nanoTime() - start, activeCars);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.autodrive.simulation.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the runs of an {@link InstrumentedSimulationService}, exposed as a standard MBean.
+ * <p>
+ * Every counter and every latency bucket is a {@link LongAdder}, which spreads concurrent
+ * updates over striped cells, so many threads finishing runs at the same time do not contend
+ * on one cache line. Reading an attribute sums the stripes and is comparatively slow, which
+ * suits monitoring.
+ * <p>
+ * Rates are computed per sampling window: reading a rate at least {@code window} after the
+ * previous window closed starts a new one.
+ */
+public class SimulationMetrics implements SimulationMetricsMBean {
+
+    private static final int BUCKETS = 40;
+    private static final long DEFAULT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failedRuns = new LongAdder();
+    private final LongAdder inProgress = new LongAdder();
+    private final LongAdder steps = new LongAdder();
+    private final LongAdder cars = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAccumulator maxLatencyNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder measuredRuns = new LongAdder();
+    private final LongAdder[] latencyBuckets = new LongAdder[BUCKETS];
+    /** Active cars of the runs in progress, as counted when each run started. */
+    private final LongAdder activeCars = new LongAdder();
+
+    private final long windowNanos;
+    private long windowStart = System.nanoTime();
+    private long windowSteps;
+    private long windowCars;
+    private double stepsPerSecond;
+    private double carsPerSecond;
+
+    private MBeanServer registeredServer;
+    private ObjectName registeredName;
+
+    public SimulationMetrics() {
+        this(DEFAULT_WINDOW_NANOS);
+    }
+
+    /**
+     * @param windowNanos length of the sampling window of the rates
+     */
+    public SimulationMetrics(long windowNanos) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("windowNanos must be positive");
+        }
+        this.windowNanos = windowNanos;
+        for (int i = 0; i < BUCKETS; i++) {
+            latencyBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registers with the platform MBean server as {@code com.autodrive.simulation:type=SimulationMetrics,name=<name>}.
+     *
+     * @return the name registered
+     */
+    public synchronized ObjectName register(String name) {
+        return register(ManagementFactory.getPlatformMBeanServer(), name);
+    }
+
+    public synchronized ObjectName register(MBeanServer server, String name) {
+        if (registeredName != null) {
+            throw new IllegalStateException("Already registered as " + registeredName);
+        }
+        try {
+            ObjectName objectName = new ObjectName("com.autodrive.simulation:type=SimulationMetrics,name="
+                    + ObjectName.quote(name));
+            server.registerMBean(this, objectName);
+            registeredServer = server;
+            registeredName = objectName;
+            return objectName;
+        } catch (MalformedObjectNameException | InstanceAlreadyExistsException | MBeanRegistrationException
+                 | NotCompliantMBeanException e) {
+            throw new IllegalStateException("Cannot register simulation metrics " + name, e);
+        }
+    }
+
+    /**
+     * Removes the MBean from the server it was registered with; does nothing if it is not registered.
+     */
+    public synchronized void unregister() {
+        if (registeredName == null) {
+            return;
+        }
+        try {
+            registeredServer.unregisterMBean(registeredName);
+        } catch (InstanceNotFoundException | MBeanRegistrationException e) {
+            throw new IllegalStateException("Cannot unregister " + registeredName, e);
+        } finally {
+            registeredServer = null;
+            registeredName = null;
+        }
+    }
+
+    void runStarted(long activeCarCount) {
+        inProgress.increment();
+        activeCars.add(activeCarCount);
+    }
+
+    /**
+     * @param activeCarCount the count the run was started with
+     * @param allocated      bytes allocated by the run, or a negative value when unknown
+     */
+    void runFinished(long nanos, long stepCount, int carCount, long collisionCount, long activeCarCount, long allocated) {
+        inProgress.decrement();
+        activeCars.add(-activeCarCount);
+        runs.increment();
+        steps.add(stepCount);
+        cars.add(carCount);
+        collisions.add(collisionCount);
+        recordLatency(nanos);
+        if (allocated >= 0) {
+            allocatedBytes.add(allocated);
+            measuredRuns.increment();
+        }
+    }
+
+    void runFailed(long nanos, long activeCarCount) {
+        inProgress.decrement();
+        activeCars.add(-activeCarCount);
+        failedRuns.increment();
+        recordLatency(nanos);
+    }
+
+    private void recordLatency(long nanos) {
+        latencyNanos.add(nanos);
+        maxLatencyNanos.accumulate(nanos);
+        long micros = Math.max(nanos / 1000, 0);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        latencyBuckets[bucket].increment();
+    }
+
+    @Override
+    public long getRunCount() {
+        return runs.sum();
+    }
+
+    @Override
+    public long getFailedRunCount() {
+        return failedRuns.sum();
+    }
+
+    @Override
+    public int getRunsInProgress() {
+        return (int) inProgress.sum();
+    }
+
+    @Override
+    public long getStepCount() {
+        return steps.sum();
+    }
+
+    @Override
+    public long getCarCount() {
+        return cars.sum();
+    }
+
+    @Override
+    public long getCollisionCount() {
+        return collisions.sum();
+    }
+
+    @Override
+    public synchronized double getStepsPerSecond() {
+        sample();
+        return stepsPerSecond;
+    }
+
+    @Override
+    public synchronized double getCarsPerSecond() {
+        sample();
+        return carsPerSecond;
+    }
+
+    /**
+     * Closes the current window once it is long enough.
+     */
+    private void sample() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed < windowNanos) {
+            return;
+        }
+        long totalSteps = steps.sum();
+        long totalCars = cars.sum();
+        double seconds = elapsed / 1e9;
+        stepsPerSecond = (totalSteps - windowSteps) / seconds;
+        carsPerSecond = (totalCars - windowCars) / seconds;
+        windowStart = now;
+        windowSteps = totalSteps;
+        windowCars = totalCars;
+    }
+
+    @Override
+    public long getActiveCarCount() {
+        return activeCars.sum();
+    }
+
+    @Override
+    public double getMeanLatencyMillis() {
+        long count = runs.sum() + failedRuns.sum();
+        return count == 0 ? 0 : latencyNanos.sum() / 1e6 / count;
+    }
+
+    @Override
+    public double getLatencyP50Millis() {
+        return latencyPercentile(0.50);
+    }
+
+    @Override
+    public double getLatencyP99Millis() {
+        return latencyPercentile(0.99);
+    }
+
+    @Override
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the percentile; the histogram cannot be more precise
+     */
+    private double latencyPercentile(double percentile) {
+        long[] histogram = getLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < histogram.length; bucket++) {
+            seen += histogram[bucket];
+            if (seen >= rank) {
+                return (1L << bucket) / 1000.0;
+            }
+        }
+        return getMaxLatencyMillis();
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = latencyBuckets[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public double getMeanAllocatedBytesPerRun() {
+        long measured = measuredRuns.sum();
+        return measured == 0 ? -1 : (double) allocatedBytes.sum() / measured;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    @Override
+    public synchronized void reset() {
+        runs.reset();
+        failedRuns.reset();
+        steps.reset();
+        cars.reset();
+        collisions.reset();
+        latencyNanos.reset();
+        maxLatencyNanos.reset();
+        allocatedBytes.reset();
+        measuredRuns.reset();
+        for (LongAdder bucket : latencyBuckets) {
+            bucket.reset();
+        }
+        windowStart = System.nanoTime();
+        windowSteps = 0;
+        windowCars = 0;
+        stepsPerSecond = 0;
+        carsPerSecond = 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.autodrive.simulation.metrics;
+
+/**
+ * Management interface of {@link SimulationMetrics}; every getter is a read-only JMX attribute.
+ */
+public interface SimulationMetricsMBean {
+
+    long getRunCount();
+
+    long getFailedRunCount();
+
+    int getRunsInProgress();
+
+    /**
+     * @return steps simulated in total; a run counts the steps up to its first collision, or its longest program
+     */
+    long getStepCount();
+
+    long getCarCount();
+
+    long getCollisionCount();
+
+    /**
+     * @return steps simulated per second over the last completed sampling window
+     */
+    double getStepsPerSecond();
+
+    /**
+     * @return cars processed per second over the last completed sampling window
+     */
+    double getCarsPerSecond();
+
+    /**
+     * @return active cars of the runs in progress, counted when each run started; concurrent
+     *         runs add up
+     */
+    long getActiveCarCount();
+
+    double getMeanLatencyMillis();
+
+    double getLatencyP50Millis();
+
+    double getLatencyP99Millis();
+
+    double getMaxLatencyMillis();
+
+    /**
+     * @return runs per latency bucket; bucket {@code i} counts runs shorter than {@code 2^i} microseconds
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * @return bytes allocated by the calling thread per run, on average; {@code -1} when the JVM cannot measure it
+     */
+    double getMeanAllocatedBytesPerRun();
+
+    long getAllocatedBytes();
+
+    /**
+     * Sets every counter and histogram back to zero; the gauges of the runs in progress are kept.
+     */
+    void reset();
+}
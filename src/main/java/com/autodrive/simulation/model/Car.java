@@ -12,15 +12,54 @@ public class Car {
     private int x;
     private int y;
     private Direction direction;
-    private final String commands;
+    /** Shared compiled commands; {@code null} when the car has no commands. */
+    private final CommandProgram program;
     private boolean active = true;
 
     public Car(String name, int x, int y, Direction direction, String commands) {
+        this(name, x, y, direction, commands == null ? null : CommandProgram.of(commands));
+    }
+
+    private Car(String name, int x, int y, Direction direction, CommandProgram program) {
         this.name = name;
         this.x = x;
         this.y = y;
         this.direction = direction;
-        this.commands = commands;
+        this.program = program;
+    }
+
+    /**
+     * Creates a car running an already compiled program, e.g. the one of another car.
+     *
+     * @param program the commands of the car; {@code null} for a car without commands
+     */
+    public static Car withProgram(String name, int x, int y, Direction direction, CommandProgram program) {
+        return new Car(name, x, y, direction, program);
+    }
+
+    /**
+     * Execute the command of this car's program for the given step, if the car is still
+     * active and its program is long enough.
+     *
+     * @return {@code true} when the car moved to another cell
+     */
+    public boolean executeStep(int step, Field field) {
+        if (!active || program == null || step >= program.length()) {
+            return false;
+        }
+
+        switch (program.codeAt(step)) {
+            case CommandProgram.LEFT:
+                direction = direction.left();
+                return false;
+            case CommandProgram.RIGHT:
+                direction = direction.right();
+                return false;
+            case CommandProgram.FORWARD:
+                return moveForward(field);
+            default:
+                return false;
+        }
     }
 
     /**
@@ -47,14 +86,16 @@ public class Car {
         }
     }
 
-    private void moveForward(Field field) {
+    private boolean moveForward(Field field) {
         int nextX = x + direction.dx;
         int nextY = y + direction.dy;
 
         if (field.isInside(nextX, nextY)) {
             x = nextX;
             y = nextY;
+            return true;
         }
+        return false;
     }
 
     public String positionKey() {
@@ -78,7 +119,18 @@ public class Car {
     }
 
     public String getCommands() {
-        return commands;
+        return program == null ? null : program.getCommands();
+    }
+
+    public CommandProgram getProgram() {
+        return program;
+    }
+
+    /**
+     * @return the number of commands of this car
+     */
+    public int getCommandCount() {
+        return program == null ? 0 : program.length();
     }
 
     public boolean isActive() {
@@ -89,6 +141,17 @@ public class Car {
         this.active = false;
     }
 
+    /**
+     * Overwrite the position and heading of this car.
+     * Used by engines that simulate outside of the {@link Car} object and
+     * copy the final state back once the run has finished.
+     */
+    public void moveTo(int x, int y, Direction direction) {
+        this.x = x;
+        this.y = y;
+        this.direction = direction;
+    }
+
     @Override
     public String toString() {
         return name + ", (" + x + "," + y + ") " + direction;
@@ -0,0 +1,171 @@
+package com.autodrive.simulation.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable compiled form of a command string.
+ * <p>
+ * Commands are decoded once into one byte per step ({@link #NOOP}, {@link #LEFT},
+ * {@link #RIGHT}, {@link #FORWARD}), so engines no longer look at characters while stepping.
+ * Programs are interned through {@link #of(String)}, so cars built from equal command
+ * strings usually share one instance and engines can deduplicate per-program work by
+ * identity.
+ * <p>
+ * Interning is best-effort. The intern table is a fixed-size cache indexed by hash, so it
+ * never grows with the number of distinct programs, but a program is replaced by the next
+ * one landing in its slot: equal command strings can yield distinct instances. Identity
+ * only ever saves work; code must not rely on equal programs being the same instance.
+ */
+public final class CommandProgram {
+
+    public static final byte NOOP = 0;
+    public static final byte LEFT = 1;
+    public static final byte RIGHT = 2;
+    public static final byte FORWARD = 3;
+
+    private static final int INTERNED_BITS = 12;
+    private static final AtomicReferenceArray<CommandProgram> INTERNED = new AtomicReferenceArray<>(1 << INTERNED_BITS);
+
+    private static final byte[] ENCODING = new byte[256];
+
+    static {
+        for (int c = 0; c < ENCODING.length; c++) {
+            ENCODING[c] = encode((char) c);
+        }
+    }
+
+    private final String commands;
+    private final byte[] codes;
+    /**
+     * Lazily computed {@link #fingerprint()} and {@link #fingerprintLow()}; {@code 0} until then.
+     * Volatile because a plain {@code long} may be read half-written by another thread; the low
+     * half is stored first, so a set {@code fingerprint} means both are. Racing threads only
+     * compute the same values twice.
+     */
+    private volatile long fingerprint;
+    private volatile long fingerprintLow;
+
+    private CommandProgram(String commands) {
+        this.commands = commands;
+        this.codes = new byte[commands.length()];
+        for (int i = 0; i < codes.length; i++) {
+            // One code per char, as Car#execute(char, Field) sees them; anything past Latin-1 is ignored
+            char c = commands.charAt(i);
+            codes[i] = c < ENCODING.length ? ENCODING[c] : NOOP;
+        }
+    }
+
+    /**
+     * @return the shared program for the given commands
+     */
+    public static CommandProgram of(String commands) {
+        int hash = commands.hashCode();
+        int slot = (hash ^ hash >>> INTERNED_BITS ^ hash >>> 2 * INTERNED_BITS) & (INTERNED.length() - 1);
+        CommandProgram interned = INTERNED.get(slot);
+        if (interned != null && interned.commands.equals(commands)) {
+            return interned;
+        }
+
+        CommandProgram program = new CommandProgram(commands);
+        INTERNED.set(slot, program);
+        return program;
+    }
+
+    /**
+     * Maps a command character to its code; unknown characters become {@link #NOOP},
+     * matching {@link Car#execute(char, Field)} which ignores them.
+     */
+    public static byte encode(char command) {
+        switch (command) {
+            case 'L':
+                return LEFT;
+            case 'R':
+                return RIGHT;
+            case 'F':
+                return FORWARD;
+            default:
+                return NOOP;
+        }
+    }
+
+    public int length() {
+        return codes.length;
+    }
+
+    public byte codeAt(int step) {
+        return codes[step];
+    }
+
+    /**
+     * Copies every code into {@code target}, starting at {@code offset}.
+     */
+    public void copyCodes(byte[] target, int offset) {
+        System.arraycopy(codes, 0, target, offset, codes.length);
+    }
+
+    /**
+     * 64-bit hash of the codes, computed once per program. Programs that only differ in
+     * ignored characters behave the same and get the same fingerprint.
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash == 0) {
+            hash = computeFingerprint();
+        }
+        return hash;
+    }
+
+    /**
+     * Second 64-bit hash of the codes, independent of {@link #fingerprint()}; together they
+     * make a 128-bit fingerprint.
+     */
+    public long fingerprintLow() {
+        if (fingerprint == 0) {
+            computeFingerprint();
+        }
+        return fingerprintLow;
+    }
+
+    /**
+     * Hashes the codes in two lanes with different multipliers and rotations.
+     *
+     * @return the high lane
+     */
+    private long computeFingerprint() {
+        long high = codes.length * 0x9E3779B97F4A7C15L;
+        long low = codes.length * 0xD6E8FEB86659FD93L;
+        // Codes take 2 bits, so 32 of them fill one word
+        for (int start = 0; start < codes.length; start += 32) {
+            long word = 0;
+            for (int i = start, end = Math.min(start + 32, codes.length); i < end; i++) {
+                word = word << 2 | codes[i];
+            }
+            high = Long.rotateLeft(high ^ word * 0xC2B2AE3D27D4EB4FL, 31) * 0x9E3779B97F4A7C15L;
+            low = Long.rotateLeft(low ^ word * 0xA0761D6478BD642FL, 27) * 0xE7037ED1A0B428DBL;
+        }
+        high = mix(high, 0xFF51AFD7ED558CCDL);
+        low = mix(low, 0xC4CEB9FE1A85EC53L);
+        high = high == 0 ? 1 : high;
+        fingerprintLow = low;
+        fingerprint = high;
+        return high;
+    }
+
+    private static long mix(long hash, long multiplier) {
+        hash ^= hash >>> 33;
+        hash *= multiplier;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * @return the command string the program was compiled from
+     */
+    public String getCommands() {
+        return commands;
+    }
+
+    @Override
+    public String toString() {
+        return commands;
+    }
+}
@@ -9,6 +9,10 @@ public enum Direction {
     public final int dx;
     public final int dy;
 
+    /** Precomputed turn tables, indexed by ordinal; {@code values()} clones its array on every call. */
+    private static final Direction[] LEFT_OF = {W, N, E, S};
+    private static final Direction[] RIGHT_OF = {E, S, W, N};
+
     Direction(int dx, int dy) {
         this.dx = dx;
         this.dy = dy;
@@ -21,11 +25,11 @@ public enum Direction {
      * Going left means going to the previous value in this circle:
      * N -> W -> S -> E -> N
      *
-     * "Previous" (ordinal - 1) is the same as (ordinal + 3) when we wrap every 4 steps,
-     * so we use (ordinal() + 3) % 4 to keep the math non-negative.
+     * "Previous" (ordinal - 1) is the same as (ordinal + 3) when we wrap every 4 steps;
+     * the result for each ordinal is looked up in a precomputed table.
      */
     public Direction left() {
-        return values()[(ordinal() + 3) % 4];
+        return LEFT_OF[ordinal()];
     }
 
     /**
@@ -35,9 +39,10 @@ public enum Direction {
      * Going right means going to the next value in this circle:
      * N -> E -> S -> W -> N
      *
-     * "Next" is just (ordinal + 1), and % 4 makes it wrap back to N after W.
+     * "Next" is just (ordinal + 1), wrapping back to N after W; the result for each
+     * ordinal is looked up in a precomputed table.
      */
     public Direction right() {
-        return values()[(ordinal() + 1) % 4];
+        return RIGHT_OF[ordinal()];
     }
 }
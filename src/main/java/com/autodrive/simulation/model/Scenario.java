@@ -0,0 +1,27 @@
+package com.autodrive.simulation.model;
+
+import java.util.List;
+
+/**
+ * One independent simulation input: a field and the cars driving on it.
+ * <p>
+ * The cars are owned by the scenario; running it moves and deactivates them.
+ */
+public class Scenario {
+
+    private final Field field;
+    private final List<Car> cars;
+
+    public Scenario(Field field, List<Car> cars) {
+        this.field = field;
+        this.cars = cars;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public List<Car> getCars() {
+        return cars;
+    }
+}
@@ -0,0 +1,240 @@
+package com.autodrive.simulation.model;
+
+import java.util.Arrays;
+
+/**
+ * Sparse per-cell {@code int} layer over a {@link Field}.
+ * <p>
+ * The field is split into square chunks of {@code 2^chunkBits} cells per side. A chunk is
+ * only allocated when one of its cells is set to a non-zero value and is evicted again as
+ * soon as all of its cells are back to zero, so memory follows the cells in use rather
+ * than the area of the field. Unset cells read as {@code 0}.
+ * <p>
+ * Evicted chunks are kept in a small pool and reused, so cars moving back and forth
+ * across a chunk border do not allocate on every crossing.
+ * <p>
+ * It backs the path and owner layers of the movement visualizer. The simulation engines
+ * do not need it: they only track which cell each car stands on, and their occupancy
+ * index already grows with the number of cars rather than with the field.
+ */
+public final class TiledGrid {
+
+    public static final int DEFAULT_CHUNK_BITS = 6;
+
+    private static final int POOL_LIMIT = 16;
+
+    private final Field field;
+    private final int chunkBits;
+    private final int chunkMask;
+
+    private long[] keys;
+    private Chunk[] chunks;
+    private int chunkCount;
+    private int mask;
+
+    private final Chunk[] pool = new Chunk[POOL_LIMIT];
+    private int pooled;
+
+    /** Last chunk looked up, since neighbouring cells are usually read together. */
+    private long lastKey;
+    private Chunk lastChunk;
+
+    public TiledGrid(Field field) {
+        this(field, DEFAULT_CHUNK_BITS);
+    }
+
+    public TiledGrid(Field field, int chunkBits) {
+        if (chunkBits < 1 || chunkBits > 12) {
+            throw new IllegalArgumentException("chunkBits must be between 1 and 12");
+        }
+        this.field = field;
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+        this.keys = new long[16];
+        this.chunks = new Chunk[16];
+        this.mask = 15;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * @return the value of the cell, {@code 0} if it was never set
+     */
+    public int get(int x, int y) {
+        checkInside(x, y);
+        Chunk chunk = lookup(chunkKey(x, y));
+        return chunk == null ? 0 : chunk.cells[offset(x, y)];
+    }
+
+    /**
+     * Sets the value of the cell; setting {@code 0} clears it.
+     */
+    public void set(int x, int y, int value) {
+        checkInside(x, y);
+        long key = chunkKey(x, y);
+        Chunk chunk = lookup(key);
+        if (chunk == null) {
+            if (value == 0) {
+                return;
+            }
+            chunk = allocate(key);
+        }
+
+        int offset = offset(x, y);
+        int previous = chunk.cells[offset];
+        chunk.cells[offset] = value;
+        if (previous == 0 && value != 0) {
+            chunk.used++;
+        } else if (previous != 0 && value == 0 && --chunk.used == 0) {
+            evict(key);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the cell, e.g. to count cars standing on it.
+     *
+     * @return the new value of the cell
+     */
+    public int add(int x, int y, int delta) {
+        int value = get(x, y) + delta;
+        set(x, y, value);
+        return value;
+    }
+
+    /**
+     * @return how many chunks currently hold at least one non-zero cell
+     */
+    public int allocatedChunks() {
+        return chunkCount;
+    }
+
+    /**
+     * Clears every cell and releases all chunks.
+     */
+    public void clear() {
+        for (int slot = 0; slot < chunks.length; slot++) {
+            if (chunks[slot] != null) {
+                recycle(chunks[slot]);
+                chunks[slot] = null;
+            }
+        }
+        chunkCount = 0;
+        lastChunk = null;
+    }
+
+    private void checkInside(int x, int y) {
+        if (!field.isInside(x, y)) {
+            throw new IllegalArgumentException("Cell (" + x + "," + y + ") is outside the field");
+        }
+    }
+
+    private long chunkKey(int x, int y) {
+        return ((long) (x >> chunkBits) << 32) | ((y >> chunkBits) & 0xFFFFFFFFL);
+    }
+
+    private int offset(int x, int y) {
+        return ((y & chunkMask) << chunkBits) | (x & chunkMask);
+    }
+
+    private Chunk lookup(long key) {
+        if (lastChunk != null && lastKey == key) {
+            return lastChunk;
+        }
+        Chunk chunk = chunks[find(key)];
+        if (chunk != null) {
+            lastKey = key;
+            lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    private Chunk allocate(long key) {
+        if ((chunkCount + 1) * 2 > chunks.length) {
+            grow();
+        }
+        Chunk chunk = pooled > 0 ? pool[--pooled] : new Chunk(1 << (2 * chunkBits));
+        int slot = find(key);
+        keys[slot] = key;
+        chunks[slot] = chunk;
+        chunkCount++;
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    private void evict(long key) {
+        int hole = find(key);
+        recycle(chunks[hole]);
+        chunkCount--;
+        lastChunk = null;
+
+        // Backward-shift deletion keeps probe sequences intact without tombstones
+        int next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            if (chunks[next] == null) {
+                break;
+            }
+            int home = home(keys[next]);
+            boolean homeBetween = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (!homeBetween) {
+                keys[hole] = keys[next];
+                chunks[hole] = chunks[next];
+                hole = next;
+            }
+        }
+        chunks[hole] = null;
+    }
+
+    private void recycle(Chunk chunk) {
+        if (pooled < POOL_LIMIT) {
+            // An evicted chunk is all zeros already; a cleared one may not be
+            if (chunk.used != 0) {
+                Arrays.fill(chunk.cells, 0);
+                chunk.used = 0;
+            }
+            pool[pooled++] = chunk;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Chunk[] oldChunks = chunks;
+        keys = new long[oldKeys.length * 2];
+        chunks = new Chunk[oldChunks.length * 2];
+        mask = chunks.length - 1;
+        for (int slot = 0; slot < oldChunks.length; slot++) {
+            if (oldChunks[slot] != null) {
+                int target = find(oldKeys[slot]);
+                keys[target] = oldKeys[slot];
+                chunks[target] = oldChunks[slot];
+            }
+        }
+    }
+
+    private int find(long key) {
+        int slot = home(key);
+        while (chunks[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static final class Chunk {
+        final int[] cells;
+        int used;
+
+        Chunk(int size) {
+            this.cells = new int[size];
+        }
+    }
+}
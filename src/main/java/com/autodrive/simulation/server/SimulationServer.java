@@ -0,0 +1,333 @@
+package com.autodrive.simulation.server;
+
+import com.autodrive.simulation.io.JsonLinesWriter;
+import com.autodrive.simulation.io.ScenarioFileParser;
+import com.autodrive.simulation.io.ScenarioFormatException;
+import com.autodrive.simulation.metrics.InstrumentedSimulationService;
+import com.autodrive.simulation.metrics.SimulationMetrics;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Long-lived HTTP front end of a {@link SimulationService}, so scenarios run on a warm JVM
+ * instead of paying start-up and JIT warm-up per scenario.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /run} with a scenario in the format of {@link ScenarioFileParser} as body;
+ *     {@code POST /run?all} reports every collision ({@link SimulationService#runAll}) instead
+ *     of the first one;</li>
+ *     <li>{@code GET /stats} returns the admission counters and the run metrics.</li>
+ * </ul>
+ * A run answers with its collisions and the final state of every car:
+ * <pre>
+ * {"latencyMicros":412,"queueMicros":3,"collisions":[{"step":7,"position":"5,4","cars":["A","B"]}],
+ *  "cars":[{"car":"A","x":5,"y":4,"direction":"S","active":false},...]}
+ * </pre>
+ * {@code latencyMicros} runs from admission to the response being ready, {@code queueMicros}
+ * is the part spent waiting for a worker; the latency is also sent as the
+ * {@code X-Latency-Micros} header.
+ * <p>
+ * Admission control: at most {@code workers} runs execute at once and at most
+ * {@code queueCapacity} more wait for a worker. The HTTP dispatcher thread only takes a
+ * permit; when none is left the request is answered {@code 503} right away, without reading
+ * its body, so an overloaded server sheds load instead of queueing without bound. Bodies
+ * are read by the worker and limited to {@code maxBodyBytes} ({@code 413} beyond).
+ */
+public class SimulationServer implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_BODY_BYTES = 1 << 20;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    private final InstrumentedSimulationService simulationService;
+    private final ScenarioFileParser parser = new ScenarioFileParser();
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final Semaphore permits;
+    private final int maxBodyBytes;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder badRequests = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Binds the server; it takes requests once {@link #start()} is called.
+     *
+     * @param address       address to listen on, port 0 for any free port
+     * @param workers       runs executed at the same time
+     * @param queueCapacity admitted requests that may wait for a worker
+     */
+    public SimulationServer(SimulationService simulationService, InetSocketAddress address, int workers,
+                            int queueCapacity) throws IOException {
+        this(simulationService, address, workers, queueCapacity, DEFAULT_MAX_BODY_BYTES);
+    }
+
+    public SimulationServer(SimulationService simulationService, InetSocketAddress address, int workers,
+                            int queueCapacity, int maxBodyBytes) throws IOException {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be positive");
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must not be negative");
+        }
+        this.simulationService = simulationService instanceof InstrumentedSimulationService
+                ? (InstrumentedSimulationService) simulationService
+                : new InstrumentedSimulationService(simulationService, new SimulationMetrics());
+        this.maxBodyBytes = maxBodyBytes;
+        this.permits = new Semaphore(workers + queueCapacity);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // The permits bound the queue, so it never holds more than queueCapacity tasks
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                task -> {
+                    Thread thread = new Thread(task, "simulation-server-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        this.server = HttpServer.create(address, 0);
+        server.createContext("/run", this::admit);
+        server.createContext("/stats", this::stats);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public SimulationMetrics getMetrics() {
+        return simulationService.getMetrics();
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return requests answered {@code 4xx} because of the request itself
+     */
+    public long getBadRequestCount() {
+        return badRequests.sum();
+    }
+
+    /**
+     * @return admitted requests not answered yet, running or waiting for a worker
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Answers new requests with {@code 503}, lets admitted ones finish for up to {@code 5} seconds
+     * and stops the server.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Runs on the dispatcher thread: only checks the method and takes a permit.
+     */
+    private void admit(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            badRequests.increment();
+            send(exchange, 405, error("Use POST"));
+            return;
+        }
+        if (!permits.tryAcquire()) {
+            rejected.increment();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, error("Server busy"));
+            return;
+        }
+
+        accepted.increment();
+        inFlight.incrementAndGet();
+        long admitted = System.nanoTime();
+        try {
+            workers.execute(() -> process(exchange, admitted));
+        } catch (RuntimeException e) {
+            // Only after close(): the executor refuses new tasks
+            release();
+            send(exchange, 503, error("Server stopping"));
+        }
+    }
+
+    private void process(HttpExchange exchange, long admitted) {
+        try {
+            long queueNanos = System.nanoTime() - admitted;
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                badRequests.increment();
+                send(exchange, 413, error("Body is longer than " + maxBodyBytes + " bytes"));
+                return;
+            }
+
+            Scenario scenario;
+            try {
+                scenario = parser.parse(body);
+            } catch (ScenarioFormatException e) {
+                badRequests.increment();
+                send(exchange, 400, error(e.getMessage()));
+                return;
+            }
+
+            List<Car> cars = scenario.getCars();
+            String query = exchange.getRequestURI().getQuery();
+            List<CollisionResult> collisions;
+            if (query != null && (query.equals("all") || query.startsWith("all="))) {
+                collisions = simulationService.runAll(scenario.getField(), cars).stream().collect(Collectors.toList());
+            } else {
+                CollisionResult result = simulationService.run(scenario.getField(), cars);
+                collisions = result == null ? List.of() : List.of(result);
+            }
+
+            StringBuilder json = new StringBuilder(64 + cars.size() * 64);
+            appendCollisions(json, collisions);
+            appendCars(json, cars).append('}');
+
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - admitted);
+            String head = "{\"latencyMicros\":" + latencyMicros
+                    + ",\"queueMicros\":" + TimeUnit.NANOSECONDS.toMicros(queueNanos) + ',';
+            exchange.getResponseHeaders().set("X-Latency-Micros", Long.toString(latencyMicros));
+            send(exchange, 200, json.insert(0, head).toString());
+        } catch (IOException | RuntimeException e) {
+            try {
+                send(exchange, 500, error(String.valueOf(e.getMessage())));
+            } catch (IOException ignored) {
+                // The client is gone
+            }
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        inFlight.decrementAndGet();
+        permits.release();
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        SimulationMetrics metrics = getMetrics();
+        String json = "{\"accepted\":" + getAcceptedCount()
+                + ",\"rejected\":" + getRejectedCount()
+                + ",\"badRequests\":" + getBadRequestCount()
+                + ",\"inFlight\":" + getInFlightCount()
+                + ",\"runs\":" + metrics.getRunCount()
+                + ",\"failedRuns\":" + metrics.getFailedRunCount()
+                + ",\"meanLatencyMillis\":" + metrics.getMeanLatencyMillis()
+                + ",\"latencyP50Millis\":" + metrics.getLatencyP50Millis()
+                + ",\"latencyP99Millis\":" + metrics.getLatencyP99Millis()
+                + ",\"maxLatencyMillis\":" + metrics.getMaxLatencyMillis() + '}';
+        send(exchange, 200, json);
+    }
+
+    /**
+     * @return the body, or {@code null} when it is longer than {@link #maxBodyBytes}
+     */
+    private byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) >= 0) {
+            if (body.size() + read > maxBodyBytes) {
+                return null;
+            }
+            body.write(chunk, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static void appendCollisions(StringBuilder json, List<CollisionResult> collisions) {
+        json.append("\"collisions\":[");
+        for (int i = 0; i < collisions.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendCollision(json, collisions.get(i));
+        }
+        json.append("],");
+    }
+
+    private static void appendCollision(StringBuilder json, CollisionResult collision) {
+        json.append("{\"step\":").append(collision.getStep()).append(",\"position\":");
+        JsonLinesWriter.appendString(json, collision.getPosition()).append(",\"cars\":[");
+        List<String> names = collision.getCollidedCarNames();
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            JsonLinesWriter.appendString(json, names.get(i));
+        }
+        json.append("]}");
+    }
+
+    private static StringBuilder appendCars(StringBuilder json, List<Car> cars) {
+        json.append("\"cars\":[");
+        for (int i = 0; i < cars.size(); i++) {
+            Car car = cars.get(i);
+            json.append(i == 0 ? "{\"car\":" : ",{\"car\":");
+            JsonLinesWriter.appendString(json, car.getName())
+                    .append(",\"x\":").append(car.getX())
+                    .append(",\"y\":").append(car.getY())
+                    .append(",\"direction\":\"").append(car.getDirection())
+                    .append("\",\"active\":").append(car.isActive()).append('}');
+        }
+        return json.append(']');
+    }
+
+    private static String error(String message) {
+        return JsonLinesWriter.appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
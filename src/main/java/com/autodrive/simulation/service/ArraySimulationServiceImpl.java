@@ -0,0 +1,76 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+
+import java.util.*;
+
+/**
+ * {@link SimulationService} that steps the cars as a struct-of-arrays ({@link FleetState})
+ * instead of walking the {@link Car} objects.
+ * <p>
+ * Car objects are only read when the run starts and written back when it ends, so the
+ * result (and the final state of the cars) is the same as {@link SimulationServiceImpl}.
+ */
+public class ArraySimulationServiceImpl implements SimulationService {
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, false);
+    }
+
+    private CollisionLog simulate(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+        FleetState state = FleetState.of(cars);
+        OccupancyIndex occupancy = new OccupancyIndex(state.size);
+        CollisionLog log = new CollisionLog(cars);
+        int[] moved = new int[state.size];
+        int[] collided = new int[state.size];
+        int movedCount = state.addStartCells(occupancy, moved);
+
+        for (int step = 0; step < state.maxSteps; step++) {
+
+            for (int car = 0; car < state.size; car++) {
+                if (state.execute(car, step, field)) {
+                    occupancy.move(car, state.cellKey(car));
+                    if (step > 0) {
+                        moved[movedCount++] = car;
+                    }
+                }
+            }
+
+            int collidedCount;
+            if (stopAtFirstCollision) {
+                collided[0] = occupancy.earliestCollision(moved, movedCount);
+                collidedCount = collided[0] < 0 ? 0 : 1;
+            } else {
+                collidedCount = occupancy.collisions(moved, 0, movedCount, collided);
+            }
+            movedCount = 0;
+
+            for (int c = 0; c < collidedCount; c++) {
+                state.collide(occupancy, collided[c], step + 1, log);
+            }
+
+            if (stopAtFirstCollision && collidedCount > 0) {
+                break;
+            }
+        }
+
+        state.writeBack(cars);
+        return log;
+    }
+}
@@ -0,0 +1,87 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Immutable counters of a {@link CachingSimulationService}, taken at one point in time.
+ */
+public final class CacheStats {
+
+    private final long hitCount;
+    private final long diskHitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long diskErrorCount;
+    private final int entryCount;
+    private final long weight;
+
+    CacheStats(long hitCount, long diskHitCount, long missCount, long evictionCount, long diskErrorCount,
+               int entryCount, long weight) {
+        this.hitCount = hitCount;
+        this.diskHitCount = diskHitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.diskErrorCount = diskErrorCount;
+        this.entryCount = entryCount;
+        this.weight = weight;
+    }
+
+    /**
+     * @return runs answered from memory
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return runs answered from the disk tier
+     */
+    public long getDiskHitCount() {
+        return diskHitCount;
+    }
+
+    /**
+     * @return runs that had to be simulated
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return cache files that could not be written or read back; the runs were simulated instead
+     */
+    public long getDiskErrorCount() {
+        return diskErrorCount;
+    }
+
+    /**
+     * @return results held in memory
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @return estimated bytes of the results held in memory
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the share of runs answered from memory or disk; {@code 0} before the first run
+     */
+    public double getHitRate() {
+        long requests = hitCount + diskHitCount + missCount;
+        return requests == 0 ? 0 : (double) (hitCount + diskHitCount) / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hitCount + ", diskHits=" + diskHitCount + ", misses=" + missCount
+                + ", evictions=" + evictionCount + ", diskErrors=" + diskErrorCount
+                + ", entries=" + entryCount + ", weight=" + weight + "}";
+    }
+}
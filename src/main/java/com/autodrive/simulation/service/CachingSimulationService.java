@@ -0,0 +1,337 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link SimulationService} decorator that remembers the outcome of every scenario it ran.
+ * <p>
+ * Scenarios are identified by their {@link ScenarioFingerprint}. A cached outcome holds the
+ * result and the final state of every car, so a hit leaves the cars exactly as a real run
+ * would. Outcomes are kept in memory in least-recently-used order, bounded by their
+ * estimated size in bytes. With a directory, every outcome is also written to a file named
+ * after its fingerprint, so results survive restarts: a memory miss looks there before
+ * simulating. Unlike the memory tier, the directory is not bounded: the service never deletes
+ * a file, so it grows with every distinct scenario until its files are removed from outside.
+ * <p>
+ * The decorator is thread-safe if the delegate is. Two threads missing the same scenario at
+ * the same time both simulate it.
+ */
+public class CachingSimulationService implements SimulationService {
+
+    private static final int FILE_MAGIC = 0x41534331;
+    /** Fixed cost of an entry besides its arrays. */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final SimulationService delegate;
+    private final long maxWeight;
+    private final Path directory;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder diskErrors = new LongAdder();
+
+    /**
+     * Caches in memory only.
+     *
+     * @param maxWeight bound of the estimated bytes held in memory
+     */
+    public CachingSimulationService(SimulationService delegate, long maxWeight) {
+        this(delegate, maxWeight, null);
+    }
+
+    /**
+     * @param maxWeight bound of the estimated bytes held in memory
+     * @param directory holds one file per cached outcome; {@code null} to cache in memory only
+     */
+    public CachingSimulationService(SimulationService delegate, long maxWeight, Path directory) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("maxWeight must not be negative");
+        }
+        this.delegate = delegate;
+        this.maxWeight = maxWeight;
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot use cache directory " + directory, e);
+            }
+        }
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return delegate.run(field, cars);
+        }
+
+        Key key = new Key(ScenarioFingerprint.of(field, cars), false);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            entry.finalState.applyTo(cars);
+            return entry.result;
+        }
+
+        CollisionResult result = delegate.run(field, cars);
+        store(key, new Entry(result, StateSnapshot.of(stepCount(cars), cars), null));
+        return result;
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return delegate.runAll(field, cars);
+        }
+
+        Key key = new Key(ScenarioFingerprint.of(field, cars), true);
+        Entry entry = lookup(key);
+        if (entry != null) {
+            entry.finalState.applyTo(cars);
+            return entry.log.copyFor(cars);
+        }
+
+        CollisionLog log = delegate.runAll(field, cars);
+        store(key, new Entry(null, StateSnapshot.of(stepCount(cars), cars), log.copyFor(List.of())));
+        return log;
+    }
+
+    public CacheStats stats() {
+        synchronized (entries) {
+            return new CacheStats(hits.sum(), diskHits.sum(), misses.sum(), evictions.sum(), diskErrors.sum(),
+                    entries.size(), weight);
+        }
+    }
+
+    /**
+     * Drops every outcome held in memory; files of the disk tier are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+
+    private static int stepCount(List<Car> cars) {
+        int steps = 0;
+        for (Car car : cars) {
+            steps = Math.max(steps, car.getCommandCount());
+        }
+        return steps;
+    }
+
+    private Entry lookup(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits.increment();
+                return entry;
+            }
+        }
+
+        Entry entry = directory == null ? null : read(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        diskHits.increment();
+        remember(key, entry);
+        return entry;
+    }
+
+    private void store(Key key, Entry entry) {
+        remember(key, entry);
+        if (directory != null) {
+            write(key, entry);
+        }
+    }
+
+    private void remember(Key key, Entry entry) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        synchronized (entries) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+            weight += entry.weight;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (weight > maxWeight) {
+                weight -= eldest.next().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private Path fileOf(Key key) {
+        return directory.resolve(key.fingerprint.toHex() + (key.all ? ".all" : ".run"));
+    }
+
+    /**
+     * Writes to a temporary file first, so a concurrent reader never sees half an entry.
+     */
+    private void write(Key key, Entry entry) {
+        byte[] position = entry.result == null ? null : entry.result.getPosition().getBytes(StandardCharsets.UTF_8);
+        List<byte[]> names = new ArrayList<>();
+        int size = Integer.BYTES + 2 * Long.BYTES + StateSnapshot.byteSize(entry.finalState.getCarCount()) + 1;
+        if (entry.result != null) {
+            size += 3 * Integer.BYTES + position.length;
+            for (String name : entry.result.getCollidedCarNames()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                names.add(bytes);
+                size += Integer.BYTES + bytes.length;
+            }
+        }
+        if (entry.log != null) {
+            size += entry.log.byteSize();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(FILE_MAGIC);
+        buffer.putLong(key.fingerprint.getHigh());
+        buffer.putLong(key.fingerprint.getLow());
+        entry.finalState.writeTo(buffer);
+        buffer.put((byte) (entry.result == null ? 0 : 1));
+        if (entry.result != null) {
+            buffer.putInt(entry.result.getStep());
+            buffer.putInt(position.length).put(position);
+            buffer.putInt(names.size());
+            for (byte[] name : names) {
+                buffer.putInt(name.length).put(name);
+            }
+        }
+        if (entry.log != null) {
+            entry.log.writeTo(buffer);
+        }
+
+        Path file = fileOf(key);
+        try {
+            Path temporary = Files.createTempFile(directory, key.fingerprint.toHex(), ".tmp");
+            try {
+                Files.write(temporary, buffer.array());
+                try {
+                    Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            diskErrors.increment();
+        }
+    }
+
+    /**
+     * @return the entry stored in the file of the key, or {@code null} when there is none or it is unreadable
+     */
+    private Entry read(Key key) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(fileOf(key)));
+            if (buffer.getInt() != FILE_MAGIC || buffer.getLong() != key.fingerprint.getHigh()
+                    || buffer.getLong() != key.fingerprint.getLow()) {
+                diskErrors.increment();
+                return null;
+            }
+            StateSnapshot finalState = StateSnapshot.readFrom(buffer);
+            CollisionResult result = null;
+            if (buffer.get() != 0) {
+                int step = buffer.getInt();
+                String position = readString(buffer);
+                int count = buffer.getInt();
+                List<String> names = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    names.add(readString(buffer));
+                }
+                result = new CollisionResult(step, position, names);
+            }
+            CollisionLog log = key.all ? CollisionLog.readFrom(buffer, List.of()) : null;
+            return new Entry(result, finalState, log);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            diskErrors.increment();
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Key {
+        final ScenarioFingerprint fingerprint;
+        /** Outcome of {@link #runAll} rather than {@link #run}. */
+        final boolean all;
+
+        Key(ScenarioFingerprint fingerprint, boolean all) {
+            this.fingerprint = fingerprint;
+            this.all = all;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return all == other.all && fingerprint.equals(other.fingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return fingerprint.hashCode() * 31 + (all ? 1 : 0);
+        }
+    }
+
+    private static final class Entry {
+        final CollisionResult result;
+        final StateSnapshot finalState;
+        /** Collisions of a full run, bound to no car list; {@code null} for {@link #run}. */
+        final CollisionLog log;
+        final long weight;
+
+        Entry(CollisionResult result, StateSnapshot finalState, CollisionLog log) {
+            this.result = result;
+            this.finalState = finalState;
+            this.log = log;
+            long size = ENTRY_OVERHEAD + StateSnapshot.byteSize(finalState.getCarCount());
+            if (result != null) {
+                for (String name : result.getCollidedCarNames()) {
+                    size += 2L * name.length() + 48;
+                }
+            }
+            if (log != null) {
+                size += log.byteSize();
+            }
+            this.weight = size;
+        }
+    }
+}
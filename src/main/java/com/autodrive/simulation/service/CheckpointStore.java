@@ -0,0 +1,28 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Keeps the {@link StateSnapshot}s taken by a {@link CheckpointedSimulation}.
+ * <p>
+ * Snapshots are added in increasing step order and looked up by the step to seek to.
+ */
+public interface CheckpointStore extends AutoCloseable {
+
+    void add(StateSnapshot snapshot);
+
+    /**
+     * @return the latest snapshot taken at or before the given step; {@code null} when there is none
+     */
+    StateSnapshot floor(int step);
+
+    /**
+     * @return the number of snapshots stored
+     */
+    int size();
+
+    /**
+     * Releases what the store holds on to; the store is not used afterwards.
+     */
+    @Override
+    default void close() {
+    }
+}
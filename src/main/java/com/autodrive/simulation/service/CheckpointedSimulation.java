@@ -0,0 +1,130 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+
+import java.util.List;
+
+/**
+ * A full run (see {@link SimulationService#runAll(Field, List)}) that keeps a
+ * {@link StateSnapshot} every {@code interval} steps, so the state before any step can be
+ * rebuilt without simulating from the start.
+ * <p>
+ * {@link #stateAt(int)} restores the latest snapshot at or before the requested step and
+ * replays at most {@code interval - 1} steps with {@link SimulationServiceImpl}. The
+ * interval trades memory for seek time: a run of {@code S} steps keeps about
+ * {@code S / interval} snapshots of 9 bytes per car, in memory or spilled to disk depending
+ * on the {@link CheckpointStore}.
+ */
+public final class CheckpointedSimulation {
+
+    private final Field field;
+    private final List<Car> cars;
+    private final int interval;
+    private final int stepCount;
+    private final CheckpointStore store;
+    private final CollisionLog log;
+
+    private CheckpointedSimulation(Field field, List<Car> cars, int interval, CheckpointStore store) {
+        this.field = field;
+        this.cars = cars;
+        this.interval = interval;
+        this.store = store;
+        this.stepCount = cars.stream()
+                .mapToInt(Car::getCommandCount)
+                .max()
+                .orElse(0);
+
+        this.log = new SimulationServiceImpl().runAll(field, cars, new Checkpointer(cars));
+    }
+
+    /**
+     * Runs the cars to the end like {@link SimulationService#runAll(Field, List)}, leaving
+     * them in their final state, and stores a snapshot before step {@code 0} and every
+     * {@code interval} steps after it.
+     *
+     * @param store receives the snapshots; the returned simulation looks them up there
+     */
+    public static CheckpointedSimulation run(Field field, List<Car> cars, int interval, CheckpointStore store) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        return new CheckpointedSimulation(field, cars, interval, store);
+    }
+
+    /**
+     * @return the state of the cars before step {@code step}; past the last step, the final state
+     */
+    public StateSnapshot stateAt(int step) {
+        if (step < 0) {
+            throw new IllegalArgumentException("step must not be negative");
+        }
+
+        int target = Math.min(step, stepCount);
+        StateSnapshot checkpoint = store.floor(target);
+        if (checkpoint.getStep() == step) {
+            return checkpoint;
+        }
+
+        List<Car> replayed = checkpoint.restore(cars);
+        new SimulationServiceImpl().simulate(field, replayed, checkpoint.getStep(), target, false, null);
+        return StateSnapshot.of(step, replayed);
+    }
+
+    /**
+     * @return every collision of the run
+     */
+    public CollisionLog getCollisions() {
+        return log;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * @return the number of steps of the run: the longest program
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Follows the state of every car through the recorded run and stores it at each checkpoint.
+     */
+    private final class Checkpointer implements TrajectoryRecorder {
+
+        private final long[] cells;
+        private final byte[] flags;
+
+        Checkpointer(List<Car> cars) {
+            this.cells = new long[cars.size()];
+            this.flags = new byte[cars.size()];
+            for (int i = 0; i < cells.length; i++) {
+                Car car = cars.get(i);
+                cells[i] = OccupancyIndex.cellKey(car.getX(), car.getY());
+                flags[i] = StateSnapshot.flags(car.getDirection().ordinal(), car.isActive());
+            }
+            store.add(StateSnapshot.of(0, cells, flags));
+        }
+
+        @Override
+        public void record(int car, int x, int y, Direction direction) {
+            cells[car] = OccupancyIndex.cellKey(x, y);
+            flags[car] = StateSnapshot.flags(direction.ordinal(), true);
+        }
+
+        @Override
+        public void deactivated(int car) {
+            flags[car] = StateSnapshot.flags(flags[car] & 3, false);
+        }
+
+        @Override
+        public void endStep(int step) {
+            if ((step + 1) % interval == 0) {
+                store.add(StateSnapshot.of(step + 1, cells, flags));
+            }
+        }
+    }
+}
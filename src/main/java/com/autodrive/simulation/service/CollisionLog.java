@@ -0,0 +1,207 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Every collision of a run that carried on after collisions, in the order they happened.
+ * <p>
+ * Collisions are kept in growable primitive arrays: the step, the packed cell (see
+ * {@link #getCell(int)}) and the indices of the collided cars in the input list. Names
+ * and position strings are only built when asked for, so a log holding millions of
+ * collisions costs a few ints per collision and no per-collision objects.
+ * <p>
+ * Within a step, collisions are ordered by their earliest car, and the cars of one
+ * collision are in list order.
+ */
+public final class CollisionLog {
+
+    private final List<Car> cars;
+
+    private int size;
+    private int[] steps = new int[8];
+    private long[] cells = new long[8];
+    /** Collision {@code i} owns {@code collidedCars[carStart[i] .. carStart[i + 1])}. */
+    private int[] carStart = new int[9];
+    private int[] collidedCars = new int[16];
+    private int carCount;
+
+    CollisionLog(List<Car> cars) {
+        this.cars = cars;
+    }
+
+    /**
+     * Starts recording a new collision; its cars are then added with {@link #addCar(int)}.
+     */
+    void begin(int step, long cell) {
+        if (size == steps.length) {
+            steps = Arrays.copyOf(steps, size * 2);
+            cells = Arrays.copyOf(cells, size * 2);
+            carStart = Arrays.copyOf(carStart, size * 2 + 1);
+        }
+        steps[size] = step;
+        cells[size] = cell;
+        size++;
+        carStart[size] = carCount;
+    }
+
+    void addCar(int car) {
+        if (carCount == collidedCars.length) {
+            collidedCars = Arrays.copyOf(collidedCars, carCount * 2);
+        }
+        collidedCars[carCount++] = car;
+        carStart[size] = carCount;
+    }
+
+    /**
+     * @return a trimmed copy of this log that takes car names from the given list
+     */
+    CollisionLog copyFor(List<Car> cars) {
+        CollisionLog copy = new CollisionLog(cars);
+        copy.size = size;
+        copy.steps = Arrays.copyOf(steps, size);
+        copy.cells = Arrays.copyOf(cells, size);
+        copy.carStart = Arrays.copyOf(carStart, size + 1);
+        copy.collidedCars = Arrays.copyOf(collidedCars, carCount);
+        copy.carCount = carCount;
+        return copy;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} uses
+     */
+    int byteSize() {
+        return 2 * Integer.BYTES + size * (Integer.BYTES + Long.BYTES + Integer.BYTES) + carCount * Integer.BYTES;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(size);
+        buffer.putInt(carCount);
+        for (int i = 0; i < size; i++) {
+            buffer.putInt(steps[i]);
+            buffer.putLong(cells[i]);
+            buffer.putInt(carStart[i + 1]);
+        }
+        for (int k = 0; k < carCount; k++) {
+            buffer.putInt(collidedCars[k]);
+        }
+    }
+
+    static CollisionLog readFrom(ByteBuffer buffer, List<Car> cars) {
+        CollisionLog log = new CollisionLog(cars);
+        log.size = buffer.getInt();
+        log.carCount = buffer.getInt();
+        log.steps = new int[log.size];
+        log.cells = new long[log.size];
+        log.carStart = new int[log.size + 1];
+        log.collidedCars = new int[log.carCount];
+        for (int i = 0; i < log.size; i++) {
+            log.steps[i] = buffer.getInt();
+            log.cells[i] = buffer.getLong();
+            log.carStart[i + 1] = buffer.getInt();
+        }
+        for (int k = 0; k < log.carCount; k++) {
+            log.collidedCars[k] = buffer.getInt();
+        }
+        return log;
+    }
+
+    /**
+     * Drops the collisions reported after the given step.
+     */
+    void truncateAfter(int step) {
+        while (size > 0 && steps[size - 1] > step) {
+            size--;
+        }
+        carCount = carStart[size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of cars that were deactivated by a collision
+     */
+    public int getCollidedCarCount() {
+        return carCount;
+    }
+
+    public int getStep(int collision) {
+        return steps[check(collision)];
+    }
+
+    /**
+     * @return the cell packed as {@code (long) x << 32 | (y & 0xFFFFFFFFL)}
+     */
+    public long getCell(int collision) {
+        return cells[check(collision)];
+    }
+
+    public int getX(int collision) {
+        return OccupancyIndex.cellX(getCell(collision));
+    }
+
+    public int getY(int collision) {
+        return OccupancyIndex.cellY(getCell(collision));
+    }
+
+    /**
+     * @return the position formatted like {@link CollisionResult#getPosition()}
+     */
+    public String getPosition(int collision) {
+        return OccupancyIndex.position(getCell(collision));
+    }
+
+    public int getCarCount(int collision) {
+        check(collision);
+        return carStart[collision + 1] - carStart[collision];
+    }
+
+    /**
+     * @return the index, in the input list, of the {@code k}-th car of the collision
+     */
+    public int getCar(int collision, int k) {
+        if (k < 0 || k >= getCarCount(collision)) {
+            throw new IndexOutOfBoundsException("Car " + k + " of collision " + collision);
+        }
+        return collidedCars[carStart[collision] + k];
+    }
+
+    public List<String> getCarNames(int collision) {
+        int count = getCarCount(collision);
+        List<String> names = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            names.add(cars.get(collidedCars[carStart[collision] + k]).getName());
+        }
+        return names;
+    }
+
+    public CollisionResult toResult(int collision) {
+        return new CollisionResult(getStep(collision), getPosition(collision), getCarNames(collision));
+    }
+
+    /**
+     * @return the collisions as {@link CollisionResult}s, each built only when the stream reaches it
+     */
+    public Stream<CollisionResult> stream() {
+        return IntStream.range(0, size).mapToObj(this::toResult);
+    }
+
+    private int check(int collision) {
+        if (collision < 0 || collision >= size) {
+            throw new IndexOutOfBoundsException("Collision " + collision + " of " + size);
+        }
+        return collision;
+    }
+}
@@ -0,0 +1,440 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SimulationService} that splits the field into a grid of rectangular regions and
+ * simulates each region in its own {@link RegionWorker} JVM, talking to the workers over
+ * loopback sockets.
+ * <p>
+ * A worker owns exactly the cars standing in its region. Every step runs in two exchanges:
+ * <ol>
+ *     <li>{@code STEP}: the coordinator sends the cells that collided in the previous step,
+ *     the worker deactivates their cars, executes the step and sends back the cars that
+ *     crossed into another region (position, heading and the index of its program);</li>
+ *     <li>{@code IMMIGRANTS}: the coordinator hands those cars to the regions they entered;
+ *     the worker takes them in and reports every cell of its region where a car that moved
+ *     or arrived now shares the cell with another one.</li>
+ * </ol>
+ * {@code INIT} sends every worker the table of distinct programs of the run along with the
+ * cars of its region, so a car crossing a border never carries its commands again.
+ * <p>
+ * Since a cell belongs to a single region and a car always lives in the region of its cell,
+ * each worker sees the complete occupancy of its cells once the handover is done, so no
+ * border rows are replicated between workers. The coordinator orders the reported cells
+ * by their first car, keeps only the earliest one when stopping at the first collision, and
+ * records the collisions as {@link SimulationServiceImpl} does. At the end, {@code FINISH}
+ * returns the state of every car, which is written back to the given list.
+ * <p>
+ * Workers are started once and reused by every run; {@link #close()} stops them. Runs are
+ * serialized.
+ */
+public class DistributedSimulationServiceImpl implements SimulationService, AutoCloseable {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 60_000;
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final int columns;
+    private final int rows;
+    private final ServerSocket server;
+    private final Process[] processes;
+    private final Thread[] threads;
+    private final Socket[] sockets;
+    private final DataInputStream[] in;
+    private final DataOutputStream[] out;
+    private boolean closed;
+
+    /**
+     * Starts one worker JVM per region, with the class path and Java runtime of this JVM.
+     */
+    public DistributedSimulationServiceImpl(int columns, int rows) {
+        this(columns, rows, true);
+    }
+
+    /**
+     * Runs the workers as threads of this JVM instead of processes; same protocol, for tests.
+     */
+    static DistributedSimulationServiceImpl inThreads(int columns, int rows) {
+        return new DistributedSimulationServiceImpl(columns, rows, false);
+    }
+
+    private DistributedSimulationServiceImpl(int columns, int rows, boolean spawnProcesses) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Grid must be at least 1x1: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        int workers = columns * rows;
+        processes = new Process[spawnProcesses ? workers : 0];
+        threads = new Thread[spawnProcesses ? 0 : workers];
+        sockets = new Socket[workers];
+        in = new DataInputStream[workers];
+        out = new DataOutputStream[workers];
+
+        try {
+            server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+            server.setSoTimeout(CONNECT_TIMEOUT_MILLIS);
+            for (int region = 0; region < workers; region++) {
+                if (spawnProcesses) {
+                    processes[region] = spawn(server.getLocalPort(), region);
+                } else {
+                    threads[region] = startThread(server.getLocalPort(), region);
+                }
+            }
+            for (int i = 0; i < workers; i++) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                int region = input.readInt();
+                sockets[region] = socket;
+                in[region] = input;
+                out[region] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException("Could not start region workers", e);
+        }
+    }
+
+    private static Process spawn(int port, int region) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                RegionWorker.class.getName(), String.valueOf(port), String.valueOf(region))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static Thread startThread(int port, int region) {
+        Thread thread = new Thread(() -> {
+            try {
+                RegionWorker.main(new String[]{String.valueOf(port), String.valueOf(region)});
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "region-worker-" + region);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public int getRegionCount() {
+        return sockets.length;
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, false);
+    }
+
+    private synchronized CollisionLog simulate(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+        if (closed) {
+            throw new IllegalStateException("Service is closed");
+        }
+        try {
+            return new DistributedRun(field, cars, stopAtFirstCollision).simulate();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Region worker failed", e);
+        }
+    }
+
+    /**
+     * Stops the workers and waits for them to exit.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (int region = 0; region < sockets.length; region++) {
+            if (sockets[region] == null) {
+                continue;
+            }
+            try {
+                out[region].write(RegionWorker.SHUTDOWN);
+                out[region].flush();
+                sockets[region].close();
+            } catch (IOException ignored) {
+                // The worker is gone already
+            }
+        }
+        try {
+            if (server != null) {
+                server.close();
+            }
+            for (Process process : processes) {
+                if (process != null && !process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+            for (Thread thread : threads) {
+                if (thread != null) {
+                    thread.join(TimeUnit.SECONDS.toMillis(5));
+                }
+            }
+        } catch (IOException ignored) {
+            // Nothing left to release
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One run over the workers: the collisions of a step are held until the next message
+     * tells the workers which cells to deactivate.
+     */
+    private final class DistributedRun {
+
+        private final Field field;
+        private final List<Car> cars;
+        private final boolean stopAtFirstCollision;
+        private final RegionGrid grid;
+        private final CollisionLog log;
+        /** Cells to deactivate, by region. */
+        private final List<List<Long>> pending = new ArrayList<>();
+        /** Cars crossing into each region during the current step. */
+        private final List<List<Migrant>> arrivals = new ArrayList<>();
+
+        DistributedRun(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+            this.field = field;
+            this.cars = cars;
+            this.stopAtFirstCollision = stopAtFirstCollision;
+            this.grid = new RegionGrid(field.getWidth(), field.getHeight(), columns, rows);
+            this.log = new CollisionLog(cars);
+            for (int region = 0; region < sockets.length; region++) {
+                pending.add(new ArrayList<>());
+                arrivals.add(new ArrayList<>());
+            }
+        }
+
+        CollisionLog simulate() throws IOException {
+            int maxSteps = 0;
+            for (Car car : cars) {
+                maxSteps = Math.max(maxSteps, car.getCommandCount());
+            }
+            sendCars();
+
+            List<Collision> collisions = new ArrayList<>();
+            for (int step = 0; step < maxSteps; step++) {
+                for (int region = 0; region < sockets.length; region++) {
+                    out[region].write(RegionWorker.STEP);
+                    sendPending(region);
+                    out[region].writeInt(step);
+                    out[region].flush();
+                }
+                for (int region = 0; region < sockets.length; region++) {
+                    receiveEmigrants(region);
+                }
+                for (int region = 0; region < sockets.length; region++) {
+                    sendArrivals(region);
+                }
+                collisions.clear();
+                for (int region = 0; region < sockets.length; region++) {
+                    receiveCollisions(region, collisions);
+                }
+                if (collisions.isEmpty()) {
+                    continue;
+                }
+
+                collisions.sort((a, b) -> Integer.compare(a.cars[0], b.cars[0]));
+                int kept = stopAtFirstCollision ? 1 : collisions.size();
+                for (int c = 0; c < kept; c++) {
+                    Collision collision = collisions.get(c);
+                    log.begin(step + 1, collision.cell);
+                    for (int car : collision.cars) {
+                        log.addCar(car);
+                    }
+                    pending.get(grid.regionOf(OccupancyIndex.cellX(collision.cell),
+                            OccupancyIndex.cellY(collision.cell))).add(collision.cell);
+                }
+                if (stopAtFirstCollision) {
+                    break;
+                }
+            }
+
+            for (int region = 0; region < sockets.length; region++) {
+                out[region].write(RegionWorker.FINISH);
+                sendPending(region);
+                out[region].flush();
+            }
+            for (int region = 0; region < sockets.length; region++) {
+                receiveStates(region);
+            }
+            return log;
+        }
+
+        /**
+         * Sends each worker the program table of the run and the cars of its region.
+         */
+        private void sendCars() throws IOException {
+            List<List<Integer>> members = new ArrayList<>();
+            for (int region = 0; region < sockets.length; region++) {
+                members.add(new ArrayList<>());
+            }
+            Map<CommandProgram, Integer> programIds = new IdentityHashMap<>();
+            List<byte[]> programs = new ArrayList<>();
+            int[] programOf = new int[cars.size()];
+            for (int i = 0; i < cars.size(); i++) {
+                Car car = cars.get(i);
+                members.get(grid.regionOf(car.getX(), car.getY())).add(i);
+                Integer id = programIds.get(car.getProgram());
+                if (id == null) {
+                    id = programs.size();
+                    programIds.put(car.getProgram(), id);
+                    programs.add(codes(car.getProgram()));
+                }
+                programOf[i] = id;
+            }
+
+            for (int region = 0; region < sockets.length; region++) {
+                DataOutputStream output = out[region];
+                output.write(RegionWorker.INIT);
+                output.writeInt(field.getWidth());
+                output.writeInt(field.getHeight());
+                output.writeInt(columns);
+                output.writeInt(rows);
+                output.writeInt(programs.size());
+                for (byte[] program : programs) {
+                    RegionWorker.writeProgram(output, program);
+                }
+                output.writeInt(members.get(region).size());
+                for (int index : members.get(region)) {
+                    Car car = cars.get(index);
+                    output.writeInt(index);
+                    output.writeInt(car.getX());
+                    output.writeInt(car.getY());
+                    output.writeByte(car.getDirection().ordinal());
+                    output.writeBoolean(car.isActive());
+                    output.writeInt(programOf[index]);
+                }
+            }
+        }
+
+        private void sendPending(int region) throws IOException {
+            List<Long> cells = pending.get(region);
+            out[region].writeInt(cells.size());
+            for (long cell : cells) {
+                out[region].writeLong(cell);
+            }
+            cells.clear();
+        }
+
+        private void receiveEmigrants(int region) throws IOException {
+            DataInputStream input = in[region];
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                Migrant migrant = new Migrant(input.readInt(), input.readInt(), input.readInt(), input.readByte(),
+                        input.readInt());
+                arrivals.get(grid.regionOf(migrant.x, migrant.y)).add(migrant);
+            }
+        }
+
+        private void sendArrivals(int region) throws IOException {
+            List<Migrant> migrants = arrivals.get(region);
+            DataOutputStream output = out[region];
+            output.write(RegionWorker.IMMIGRANTS);
+            output.writeInt(migrants.size());
+            for (Migrant migrant : migrants) {
+                RegionWorker.writeCar(output, migrant.car, migrant.x, migrant.y, migrant.dir, migrant.program);
+            }
+            output.flush();
+            migrants.clear();
+        }
+
+        private void receiveCollisions(int region, List<Collision> collisions) throws IOException {
+            DataInputStream input = in[region];
+            int count = input.readInt();
+            for (int c = 0; c < count; c++) {
+                long cell = input.readLong();
+                int[] collided = new int[input.readInt()];
+                for (int k = 0; k < collided.length; k++) {
+                    collided[k] = input.readInt();
+                }
+                collisions.add(new Collision(cell, collided));
+            }
+        }
+
+        private void receiveStates(int region) throws IOException {
+            DataInputStream input = in[region];
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                Car car = cars.get(input.readInt());
+                car.moveTo(input.readInt(), input.readInt(), DIRECTIONS[input.readByte()]);
+                if (!input.readBoolean() && car.isActive()) {
+                    car.deactivate();
+                }
+            }
+        }
+    }
+
+    private static byte[] codes(CommandProgram program) {
+        if (program == null) {
+            return new byte[0];
+        }
+        byte[] codes = new byte[program.length()];
+        program.copyCodes(codes, 0);
+        return codes;
+    }
+
+    private static final class Migrant {
+        final int car;
+        final int x;
+        final int y;
+        final int dir;
+        /** Index in the program table of the run. */
+        final int program;
+
+        Migrant(int car, int x, int y, int dir, int program) {
+            this.car = car;
+            this.x = x;
+            this.y = y;
+            this.dir = dir;
+            this.program = program;
+        }
+    }
+
+    private static final class Collision {
+        final long cell;
+        /** Collided cars in index order. */
+        final int[] cars;
+
+        Collision(long cell, int[] cars) {
+            this.cell = cell;
+            this.cars = cars;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+
+import java.util.*;
+
+/**
+ * {@link SimulationService} that skips steps in which no collision is possible.
+ * <p>
+ * The Manhattan distance between two cars shrinks by at most 2 per step, so two cars
+ * {@code d} cells apart cannot meet within the next {@code (d - 1) / 2} steps. Each round
+ * computes a lower bound of that distance for every car (looking only at cars in nearby
+ * tiles) and then either:
+ * <ul>
+ *     <li>advances every car in bulk, through its {@link MacroProgram} ops, to the earliest
+ *     step at which any pair could meet; or</li>
+ *     <li>when some pair may already meet, steps only the cars close to that pair for a short
+ *     burst with the usual collision checks, while the far-away cars are moved in bulk.</li>
+ * </ul>
+ * On sparse scenarios with long programs the number of rounds follows the number of
+ * close encounters instead of the number of steps. Results are the same as
+ * {@link SimulationServiceImpl}; cars driving outside the field are always stepped, as in
+ * {@link RunLengthSimulationServiceImpl}.
+ */
+public class EventDrivenSimulationServiceImpl implements SimulationService {
+
+    private static final int MIN_RADIUS = 16;
+    private static final int MAX_RADIUS = 1 << 24;
+
+    /** Above this many nearby cars a car is treated as being in contact. */
+    private static final int NEIGHBOUR_LIMIT = 32;
+
+    /** Steps simulated around a possible collision before planning again. */
+    private static final int BURST = 8;
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = new EventRun(field, cars).simulate(true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return new EventRun(field, cars).simulate(false);
+    }
+
+    private static final class EventRun {
+
+        private final Field field;
+        private final List<Car> cars;
+        private final FleetState state;
+        private final MacroProgram program;
+        private final OccupancyIndex occupancy;
+        private final CollisionLog log;
+        private final Projection projection;
+        private final OccupancyIndex tiles;
+
+        /** Steps each car is guaranteed not to meet any other car. */
+        private final int[] safeSteps;
+        private final int[] moved;
+        private final int[] collided;
+        private final int[] stepped;
+        private final int[] projected;
+        private int steppedCount;
+        private int projectedCount;
+        private int movedCount;
+
+        private int radius = 64;
+
+        EventRun(Field field, List<Car> cars) {
+            this.field = field;
+            this.cars = cars;
+            this.state = FleetState.of(cars);
+            this.program = MacroProgram.compile(state);
+            this.occupancy = new OccupancyIndex(state.size);
+            this.log = new CollisionLog(cars);
+            this.projection = new Projection(state.size);
+            this.tiles = new OccupancyIndex(state.size);
+            this.safeSteps = new int[state.size];
+            this.moved = new int[state.size];
+            this.collided = new int[state.size];
+            this.stepped = new int[state.size];
+            this.projected = new int[state.size];
+        }
+
+        CollisionLog simulate(boolean stopAtFirstCollision) {
+            movedCount = state.addStartCells(occupancy, moved);
+
+            // Step 0 always runs when the run has steps: it checks the cars that share their start cell
+            int step = 0;
+            while (step < state.maxSteps && (step == 0 || hasCommandsLeft(step))) {
+                int horizon = Math.min(computeSafeSteps(step), state.maxSteps - step);
+
+                if (horizon >= 1) {
+                    advanceAll(step, step + horizon);
+                    // No pair was close enough to share a cell, not even before the first step
+                    movedCount = 0;
+                    step += horizon;
+                    adaptRadius(horizon);
+                    continue;
+                }
+
+                int end = Math.min(step + BURST, state.maxSteps);
+                splitByContact(step, end);
+                for (int s = step; s < end; s++) {
+                    if (stepOnce(s, stopAtFirstCollision)) {
+                        // Bulk-moved cars are still at the start of the burst; bring them to this step
+                        for (int i = 0; i < projectedCount; i++) {
+                            int car = projected[i];
+                            projection.project(state, program, field, car, step, s + 1);
+                            commit(car);
+                        }
+                        state.writeBack(cars);
+                        return log;
+                    }
+                }
+                for (int i = 0; i < projectedCount; i++) {
+                    commit(projected[i]);
+                }
+                step = end;
+                adaptRadius(0);
+            }
+
+            // Once no active car has commands left, the remaining steps change nothing
+            state.writeBack(cars);
+            return log;
+        }
+
+        private boolean hasCommandsLeft(int step) {
+            for (int car = 0; car < state.size; car++) {
+                if (state.active[car] && step < state.commandLength(car)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Fills {@link #safeSteps} for every active car.
+         *
+         * @return the number of steps no pair of cars can meet in
+         */
+        private int computeSafeSteps(int step) {
+            for (int car = 0; car < state.size; car++) {
+                if (state.active[car]) {
+                    tiles.add(car, tileOf(car));
+                }
+            }
+
+            int horizon = Integer.MAX_VALUE;
+            for (int car = 0; car < state.size; car++) {
+                if (!state.active[car]) {
+                    continue;
+                }
+                // Projections are clamped to the field, so a car driving outside it is always stepped
+                boolean projectable = step >= state.commandLength(car) || field.isInside(state.x[car], state.y[car]);
+                int distance = projectable ? nearestDistance(car, step) : 0;
+                safeSteps[car] = distance == 0 ? -1 : (distance - 1) / 2;
+                horizon = Math.min(horizon, safeSteps[car]);
+            }
+
+            for (int car = 0; car < state.size; car++) {
+                tiles.remove(car);
+            }
+            return horizon;
+        }
+
+        /**
+         * @return a lower bound of the Manhattan distance to the nearest car that can still
+         * get closer, capped at {@link #radius}; {@code 0} in crowded areas
+         */
+        private int nearestDistance(int car, int step) {
+            long tile = tiles.cellOf(car);
+            int tileX = OccupancyIndex.cellX(tile);
+            int tileY = OccupancyIndex.cellY(tile);
+            boolean parked = step >= state.commandLength(car);
+            long nearest = radius;
+            int neighbours = 0;
+
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int other = tiles.firstAt(OccupancyIndex.cellKey(tileX + dx, tileY + dy));
+                    for (; other >= 0; other = tiles.nextInCell(other)) {
+                        if (other == car) {
+                            continue;
+                        }
+                        if (++neighbours > NEIGHBOUR_LIMIT) {
+                            return 0;
+                        }
+                        // Two parked cars never get closer; before the first step they may still share a cell
+                        if (parked && step >= state.commandLength(other) && step > 0) {
+                            continue;
+                        }
+                        long distance = Math.abs((long) state.x[car] - state.x[other])
+                                + Math.abs((long) state.y[car] - state.y[other]);
+                        nearest = Math.min(nearest, distance);
+                    }
+                }
+            }
+            return (int) nearest;
+        }
+
+        private long tileOf(int car) {
+            return OccupancyIndex.cellKey(Math.floorDiv(state.x[car], radius), Math.floorDiv(state.y[car], radius));
+        }
+
+        /**
+         * Larger tiles allow longer jumps on sparse maps, smaller ones keep neighbour lists short near contacts.
+         */
+        private void adaptRadius(int horizon) {
+            if (horizon >= (radius - 1) / 2) {
+                radius = Math.min(radius * 2, MAX_RADIUS);
+            } else if (horizon < radius / 8) {
+                radius = Math.max(radius / 2, MIN_RADIUS);
+            }
+        }
+
+        private void advanceAll(int from, int to) {
+            for (int car = 0; car < state.size; car++) {
+                if (state.active[car] && from < state.commandLength(car)) {
+                    projection.project(state, program, field, car, from, to);
+                    commit(car);
+                }
+            }
+        }
+
+        /**
+         * Cars that cannot meet anyone before {@code to} are projected there; the others are stepped.
+         */
+        private void splitByContact(int from, int to) {
+            steppedCount = 0;
+            projectedCount = 0;
+            for (int car = 0; car < state.size; car++) {
+                if (!state.active[car]) {
+                    continue;
+                }
+                if (safeSteps[car] >= to - from) {
+                    projection.project(state, program, field, car, from, to);
+                    projected[projectedCount++] = car;
+                } else {
+                    stepped[steppedCount++] = car;
+                }
+            }
+        }
+
+        /**
+         * Steps the cars in contact and records collisions.
+         *
+         * @return {@code true} when the run has to stop at this step
+         */
+        private boolean stepOnce(int step, boolean stopAtFirstCollision) {
+            for (int i = 0; i < steppedCount; i++) {
+                int car = stepped[i];
+                if (state.execute(car, step, field)) {
+                    occupancy.move(car, state.cellKey(car));
+                    if (step > 0) {
+                        moved[movedCount++] = car;
+                    }
+                }
+            }
+
+            int collidedCount;
+            if (stopAtFirstCollision) {
+                collided[0] = occupancy.earliestCollision(moved, movedCount);
+                collidedCount = collided[0] < 0 ? 0 : 1;
+            } else {
+                collidedCount = occupancy.collisions(moved, 0, movedCount, collided);
+            }
+            movedCount = 0;
+
+            for (int c = 0; c < collidedCount; c++) {
+                state.collide(occupancy, collided[c], step + 1, log);
+            }
+            return stopAtFirstCollision && collidedCount > 0;
+        }
+
+        private void commit(int car) {
+            projection.commit(state, car);
+            occupancy.move(car, state.cellKey(car));
+        }
+    }
+}
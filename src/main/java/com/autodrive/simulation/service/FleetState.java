@@ -0,0 +1,207 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays view of a list of cars.
+ * <p>
+ * Positions, headings and the active flag live in parallel primitive arrays indexed by
+ * the car's position in the input list. Headings are stored as {@link Direction} ordinals.
+ * <p>
+ * Commands are stored once per distinct {@link CommandProgram}: every program's codes are
+ * packed into a single byte array, and each car only holds the index of its program, so a
+ * fleet sharing a handful of routes costs a handful of command arrays.
+ */
+final class FleetState {
+
+    static final byte NOOP = CommandProgram.NOOP;
+    static final byte LEFT = CommandProgram.LEFT;
+    static final byte RIGHT = CommandProgram.RIGHT;
+    static final byte FORWARD = CommandProgram.FORWARD;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte[] TURN_LEFT = {3, 0, 1, 2};
+    private static final byte[] TURN_RIGHT = {1, 2, 3, 0};
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    final int size;
+    final int[] x;
+    final int[] y;
+    final byte[] dir;
+    final boolean[] active;
+
+    /** Index of the program of each car. */
+    final int[] program;
+    final int programCount;
+    /** Packed codes of all programs; program {@code p} owns {@code [programStart[p], programStart[p + 1])}. */
+    final byte[] commands;
+    final int[] programStart;
+
+    final int maxSteps;
+
+    private FleetState(int size, int programCount, int totalCommands, int maxSteps) {
+        this.size = size;
+        this.x = new int[size];
+        this.y = new int[size];
+        this.dir = new byte[size];
+        this.active = new boolean[size];
+        this.program = new int[size];
+        this.programCount = programCount;
+        this.commands = new byte[totalCommands];
+        this.programStart = new int[programCount + 1];
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Copies the current state of the given cars into a new struct-of-arrays.
+     */
+    static FleetState of(List<Car> cars) {
+        // Cars without commands share the empty program, index 0
+        Map<CommandProgram, Integer> programs = new IdentityHashMap<>();
+        int[] programOf = new int[cars.size()];
+        int programCount = 1;
+        long total = 0;
+        int longest = 0;
+        for (int i = 0; i < programOf.length; i++) {
+            CommandProgram program = cars.get(i).getProgram();
+            if (program == null || program.length() == 0) {
+                continue;
+            }
+            Integer index = programs.putIfAbsent(program, programCount);
+            if (index == null) {
+                index = programCount++;
+                total += program.length();
+                longest = Math.max(longest, program.length());
+            }
+            programOf[i] = index;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many distinct commands: " + total);
+        }
+
+        FleetState state = new FleetState(cars.size(), programCount, (int) total, longest);
+        CommandProgram[] ordered = new CommandProgram[programCount];
+        programs.forEach((program, index) -> ordered[index] = program);
+        int offset = 0;
+        for (int p = 1; p < programCount; p++) {
+            state.programStart[p] = offset;
+            ordered[p].copyCodes(state.commands, offset);
+            offset += ordered[p].length();
+        }
+        state.programStart[programCount] = offset;
+
+        for (int i = 0; i < state.size; i++) {
+            Car car = cars.get(i);
+            state.x[i] = car.getX();
+            state.y[i] = car.getY();
+            state.dir[i] = (byte) car.getDirection().ordinal();
+            state.active[i] = car.isActive();
+            state.program[i] = programOf[i];
+        }
+
+        return state;
+    }
+
+    /**
+     * @return the offset of the car's first command in {@link #commands}
+     */
+    int commandStart(int car) {
+        return programStart[program[car]];
+    }
+
+    int commandLength(int car) {
+        int p = program[car];
+        return programStart[p + 1] - programStart[p];
+    }
+
+    /**
+     * Executes the command of the given car for the given step, if it has one.
+     *
+     * @return {@code true} when the car changed cell
+     */
+    boolean execute(int car, int step, Field field) {
+        if (!active[car] || step >= commandLength(car)) {
+            return false;
+        }
+
+        switch (commands[commandStart(car) + step]) {
+            case LEFT:
+                dir[car] = TURN_LEFT[dir[car]];
+                return false;
+            case RIGHT:
+                dir[car] = TURN_RIGHT[dir[car]];
+                return false;
+            case FORWARD:
+                int nextX = x[car] + DX[dir[car]];
+                int nextY = y[car] + DY[dir[car]];
+                if (field.isInside(nextX, nextY)) {
+                    x[car] = nextX;
+                    y[car] = nextY;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Puts every active car on its start cell with {@link OccupancyIndex#addAtStart}.
+     *
+     * @return the number of candidates of the first collision check
+     */
+    int addStartCells(OccupancyIndex occupancy, int[] candidates) {
+        int candidateCount = 0;
+        for (int car = 0; car < size; car++) {
+            if (active[car]) {
+                candidateCount = occupancy.addAtStart(car, cellKey(car), candidates, candidateCount);
+            }
+        }
+        return candidateCount;
+    }
+
+    long cellKey(int car) {
+        return OccupancyIndex.cellKey(x[car], y[car]);
+    }
+
+    Direction direction(int car) {
+        return DIRECTIONS[dir[car]];
+    }
+
+    /**
+     * Deactivates every car on the cell of {@code firstCar}, takes them out of the index
+     * and records them as one collision.
+     */
+    void collide(OccupancyIndex occupancy, int firstCar, int step, CollisionLog log) {
+        log.begin(step, occupancy.cellOf(firstCar));
+        int car = firstCar;
+        while (car >= 0) {
+            int next = occupancy.nextInCell(car);
+            active[car] = false;
+            occupancy.remove(car);
+            log.addCar(car);
+            car = next;
+        }
+    }
+
+    /**
+     * Copies positions, headings and deactivations back onto the original cars.
+     */
+    void writeBack(List<Car> cars) {
+        for (int i = 0; i < size; i++) {
+            Car car = cars.get(i);
+            car.moveTo(x[i], y[i], direction(i));
+            if (!active[i] && car.isActive()) {
+                car.deactivate();
+            }
+        }
+    }
+}
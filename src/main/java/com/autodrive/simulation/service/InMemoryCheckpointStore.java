@@ -0,0 +1,43 @@
+package com.autodrive.simulation.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link CheckpointStore} that keeps every snapshot on the heap.
+ */
+public class InMemoryCheckpointStore implements CheckpointStore {
+
+    private final List<StateSnapshot> snapshots = new ArrayList<>();
+
+    @Override
+    public void add(StateSnapshot snapshot) {
+        if (!snapshots.isEmpty() && snapshots.get(snapshots.size() - 1).getStep() >= snapshot.getStep()) {
+            throw new IllegalArgumentException("Snapshots must be added in increasing step order");
+        }
+        snapshots.add(snapshot);
+    }
+
+    @Override
+    public StateSnapshot floor(int step) {
+        int low = 0;
+        int high = snapshots.size() - 1;
+        StateSnapshot floor = null;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            StateSnapshot snapshot = snapshots.get(middle);
+            if (snapshot.getStep() <= step) {
+                floor = snapshot;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return floor;
+    }
+
+    @Override
+    public int size() {
+        return snapshots.size();
+    }
+}
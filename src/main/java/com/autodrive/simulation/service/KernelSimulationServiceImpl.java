@@ -0,0 +1,115 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+
+import java.util.List;
+
+/**
+ * {@link SimulationService} that runs the move phase of every step in bulk through a
+ * {@link MoveKernel}, SIMD when the JVM allows it.
+ * <p>
+ * Each step first gathers the code every car executes into one lane array (a no-op for
+ * inactive cars and finished programs), then lets the kernel turn and move all cars at
+ * once, and only then updates the {@link OccupancyIndex} for the cars the kernel reports
+ * as moved. Collisions are checked and reported as in {@link ArraySimulationServiceImpl}.
+ */
+public class KernelSimulationServiceImpl implements SimulationService {
+
+    private final MoveKernel kernel;
+
+    public KernelSimulationServiceImpl() {
+        this(MoveKernel.create());
+    }
+
+    KernelSimulationServiceImpl(MoveKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    /**
+     * @return the name of the kernel in use, {@code scalar} when the Vector API is not available
+     */
+    public String getKernelName() {
+        return kernel.name();
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, false);
+    }
+
+    private CollisionLog simulate(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+        FleetState state = FleetState.of(cars);
+        int size = state.size;
+        OccupancyIndex occupancy = new OccupancyIndex(size);
+        CollisionLog log = new CollisionLog(cars);
+
+        int[] dir = new int[size];
+        int[] start = new int[size];
+        int[] length = new int[size];
+        for (int car = 0; car < size; car++) {
+            dir[car] = state.dir[car];
+            start[car] = state.commandStart(car);
+            length[car] = state.commandLength(car);
+        }
+        int[] codes = new int[size];
+        boolean[] changedCell = new boolean[size];
+        int[] moved = new int[size];
+        int[] collided = new int[size];
+        int movedCount = state.addStartCells(occupancy, moved);
+
+        for (int step = 0; step < state.maxSteps; step++) {
+
+            for (int car = 0; car < size; car++) {
+                codes[car] = state.active[car] && step < length[car] ? state.commands[start[car] + step] : FleetState.NOOP;
+            }
+            kernel.step(size, codes, state.x, state.y, dir, field.getWidth(), field.getHeight(), changedCell);
+
+            for (int car = 0; car < size; car++) {
+                if (changedCell[car]) {
+                    occupancy.move(car, state.cellKey(car));
+                    if (step > 0) {
+                        moved[movedCount++] = car;
+                    }
+                }
+            }
+
+            int collidedCount;
+            if (stopAtFirstCollision) {
+                collided[0] = occupancy.earliestCollision(moved, movedCount);
+                collidedCount = collided[0] < 0 ? 0 : 1;
+            } else {
+                collidedCount = occupancy.collisions(moved, 0, movedCount, collided);
+            }
+            movedCount = 0;
+
+            for (int c = 0; c < collidedCount; c++) {
+                state.collide(occupancy, collided[c], step + 1, log);
+            }
+
+            if (stopAtFirstCollision && collidedCount > 0) {
+                break;
+            }
+        }
+
+        for (int car = 0; car < size; car++) {
+            state.dir[car] = (byte) dir[car];
+        }
+        state.writeBack(cars);
+        return log;
+    }
+}
@@ -0,0 +1,135 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Run-length compiled form of the commands of a {@link FleetState}.
+ * <p>
+ * Consecutive {@code F} commands become one {@code FORWARD n} op, and consecutive turns
+ * (together with ignored commands) become one {@code TURN k} op holding the net number of
+ * right quarter-turns. Each op remembers the step at which it ends, so any step of a car
+ * can be located with a binary search and a whole op can be applied in O(1).
+ * <p>
+ * Ops are compiled once per program of the fleet, so cars sharing a program share its ops.
+ */
+final class MacroProgram {
+
+    private static final byte FORWARD = -1;
+
+    /** Right quarter-turns indexed by packed command. */
+    private static final int[] QUARTER_TURNS = {0, 3, 1, 0};
+
+    /** Program of each car, see {@link FleetState#program}. */
+    private final int[] program;
+    /** Program {@code p} owns the ops {@code [opStart[p], opStart[p + 1])}. */
+    private final int[] opStart;
+    /** Step (exclusive) at which each op ends. */
+    private final int[] opEnd;
+    /** {@link #FORWARD}, or the net right quarter-turns (0-3) of a turn op. */
+    private final byte[] opCode;
+
+    private MacroProgram(int[] program, int[] opStart, int[] opEnd, byte[] opCode) {
+        this.program = program;
+        this.opStart = opStart;
+        this.opEnd = opEnd;
+        this.opCode = opCode;
+    }
+
+    static MacroProgram compile(FleetState state) {
+        int total = 0;
+        for (int p = 0; p < state.programCount; p++) {
+            int base = state.programStart[p];
+            int length = state.programStart[p + 1] - base;
+            for (int step = 0; step < length; step = runEnd(state.commands, base, step, length)) {
+                total++;
+            }
+        }
+
+        int[] opStart = new int[state.programCount + 1];
+        int[] opEnd = new int[total];
+        byte[] opCode = new byte[total];
+        int op = 0;
+        for (int p = 0; p < state.programCount; p++) {
+            opStart[p] = op;
+            int base = state.programStart[p];
+            int length = state.programStart[p + 1] - base;
+            int step = 0;
+            while (step < length) {
+                int end = runEnd(state.commands, base, step, length);
+                if (state.commands[base + step] == FleetState.FORWARD) {
+                    opCode[op] = FORWARD;
+                } else {
+                    int turns = 0;
+                    for (int s = step; s < end; s++) {
+                        turns += QUARTER_TURNS[state.commands[base + s]];
+                    }
+                    opCode[op] = (byte) (turns & 3);
+                }
+                opEnd[op++] = end;
+                step = end;
+            }
+        }
+        opStart[state.programCount] = op;
+
+        return new MacroProgram(state.program, opStart, opEnd, opCode);
+    }
+
+    /**
+     * @return the end of the run starting at {@code step}: forward commands, or anything else
+     */
+    private static int runEnd(byte[] commands, int base, int step, int length) {
+        int end = step + 1;
+        if (commands[base + step] == FleetState.FORWARD) {
+            while (end < length && commands[base + end] == FleetState.FORWARD) {
+                end++;
+            }
+        } else {
+            while (end < length && commands[base + end] != FleetState.FORWARD) {
+                end++;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the right quarter-turns of a packed command: 1 for R, 3 for L, 0 otherwise
+     */
+    static int quarterTurns(byte command) {
+        return QUARTER_TURNS[command];
+    }
+
+    /**
+     * @return the op of the car executing the given step; only valid while the car still has commands
+     */
+    int opAt(int car, int step) {
+        int low = opStart[program[car]];
+        int high = opStart[program[car] + 1] - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (opEnd[middle] <= step) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int opBegin(int car, int op) {
+        return op == opStart[program[car]] ? 0 : opEnd[op - 1];
+    }
+
+    int opEnd(int op) {
+        return opEnd[op];
+    }
+
+    boolean isForward(int op) {
+        return opCode[op] == FORWARD;
+    }
+
+    int quarterTurnsOf(int op) {
+        return opCode[op];
+    }
+
+    int opCount() {
+        return opEnd.length;
+    }
+}
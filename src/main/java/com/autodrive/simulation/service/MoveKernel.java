@@ -0,0 +1,40 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Move phase of one step for a block of cars laid out as parallel {@code int} lanes.
+ * <p>
+ * Car {@code i} executes {@code codes[i]} (a {@link com.autodrive.simulation.model.CommandProgram}
+ * code): turns update its heading ordinal, a forward move updates its position if the
+ * next cell is inside the field. Cars that should not move this step are given
+ * {@link com.autodrive.simulation.model.CommandProgram#NOOP}.
+ * <p>
+ * {@link #create()} picks the SIMD kernel when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, and the scalar loop otherwise.
+ */
+interface MoveKernel {
+
+    String VECTOR_KERNEL = "com.autodrive.simulation.service.VectorMoveKernel";
+
+    /**
+     * Executes the codes of the cars {@code [0, count)}.
+     *
+     * @param moved receives, per car, whether it changed cell
+     */
+    void step(int count, int[] codes, int[] x, int[] y, int[] dir, int width, int height, boolean[] moved);
+
+    /**
+     * @return a short name of the kernel, for reports
+     */
+    String name();
+
+    static MoveKernel create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (MoveKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Built without the vector classes; the scalar loop gives the same results
+            }
+        }
+        return new ScalarMoveKernel();
+    }
+}
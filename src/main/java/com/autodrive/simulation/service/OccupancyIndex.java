@@ -0,0 +1,356 @@
+package com.autodrive.simulation.service;
+
+import java.util.Arrays;
+
+/**
+ * Reusable index from occupied cells to the cars standing on them.
+ * <p>
+ * Cells are packed into a {@code long} (see {@link #cellKey(int, int)}) and stored in a
+ * primitive open-addressing table with linear probing. The cars of one cell form an
+ * intrusive linked list ordered by car index, so the first car of a cell is always the
+ * earliest one in the input list. Cars are identified by their index in the input list.
+ * <p>
+ * The index only allocates in its constructor (and when a partition outgrows its table),
+ * so it can be updated every step without producing garbage: only cars that actually
+ * changed cell need to be {@link #move moved}.
+ * <p>
+ * For parallel engines the index can be {@link #partitioned split} by cell hash. Partitions
+ * share the per-car arrays, which is safe as long as each car is only touched by the
+ * partition owning its cell, and removals and additions run in separate phases.
+ */
+final class OccupancyIndex {
+
+    private static final int NONE = -1;
+
+    /** Current cell of every car, valid only while the car is in the index. */
+    private final long[] carCell;
+    private final int[] nextInCell;
+    private final boolean[] indexed;
+
+    private long[] cells;
+    private int[] firstCar;
+    private int[] occupants;
+    private int cellCount;
+    private int mask;
+    private int shift;
+
+    OccupancyIndex(int carCount) {
+        this(new long[carCount], new int[carCount], new boolean[carCount], carCount);
+    }
+
+    private OccupancyIndex(long[] carCell, int[] nextInCell, boolean[] indexed, int expectedCells) {
+        this.carCell = carCell;
+        this.nextInCell = nextInCell;
+        this.indexed = indexed;
+        allocateTable(Integer.highestOneBit(Math.max(4, expectedCells) * 2 - 1) << 1);
+    }
+
+    /**
+     * Creates {@code partitions} indices sharing the same per-car arrays; a cell belongs
+     * to the partition given by {@link #partitionOf(long, int)}.
+     *
+     * @param partitions a power of two
+     */
+    static OccupancyIndex[] partitioned(int carCount, int partitions) {
+        long[] carCell = new long[carCount];
+        int[] nextInCell = new int[carCount];
+        boolean[] indexed = new boolean[carCount];
+
+        OccupancyIndex[] indices = new OccupancyIndex[partitions];
+        for (int p = 0; p < partitions; p++) {
+            indices[p] = new OccupancyIndex(carCell, nextInCell, indexed, carCount / partitions);
+        }
+        return indices;
+    }
+
+    /**
+     * @param partitions a power of two
+     * @return the partition owning the cell
+     */
+    static int partitionOf(long cell, int partitions) {
+        // Uses different bits than the table's home slot so a partition's cells still spread out
+        long hash = cell * 0xC2B2AE3D27D4EB4FL;
+        return (int) (hash ^ (hash >>> 29)) & (partitions - 1);
+    }
+
+    /**
+     * Packs a cell into a single {@code long} (x in the high half, y in the low half).
+     */
+    static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    static int cellX(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    static int cellY(long cell) {
+        return (int) cell;
+    }
+
+    /**
+     * Formats a packed cell the same way as {@link com.autodrive.simulation.model.Car#positionKey()}.
+     */
+    static String position(long cell) {
+        return cellX(cell) + "," + cellY(cell);
+    }
+
+    /**
+     * Puts a car on its cell before the first step of a run. Cars may already share a cell
+     * before the first step, so the check after step {@code 0} covers every car of the run,
+     * not only those that changed cell: the car is appended to {@code candidates} as well.
+     *
+     * @return the number of candidates afterwards
+     */
+    int addAtStart(int car, long cell, int[] candidates, int candidateCount) {
+        add(car, cell);
+        candidates[candidateCount] = car;
+        return candidateCount + 1;
+    }
+
+    /**
+     * Puts a car that is not yet indexed on the given cell.
+     */
+    void add(int car, long cell) {
+        int slot = find(cell);
+        if (occupants[slot] == 0) {
+            if ((cellCount + 1) * 2 > cells.length) {
+                grow();
+                slot = find(cell);
+            }
+            cells[slot] = cell;
+            firstCar[slot] = car;
+            nextInCell[car] = NONE;
+            cellCount++;
+        } else if (car < firstCar[slot]) {
+            nextInCell[car] = firstCar[slot];
+            firstCar[slot] = car;
+        } else {
+            int previous = firstCar[slot];
+            while (nextInCell[previous] != NONE && nextInCell[previous] < car) {
+                previous = nextInCell[previous];
+            }
+            nextInCell[car] = nextInCell[previous];
+            nextInCell[previous] = car;
+        }
+        occupants[slot]++;
+        carCell[car] = cell;
+        indexed[car] = true;
+    }
+
+    /**
+     * Takes a car out of the index; does nothing if it is not indexed.
+     */
+    void remove(int car) {
+        if (!indexed[car]) {
+            return;
+        }
+        indexed[car] = false;
+
+        int slot = find(carCell[car]);
+        if (firstCar[slot] == car) {
+            firstCar[slot] = nextInCell[car];
+        } else {
+            int previous = firstCar[slot];
+            while (nextInCell[previous] != car) {
+                previous = nextInCell[previous];
+            }
+            nextInCell[previous] = nextInCell[car];
+        }
+
+        if (--occupants[slot] == 0) {
+            cellCount--;
+            deleteSlot(slot);
+        }
+    }
+
+    /**
+     * Moves an indexed car to a new cell.
+     */
+    void move(int car, long cell) {
+        if (carCell[car] == cell) {
+            return;
+        }
+        remove(car);
+        add(car, cell);
+    }
+
+    boolean contains(int car) {
+        return indexed[car];
+    }
+
+    long cellOf(int car) {
+        return carCell[car];
+    }
+
+    /**
+     * @return how many cars share the cell of the given indexed car
+     */
+    int occupants(int car) {
+        return occupants[find(carCell[car])];
+    }
+
+    /**
+     * @return the earliest car on the cell of the given indexed car
+     */
+    int firstInCell(int car) {
+        return firstCar[find(carCell[car])];
+    }
+
+    /**
+     * @return the earliest car on the given cell, or a negative value when it is empty
+     */
+    int firstAt(long cell) {
+        int slot = find(cell);
+        return occupants[slot] == 0 ? NONE : firstCar[slot];
+    }
+
+    /**
+     * @return the next car (by index) on the same cell, or a negative value after the last one
+     */
+    int nextInCell(int car) {
+        return nextInCell[car];
+    }
+
+    /**
+     * Looks at the cells of the given candidate cars and returns the earliest car of the
+     * earliest collided cell, i.e. the cell {@link SimulationServiceImpl} reports.
+     *
+     * @return a car index, or a negative value when none of the candidates shares its cell
+     */
+    int earliestCollision(int[] candidates, int count) {
+        return earliestCollision(candidates, 0, count);
+    }
+
+    /**
+     * Same as {@link #earliestCollision(int[], int)} for the candidates in {@code [from, to)}.
+     */
+    int earliestCollision(int[] candidates, int from, int to) {
+        int earliest = NONE;
+        for (int i = from; i < to; i++) {
+            int car = candidates[i];
+            if (!indexed[car]) {
+                continue;
+            }
+            int slot = find(carCell[car]);
+            if (occupants[slot] > 1 && (earliest == NONE || firstCar[slot] < earliest)) {
+                earliest = firstCar[slot];
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Collects the earliest car of every collided cell among the candidates in {@code [from, to)}.
+     *
+     * @param out receives the cars in ascending order without duplicates; must have room
+     *            for one entry per candidate
+     * @return how many cars were written to {@code out}
+     */
+    int collisions(int[] candidates, int from, int to, int[] out) {
+        return sortDistinct(out, collectCollisions(candidates, from, to, out, 0));
+    }
+
+    /**
+     * Unsorted variant of {@link #collisions(int[], int, int, int[])} that appends to {@code out}
+     * from {@code offset}; a cell can be appended once per candidate standing on it.
+     *
+     * @return the new end of {@code out}
+     */
+    int collectCollisions(int[] candidates, int from, int to, int[] out, int offset) {
+        int end = offset;
+        for (int i = from; i < to; i++) {
+            int car = candidates[i];
+            if (!indexed[car]) {
+                continue;
+            }
+            int slot = find(carCell[car]);
+            if (occupants[slot] > 1) {
+                out[end++] = firstCar[slot];
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts the first {@code count} entries and drops duplicates.
+     *
+     * @return the number of distinct entries
+     */
+    static int sortDistinct(int[] values, int count) {
+        if (count < 2) {
+            return count;
+        }
+        Arrays.sort(values, 0, count);
+        int distinct = 1;
+        for (int i = 1; i < count; i++) {
+            if (values[i] != values[distinct - 1]) {
+                values[distinct++] = values[i];
+            }
+        }
+        return distinct;
+    }
+
+    private void allocateTable(int capacity) {
+        this.cells = new long[capacity];
+        this.firstCar = new int[capacity];
+        this.occupants = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void grow() {
+        long[] oldCells = cells;
+        int[] oldFirstCar = firstCar;
+        int[] oldOccupants = occupants;
+        allocateTable(oldCells.length * 2);
+        for (int slot = 0; slot < oldCells.length; slot++) {
+            if (oldOccupants[slot] != 0) {
+                int target = find(oldCells[slot]);
+                cells[target] = oldCells[slot];
+                firstCar[target] = oldFirstCar[slot];
+                occupants[target] = oldOccupants[slot];
+            }
+        }
+    }
+
+    /**
+     * @return the slot holding the cell, or the empty slot where it would be inserted
+     */
+    private int find(long cell) {
+        int slot = home(cell);
+        while (occupants[slot] != 0 && cells[slot] != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int home(long cell) {
+        return (int) ((cell * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Backward-shift deletion, so lookups never need tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (occupants[next] == 0) {
+                break;
+            }
+            int home = home(cells[next]);
+            boolean homeBetween = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (!homeBetween) {
+                cells[hole] = cells[next];
+                firstCar[hole] = firstCar[next];
+                occupants[hole] = occupants[next];
+                hole = next;
+            }
+        }
+        occupants[hole] = 0;
+    }
+}
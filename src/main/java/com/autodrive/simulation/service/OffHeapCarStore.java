@@ -0,0 +1,269 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Direction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Car states kept outside the Java heap, for fleets too large for {@link Car} objects.
+ * <p>
+ * Every car is a fixed-width record of {@link #RECORD_SIZE} bytes in {@link OffHeapMemory}:
+ * <pre>
+ * 0  x (int)           4  y (int)
+ * 8  program (long)    16 cursor (int)
+ * 20 next car on the same cell (int, used by the engine)
+ * 24 flags (byte): heading ordinal in bits 0-1, active, indexed (used by the engine)
+ * </pre>
+ * The cursor is the number of commands the car has executed. Programs live in a second
+ * off-heap memory as their length (int) followed by one code per command; a car refers to
+ * its program by offset, so cars added with the same program share it. Names are not
+ * stored: whoever needs them supplies them by car index (see {@link #asList(IntFunction)}).
+ * <p>
+ * Heap usage does not depend on the number of cars. The store is not thread-safe.
+ */
+public final class OffHeapCarStore implements AutoCloseable {
+
+    public static final int RECORD_SIZE = 32;
+
+    static final int X = 0;
+    static final int Y = 4;
+    static final int PROGRAM = 8;
+    static final int CURSOR = 16;
+    static final int NEXT = 20;
+    static final int FLAGS = 24;
+
+    static final int HEADING = 0x3;
+    static final int ACTIVE = 0x4;
+    static final int INDEXED = 0x8;
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final char[] COMMANDS = {'?', 'L', 'R', 'F'};
+
+    final OffHeapMemory cars;
+    final OffHeapMemory programs;
+    private int size;
+    private long programEnd;
+
+    private OffHeapCarStore(OffHeapMemory cars, OffHeapMemory programs) {
+        this.cars = cars;
+        this.programs = programs;
+    }
+
+    /**
+     * @param expectedCars a hint sizing the direct buffers; the store grows past it
+     */
+    public static OffHeapCarStore allocate(int expectedCars) {
+        return new OffHeapCarStore(OffHeapMemory.direct((long) expectedCars * RECORD_SIZE),
+                OffHeapMemory.direct((long) expectedCars * 16));
+    }
+
+    /**
+     * Creates a store whose cars and programs are memory-mapped from the given files, which
+     * are created or truncated; the page cache rather than the process holds the fleet.
+     */
+    public static OffHeapCarStore mapped(Path carFile, Path programFile, int expectedCars) throws IOException {
+        OffHeapMemory cars = OffHeapMemory.mapped(carFile, (long) expectedCars * RECORD_SIZE);
+        try {
+            return new OffHeapCarStore(cars, OffHeapMemory.mapped(programFile, (long) expectedCars * 16));
+        } catch (IOException | RuntimeException e) {
+            cars.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies the codes of a program into the store.
+     *
+     * @return the reference to pass to {@link #add(int, int, Direction, long)}
+     */
+    public long addProgram(CommandProgram program) {
+        int length = program == null ? 0 : program.length();
+        long start = programEnd;
+        programs.ensureCapacity(start + Integer.BYTES + length);
+        programs.putInt(start, length);
+        for (int k = 0; k < length; k++) {
+            programs.put(start + Integer.BYTES + k, program.codeAt(k));
+        }
+        // Keep the next length aligned so it never straddles two segments
+        programEnd = start + Integer.BYTES + (length + 3 & ~3L);
+        return start;
+    }
+
+    /**
+     * Adds an active car that has not executed any command yet.
+     *
+     * @return the index of the car
+     */
+    public int add(int x, int y, Direction direction, long program) {
+        if (program < 0 || program >= programEnd) {
+            throw new IllegalArgumentException("Unknown program " + program);
+        }
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The store is full");
+        }
+        int car = size;
+        long record = record(car);
+        cars.ensureCapacity(record + RECORD_SIZE);
+        cars.putInt(record + X, x);
+        cars.putInt(record + Y, y);
+        cars.putLong(record + PROGRAM, program);
+        cars.putInt(record + CURSOR, 0);
+        cars.putInt(record + NEXT, -1);
+        cars.put(record + FLAGS, (byte) (direction.ordinal() | ACTIVE));
+        size++;
+        return car;
+    }
+
+    /**
+     * Adds the current state of the given cars; each distinct program is stored once.
+     *
+     * @return the index of the first added car
+     */
+    public int addAll(List<Car> cars) {
+        Map<CommandProgram, Long> stored = new IdentityHashMap<>();
+        long empty = -1;
+        int first = size;
+        for (Car car : cars) {
+            long program;
+            if (car.getProgram() == null) {
+                if (empty < 0) {
+                    empty = addProgram(null);
+                }
+                program = empty;
+            } else {
+                program = stored.computeIfAbsent(car.getProgram(), this::addProgram);
+            }
+            int index = add(car.getX(), car.getY(), car.getDirection(), program);
+            if (!car.isActive()) {
+                deactivate(index);
+            }
+        }
+        return first;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getX(int car) {
+        return cars.getInt(record(check(car)) + X);
+    }
+
+    public int getY(int car) {
+        return cars.getInt(record(check(car)) + Y);
+    }
+
+    public Direction getDirection(int car) {
+        return DIRECTIONS[flags(check(car)) & HEADING];
+    }
+
+    public boolean isActive(int car) {
+        return (flags(check(car)) & ACTIVE) != 0;
+    }
+
+    /**
+     * @return the number of commands the car has executed
+     */
+    public int getCursor(int car) {
+        return cars.getInt(record(check(car)) + CURSOR);
+    }
+
+    public long getProgram(int car) {
+        return cars.getLong(record(check(car)) + PROGRAM);
+    }
+
+    public int getCommandCount(int car) {
+        return programs.getInt(getProgram(car));
+    }
+
+    /**
+     * @return the commands of the car as L, R and F characters
+     */
+    public String getCommands(int car) {
+        long program = getProgram(car);
+        int length = programs.getInt(program);
+        char[] commands = new char[length];
+        for (int k = 0; k < length; k++) {
+            commands[k] = COMMANDS[programs.get(program + Integer.BYTES + k)];
+        }
+        return new String(commands);
+    }
+
+    public void deactivate(int car) {
+        long record = record(check(car));
+        cars.put(record + FLAGS, (byte) (cars.get(record + FLAGS) & ~ACTIVE));
+    }
+
+    /**
+     * Copies positions, headings and deactivations onto the cars added from {@code first} on.
+     */
+    public void writeBack(List<Car> targets, int first) {
+        for (int i = 0; i < targets.size(); i++) {
+            Car car = targets.get(i);
+            int index = first + i;
+            car.moveTo(getX(index), getY(index), getDirection(index));
+            if (!isActive(index) && car.isActive()) {
+                car.deactivate();
+            }
+        }
+    }
+
+    /**
+     * @return a read-only view creating a {@link Car} snapshot of each car when it is read;
+     *         the view holds nothing per car, so it can stand in for the input list of a
+     *         {@link CollisionLog}
+     */
+    public List<Car> asList(IntFunction<String> names) {
+        return new AbstractList<>() {
+            @Override
+            public Car get(int index) {
+                Car car = new Car(names.apply(index), getX(index), getY(index), getDirection(index),
+                        getCommands(index));
+                if (!isActive(index)) {
+                    car.deactivate();
+                }
+                return car;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Releases the memory of the store; mapped data stays in its files.
+     */
+    @Override
+    public void close() {
+        try {
+            cars.close();
+        } finally {
+            programs.close();
+        }
+    }
+
+    static long record(int car) {
+        return (long) car * RECORD_SIZE;
+    }
+
+    private int flags(int car) {
+        return cars.get(record(car) + FLAGS);
+    }
+
+    private int check(int car) {
+        if (car < 0 || car >= size) {
+            throw new IndexOutOfBoundsException("Car " + car + " of " + size);
+        }
+        return car;
+    }
+}
@@ -0,0 +1,147 @@
+package com.autodrive.simulation.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Growable byte memory outside the Java heap, addressed by {@code long} offsets.
+ * <p>
+ * The memory is split into segments of one power-of-two size, each a direct {@link ByteBuffer}
+ * or a memory-mapped region of a file, allocated the first time an offset reaches it. Values
+ * never straddle two segments as long as they are aligned to their own size.
+ * <p>
+ * Segments are released with the buffers, once they are no longer reachable; mapped
+ * segments are flushed to their file by the operating system.
+ */
+final class OffHeapMemory implements AutoCloseable {
+
+    static final int MIN_SEGMENT_BITS = 12;
+    static final int MAX_SEGMENT_BITS = 26;
+
+    private final FileChannel channel;
+    private final int segmentBits;
+    private final long segmentSize;
+    private final long segmentMask;
+    private ByteBuffer[] segments = new ByteBuffer[4];
+    private int segmentCount;
+
+    private OffHeapMemory(FileChannel channel, long expectedSize) {
+        this.channel = channel;
+        this.segmentBits = segmentBits(expectedSize);
+        this.segmentSize = 1L << segmentBits;
+        this.segmentMask = segmentSize - 1;
+    }
+
+    /**
+     * @param expectedSize bytes the memory will likely hold; small memories get small segments
+     * @return memory made of direct buffers; their size counts against {@code -XX:MaxDirectMemorySize}
+     */
+    static OffHeapMemory direct(long expectedSize) {
+        return new OffHeapMemory(null, expectedSize);
+    }
+
+    /**
+     * @return memory mapped from the given file, which is created or truncated
+     */
+    static OffHeapMemory mapped(Path file, long expectedSize) throws IOException {
+        return new OffHeapMemory(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), expectedSize);
+    }
+
+    /**
+     * Makes the offsets {@code [0, end)} addressable; new memory reads as zero.
+     */
+    void ensureCapacity(long end) {
+        int needed = (int) ((end + segmentMask) >>> segmentBits);
+        if (needed > segments.length) {
+            segments = Arrays.copyOf(segments, Math.max(needed, segments.length * 2));
+        }
+        while (segmentCount < needed) {
+            segments[segmentCount] = allocate(segmentCount);
+            segmentCount++;
+        }
+    }
+
+    /**
+     * @return the number of bytes currently allocated
+     */
+    long capacity() {
+        return segmentCount * segmentSize;
+    }
+
+    /**
+     * @return the segment holding the offset; index it with {@link #index(long)}
+     */
+    ByteBuffer segment(long offset) {
+        return segments[(int) (offset >>> segmentBits)];
+    }
+
+    int index(long offset) {
+        return (int) (offset & segmentMask);
+    }
+
+    byte get(long offset) {
+        return segment(offset).get(index(offset));
+    }
+
+    void put(long offset, byte value) {
+        segment(offset).put(index(offset), value);
+    }
+
+    int getInt(long offset) {
+        return segment(offset).getInt(index(offset));
+    }
+
+    void putInt(long offset, int value) {
+        segment(offset).putInt(index(offset), value);
+    }
+
+    long getLong(long offset) {
+        return segment(offset).getLong(index(offset));
+    }
+
+    void putLong(long offset, long value) {
+        segment(offset).putLong(index(offset), value);
+    }
+
+    /**
+     * Drops every segment; mapped memory is left in its file.
+     */
+    @Override
+    public void close() {
+        Arrays.fill(segments, null);
+        segmentCount = 0;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ByteBuffer allocate(int index) {
+        ByteBuffer segment;
+        if (channel == null) {
+            segment = ByteBuffer.allocateDirect((int) segmentSize);
+        } else {
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, index * segmentSize, segmentSize);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return segment.order(ByteOrder.nativeOrder());
+    }
+
+    private static int segmentBits(long expectedSize) {
+        int bits = 64 - Long.numberOfLeadingZeros(Math.max(1, expectedSize - 1));
+        return Math.max(MIN_SEGMENT_BITS, Math.min(MAX_SEGMENT_BITS, bits));
+    }
+}
@@ -0,0 +1,176 @@
+package com.autodrive.simulation.service;
+
+/**
+ * {@link OccupancyIndex} counterpart for an {@link OffHeapCarStore}: the same linear-probing
+ * table of cells and intrusive per-cell lists ordered by car index, with the table in
+ * {@link OffHeapMemory} and the per-car links and indexed flags in the car records.
+ * <p>
+ * A car is indexed on the cell of its current position, so its position may only change
+ * while it is out of the index. The table never grows: it is sized for every car of the
+ * store at half load.
+ */
+final class OffHeapOccupancy implements AutoCloseable {
+
+    private static final int NONE = -1;
+
+    private static final int SLOT_SIZE = 16;
+    private static final int CELL = 0;
+    private static final int FIRST = 8;
+    private static final int OCCUPANTS = 12;
+
+    private final OffHeapMemory cars;
+    private final OffHeapMemory table;
+    private final long mask;
+    private final int shift;
+
+    OffHeapOccupancy(OffHeapCarStore store) {
+        this.cars = store.cars;
+        long capacity = Long.highestOneBit(Math.max(4L, store.size()) * 2 - 1) << 1;
+        this.table = OffHeapMemory.direct(capacity * SLOT_SIZE);
+        table.ensureCapacity(capacity * SLOT_SIZE);
+        this.mask = capacity - 1;
+        this.shift = 64 - Long.numberOfTrailingZeros(capacity);
+    }
+
+    /**
+     * Puts a car that is not yet indexed on the cell of its position.
+     *
+     * @return how many cars share the cell afterwards
+     */
+    int add(int car) {
+        long record = OffHeapCarStore.record(car);
+        long cell = cellOf(car);
+        long slot = find(cell);
+        int occupants = table.getInt(slot + OCCUPANTS);
+        if (occupants == 0) {
+            table.putLong(slot + CELL, cell);
+            table.putInt(slot + FIRST, car);
+            cars.putInt(record + OffHeapCarStore.NEXT, NONE);
+        } else {
+            int first = table.getInt(slot + FIRST);
+            if (car < first) {
+                cars.putInt(record + OffHeapCarStore.NEXT, first);
+                table.putInt(slot + FIRST, car);
+            } else {
+                int previous = first;
+                int next = nextInCell(previous);
+                while (next != NONE && next < car) {
+                    previous = next;
+                    next = nextInCell(previous);
+                }
+                cars.putInt(record + OffHeapCarStore.NEXT, next);
+                cars.putInt(OffHeapCarStore.record(previous) + OffHeapCarStore.NEXT, car);
+            }
+        }
+        table.putInt(slot + OCCUPANTS, occupants + 1);
+        cars.put(record + OffHeapCarStore.FLAGS, (byte) (cars.get(record + OffHeapCarStore.FLAGS) | OffHeapCarStore.INDEXED));
+        return occupants + 1;
+    }
+
+    /**
+     * Takes a car out of the index; does nothing if it is not indexed.
+     */
+    void remove(int car) {
+        long record = OffHeapCarStore.record(car);
+        byte flags = cars.get(record + OffHeapCarStore.FLAGS);
+        if ((flags & OffHeapCarStore.INDEXED) == 0) {
+            return;
+        }
+        cars.put(record + OffHeapCarStore.FLAGS, (byte) (flags & ~OffHeapCarStore.INDEXED));
+
+        long slot = find(cellOf(car));
+        int first = table.getInt(slot + FIRST);
+        if (first == car) {
+            table.putInt(slot + FIRST, nextInCell(car));
+        } else {
+            int previous = first;
+            while (nextInCell(previous) != car) {
+                previous = nextInCell(previous);
+            }
+            cars.putInt(OffHeapCarStore.record(previous) + OffHeapCarStore.NEXT, nextInCell(car));
+        }
+
+        int occupants = table.getInt(slot + OCCUPANTS) - 1;
+        table.putInt(slot + OCCUPANTS, occupants);
+        if (occupants == 0) {
+            deleteSlot(slot);
+        }
+    }
+
+    boolean contains(int car) {
+        return (cars.get(OffHeapCarStore.record(car) + OffHeapCarStore.FLAGS) & OffHeapCarStore.INDEXED) != 0;
+    }
+
+    long cellOf(int car) {
+        long record = OffHeapCarStore.record(car);
+        return OccupancyIndex.cellKey(cars.getInt(record + OffHeapCarStore.X), cars.getInt(record + OffHeapCarStore.Y));
+    }
+
+    /**
+     * @return how many cars share the cell of the given indexed car
+     */
+    int occupants(int car) {
+        return table.getInt(find(cellOf(car)) + OCCUPANTS);
+    }
+
+    /**
+     * @return the earliest car on the cell of the given indexed car
+     */
+    int firstInCell(int car) {
+        return table.getInt(find(cellOf(car)) + FIRST);
+    }
+
+    /**
+     * @return the next car (by index) on the same cell, or a negative value after the last one
+     */
+    int nextInCell(int car) {
+        return cars.getInt(OffHeapCarStore.record(car) + OffHeapCarStore.NEXT);
+    }
+
+    @Override
+    public void close() {
+        table.close();
+    }
+
+    /**
+     * @return the offset of the slot holding the cell, or of the empty slot where it would be inserted
+     */
+    private long find(long cell) {
+        long slot = home(cell);
+        while (table.getInt(slot * SLOT_SIZE + OCCUPANTS) != 0 && table.getLong(slot * SLOT_SIZE + CELL) != cell) {
+            slot = (slot + 1) & mask;
+        }
+        return slot * SLOT_SIZE;
+    }
+
+    private long home(long cell) {
+        return (cell * 0x9E3779B97F4A7C15L) >>> shift;
+    }
+
+    /**
+     * Backward-shift deletion, so lookups never need tombstones.
+     */
+    private void deleteSlot(long offset) {
+        long hole = offset / SLOT_SIZE;
+        long next = hole;
+        while (true) {
+            next = (next + 1) & mask;
+            long nextOffset = next * SLOT_SIZE;
+            if (table.getInt(nextOffset + OCCUPANTS) == 0) {
+                break;
+            }
+            long home = home(table.getLong(nextOffset + CELL));
+            boolean homeBetween = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (!homeBetween) {
+                long holeOffset = hole * SLOT_SIZE;
+                table.putLong(holeOffset + CELL, table.getLong(nextOffset + CELL));
+                table.putInt(holeOffset + FIRST, table.getInt(nextOffset + FIRST));
+                table.putInt(holeOffset + OCCUPANTS, table.getInt(nextOffset + OCCUPANTS));
+                hole = next;
+            }
+        }
+        table.putInt(hole * SLOT_SIZE + OCCUPANTS, 0);
+    }
+}
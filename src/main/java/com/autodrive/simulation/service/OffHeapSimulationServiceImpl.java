@@ -0,0 +1,189 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Field;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * {@link SimulationService} that steps the cars of an {@link OffHeapCarStore} in place.
+ * <p>
+ * Positions, cursors, flags and the cell index all live off the heap, so a run of a stored
+ * fleet only allocates in proportion to the cars that end up in a collided cell. Instead of
+ * a list of moved cars, each step remembers the cars that entered an occupied cell: the last
+ * car to enter a cell still occupied at the end of the step is always among them, so checking
+ * those candidates finds the same collisions as {@link SimulationServiceImpl}.
+ * <p>
+ * Each car executes the command at its own cursor, and steps are counted from the start of
+ * the run. Runs on a list of {@link Car}s copy them into a temporary store and write the
+ * final state back, with the same results as {@link SimulationServiceImpl}.
+ */
+public class OffHeapSimulationServiceImpl implements SimulationService {
+
+    private static final byte[] TURN_LEFT = {3, 0, 1, 2};
+    private static final byte[] TURN_RIGHT = {1, 2, 3, 0};
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, false);
+    }
+
+    /**
+     * Runs the stored fleet until its first collision.
+     *
+     * @param names name of each car by index, only asked for when the result is read
+     */
+    public CollisionResult run(Field field, OffHeapCarStore store, IntFunction<String> names) {
+        CollisionLog log = simulate(field, store, true, new CollisionLog(store.asList(names)));
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    /**
+     * Runs the stored fleet to the end, recording every collision.
+     *
+     * @param names name of each car by index, only asked for when names are read from the log
+     */
+    public CollisionLog runAll(Field field, OffHeapCarStore store, IntFunction<String> names) {
+        return simulate(field, store, false, new CollisionLog(store.asList(names)));
+    }
+
+    private CollisionLog simulate(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+        try (OffHeapCarStore store = OffHeapCarStore.allocate(cars.size())) {
+            store.addAll(cars);
+            CollisionLog log = simulate(field, store, stopAtFirstCollision, new CollisionLog(cars));
+            store.writeBack(cars, 0);
+            return log;
+        }
+    }
+
+    private CollisionLog simulate(Field field, OffHeapCarStore store, boolean stopAtFirstCollision, CollisionLog log) {
+        OffHeapMemory cars = store.cars;
+        OffHeapMemory programs = store.programs;
+        int size = store.size();
+
+        try (OffHeapOccupancy occupancy = new OffHeapOccupancy(store)) {
+            int[] candidates = new int[16];
+            int candidateCount = 0;
+            int maxSteps = 0;
+
+            // As in OccupancyIndex#addAtStart, but only cars that share their start cell can collide in the first check
+            for (int car = 0; car < size; car++) {
+                long record = OffHeapCarStore.record(car);
+                // Like the reference, the run lasts as long as the longest program, inactive cars included
+                int remaining = programs.getInt(cars.getLong(record + OffHeapCarStore.PROGRAM))
+                        - cars.getInt(record + OffHeapCarStore.CURSOR);
+                maxSteps = Math.max(maxSteps, remaining);
+                if ((cars.get(record + OffHeapCarStore.FLAGS) & OffHeapCarStore.ACTIVE) == 0) {
+                    continue;
+                }
+                if (occupancy.add(car) > 1) {
+                    candidates = append(candidates, candidateCount++, car);
+                }
+            }
+
+            int[] collided = new int[16];
+            for (int step = 0; step < maxSteps; step++) {
+
+                for (int car = 0; car < size; car++) {
+                    long record = OffHeapCarStore.record(car);
+                    ByteBuffer segment = cars.segment(record);
+                    int at = cars.index(record);
+                    int flags = segment.get(at + OffHeapCarStore.FLAGS);
+                    if ((flags & OffHeapCarStore.ACTIVE) == 0) {
+                        continue;
+                    }
+                    int cursor = segment.getInt(at + OffHeapCarStore.CURSOR);
+                    long program = segment.getLong(at + OffHeapCarStore.PROGRAM);
+                    if (cursor >= programs.getInt(program)) {
+                        continue;
+                    }
+                    segment.putInt(at + OffHeapCarStore.CURSOR, cursor + 1);
+
+                    int heading = flags & OffHeapCarStore.HEADING;
+                    switch (programs.get(program + Integer.BYTES + cursor)) {
+                        case CommandProgram.LEFT:
+                            segment.put(at + OffHeapCarStore.FLAGS, (byte) (flags & ~OffHeapCarStore.HEADING | TURN_LEFT[heading]));
+                            break;
+                        case CommandProgram.RIGHT:
+                            segment.put(at + OffHeapCarStore.FLAGS, (byte) (flags & ~OffHeapCarStore.HEADING | TURN_RIGHT[heading]));
+                            break;
+                        case CommandProgram.FORWARD:
+                            int nextX = segment.getInt(at + OffHeapCarStore.X) + DX[heading];
+                            int nextY = segment.getInt(at + OffHeapCarStore.Y) + DY[heading];
+                            if (field.isInside(nextX, nextY)) {
+                                occupancy.remove(car);
+                                segment.putInt(at + OffHeapCarStore.X, nextX);
+                                segment.putInt(at + OffHeapCarStore.Y, nextY);
+                                if (occupancy.add(car) > 1) {
+                                    candidates = append(candidates, candidateCount++, car);
+                                }
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                }
+
+                // Earliest car of every cell a candidate still shares with another car
+                int collidedCount = 0;
+                for (int c = 0; c < candidateCount; c++) {
+                    int car = candidates[c];
+                    if (occupancy.contains(car) && occupancy.occupants(car) > 1) {
+                        collided = append(collided, collidedCount++, occupancy.firstInCell(car));
+                    }
+                }
+                candidateCount = 0;
+                collidedCount = OccupancyIndex.sortDistinct(collided, collidedCount);
+                if (stopAtFirstCollision) {
+                    collidedCount = Math.min(collidedCount, 1);
+                }
+
+                for (int c = 0; c < collidedCount; c++) {
+                    log.begin(step + 1, occupancy.cellOf(collided[c]));
+                    int car = collided[c];
+                    while (car >= 0) {
+                        int next = occupancy.nextInCell(car);
+                        store.deactivate(car);
+                        occupancy.remove(car);
+                        log.addCar(car);
+                        car = next;
+                    }
+                }
+
+                if (stopAtFirstCollision && collidedCount > 0) {
+                    break;
+                }
+            }
+        }
+
+        return log;
+    }
+
+    private static int[] append(int[] values, int count, int value) {
+        if (count == values.length) {
+            values = Arrays.copyOf(values, count * 2);
+        }
+        values[count] = value;
+        return values;
+    }
+}
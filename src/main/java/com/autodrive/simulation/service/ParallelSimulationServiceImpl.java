@@ -0,0 +1,384 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * {@link SimulationService} that runs every step on a {@link ForkJoinPool}.
+ * <p>
+ * Each step has three parallel phases:
+ * <ol>
+ *     <li>move: the cars are split into fixed ranges and each range executes its commands,
+ *     bucketing the cars that changed cell by the occupancy partition they leave and enter;</li>
+ *     <li>index update: every occupancy partition first removes the cars that left it,
+ *     then (in a separate phase) adds the cars that entered it;</li>
+ *     <li>collision: every partition looks for shared cells among the cars that entered it,
+ *     and the partitions are reduced by taking the earliest car.</li>
+ * </ol>
+ * The reported collision is the cell of the earliest car in the list, with names in list
+ * order, so the result is the same as {@link SimulationServiceImpl} whatever the number of
+ * threads.
+ */
+public class ParallelSimulationServiceImpl implements SimulationService {
+
+    private static final int DEFAULT_MIN_RANGE = 1024;
+
+    private final ForkJoinPool pool;
+    private final int minRange;
+
+    public ParallelSimulationServiceImpl() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelSimulationServiceImpl(ForkJoinPool pool) {
+        this(pool, DEFAULT_MIN_RANGE);
+    }
+
+    /**
+     * @param minRange the smallest number of cars one task moves in a step
+     */
+    ParallelSimulationServiceImpl(ForkJoinPool pool, int minRange) {
+        this.pool = pool;
+        this.minRange = minRange;
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, false);
+    }
+
+    private CollisionLog simulate(Field field, List<Car> cars, boolean stopAtFirstCollision) {
+        FleetState state = FleetState.of(cars);
+        ParallelRun run = new ParallelRun(state, field);
+        CollisionLog log = new CollisionLog(cars);
+
+        for (int step = 0; step < state.maxSteps; step++) {
+            run.move(step);
+            if (stopAtFirstCollision) {
+                int collided = run.earliestCollision(step);
+                if (collided >= 0) {
+                    run.collide(collided, step + 1, log);
+                    break;
+                }
+            } else {
+                run.collideAll(step, log);
+            }
+        }
+
+        state.writeBack(cars);
+        return log;
+    }
+
+    /**
+     * Per-run buffers; allocated once, then reused by every step.
+     */
+    private final class ParallelRun {
+
+        private final FleetState state;
+        private final Field field;
+        private final int partitions;
+        private final OccupancyIndex[] occupancy;
+        private final int rangeSize;
+        private final MoveRange[] ranges;
+        private final boolean sharedAtStart;
+        private final int[][] collided;
+        private final int[] collidedCount;
+        private final int[] merged;
+
+        ParallelRun(FleetState state, Field field) {
+            this.state = state;
+            this.field = field;
+            this.partitions = Integer.highestOneBit(Math.max(1, pool.getParallelism()) * 2 - 1);
+            this.occupancy = OccupancyIndex.partitioned(state.size, partitions);
+
+            boolean shared = false;
+            for (int car = 0; car < state.size; car++) {
+                if (state.active[car]) {
+                    OccupancyIndex index = partitionFor(state.cellKey(car));
+                    index.add(car, state.cellKey(car));
+                    shared |= index.occupants(car) > 1;
+                }
+            }
+            this.sharedAtStart = shared;
+
+            this.collided = new int[partitions][16];
+            this.collidedCount = new int[partitions];
+            this.merged = new int[state.size];
+
+            int perTask = (state.size + pool.getParallelism() * 4 - 1) / (pool.getParallelism() * 4);
+            this.rangeSize = Math.max(minRange, perTask);
+            this.ranges = new MoveRange[(state.size + rangeSize - 1) / rangeSize];
+            for (int r = 0; r < ranges.length; r++) {
+                int from = r * rangeSize;
+                ranges[r] = new MoveRange(from, Math.min(state.size, from + rangeSize), partitions);
+            }
+        }
+
+        /**
+         * Executes the commands of one step and updates the occupancy partitions.
+         */
+        void move(int step) {
+            forEach(ranges.length, r -> ranges[r].move(step));
+            forEach(partitions, p -> {
+                for (MoveRange range : ranges) {
+                    for (int i = range.leftStart[p]; i < range.leftStart[p + 1]; i++) {
+                        occupancy[p].remove(range.left[i]);
+                    }
+                }
+            });
+            forEach(partitions, p -> {
+                for (MoveRange range : ranges) {
+                    for (int i = range.enteredStart[p]; i < range.enteredStart[p + 1]; i++) {
+                        int car = range.entered[i];
+                        occupancy[p].add(car, state.cellKey(car));
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return the earliest car of the collided cell to report after the step, or a negative value
+         */
+        int earliestCollision(int step) {
+            int collided = minOf(partitions, p -> {
+                int earliest = -1;
+                for (MoveRange range : ranges) {
+                    int candidate = occupancy[p].earliestCollision(
+                            range.entered, range.enteredStart[p], range.enteredStart[p + 1]);
+                    earliest = earlier(earliest, candidate);
+                }
+                return earliest;
+            });
+
+            // Cars that shared a cell before the first step may not have moved at all
+            if (step == 0 && sharedAtStart) {
+                for (int car = 0; car < state.size; car++) {
+                    if (state.active[car]) {
+                        OccupancyIndex index = partitionFor(state.cellKey(car));
+                        if (index.occupants(car) > 1) {
+                            collided = earlier(collided, index.firstInCell(car));
+                        }
+                    }
+                }
+            }
+            return collided;
+        }
+
+        /**
+         * Records and deactivates every collided cell of the step, ordered by earliest car.
+         */
+        void collideAll(int step, CollisionLog log) {
+            forEach(partitions, p -> {
+                int candidates = 0;
+                for (MoveRange range : ranges) {
+                    candidates += range.enteredStart[p + 1] - range.enteredStart[p];
+                }
+                if (collided[p].length < candidates) {
+                    collided[p] = new int[Math.max(candidates, collided[p].length * 2)];
+                }
+
+                int count = 0;
+                for (MoveRange range : ranges) {
+                    count = occupancy[p].collectCollisions(
+                            range.entered, range.enteredStart[p], range.enteredStart[p + 1], collided[p], count);
+                }
+                collidedCount[p] = OccupancyIndex.sortDistinct(collided[p], count);
+            });
+
+            // A collided cell belongs to exactly one partition, so the merge only needs a sort
+            int total = 0;
+            for (int p = 0; p < partitions; p++) {
+                System.arraycopy(collided[p], 0, merged, total, collidedCount[p]);
+                total += collidedCount[p];
+            }
+            if (step == 0 && sharedAtStart) {
+                for (int car = 0; car < state.size; car++) {
+                    if (state.active[car]) {
+                        OccupancyIndex index = partitionFor(state.cellKey(car));
+                        if (index.occupants(car) > 1 && index.firstInCell(car) == car) {
+                            merged[total++] = car;
+                        }
+                    }
+                }
+            }
+            total = OccupancyIndex.sortDistinct(merged, total);
+
+            for (int c = 0; c < total; c++) {
+                collide(merged[c], step + 1, log);
+            }
+        }
+
+        void collide(int firstCar, int collisionStep, CollisionLog log) {
+            state.collide(partitionFor(state.cellKey(firstCar)), firstCar, collisionStep, log);
+        }
+
+        private OccupancyIndex partitionFor(long cell) {
+            return occupancy[OccupancyIndex.partitionOf(cell, partitions)];
+        }
+
+        private int earlier(int a, int b) {
+            if (a < 0) {
+                return b;
+            }
+            return b < 0 ? a : Math.min(a, b);
+        }
+
+        private void forEach(int count, IntConsumer action) {
+            if (count == 1) {
+                action.accept(0);
+            } else {
+                pool.invoke(new ForEachTask(0, count, action));
+            }
+        }
+
+        private int minOf(int count, IntUnaryOperator value) {
+            return count == 1 ? value.applyAsInt(0) : pool.invoke(new EarliestTask(0, count, value));
+        }
+
+        /**
+         * A fixed range of cars, moved by one task, with the cars that changed cell grouped
+         * by the partition they left and the partition they entered.
+         */
+        private final class MoveRange {
+
+            final int from;
+            final int to;
+            final int[] moved;
+            final int[] left;
+            final int[] leftStart;
+            final int[] entered;
+            final int[] enteredStart;
+            private final int[] leftCursor;
+            private final int[] enteredCursor;
+
+            MoveRange(int from, int to, int partitions) {
+                this.from = from;
+                this.to = to;
+                this.moved = new int[to - from];
+                this.left = new int[to - from];
+                this.entered = new int[to - from];
+                this.leftStart = new int[partitions + 1];
+                this.enteredStart = new int[partitions + 1];
+                this.leftCursor = new int[partitions];
+                this.enteredCursor = new int[partitions];
+            }
+
+            void move(int step) {
+                int movedCount = 0;
+                for (int car = from; car < to; car++) {
+                    if (state.execute(car, step, field)) {
+                        moved[movedCount++] = car;
+                    }
+                }
+
+                // The index still holds the previous cell, the state already the new one
+                Arrays.fill(leftStart, 0);
+                Arrays.fill(enteredStart, 0);
+                for (int i = 0; i < movedCount; i++) {
+                    int car = moved[i];
+                    leftStart[partitionLeft(car) + 1]++;
+                    enteredStart[partitionEntered(car) + 1]++;
+                }
+                for (int p = 0; p < partitions; p++) {
+                    leftStart[p + 1] += leftStart[p];
+                    enteredStart[p + 1] += enteredStart[p];
+                }
+                System.arraycopy(leftStart, 0, leftCursor, 0, partitions);
+                System.arraycopy(enteredStart, 0, enteredCursor, 0, partitions);
+                for (int i = 0; i < movedCount; i++) {
+                    int car = moved[i];
+                    left[leftCursor[partitionLeft(car)]++] = car;
+                    entered[enteredCursor[partitionEntered(car)]++] = car;
+                }
+            }
+
+            private int partitionLeft(int car) {
+                return OccupancyIndex.partitionOf(occupancy[0].cellOf(car), partitions);
+            }
+
+            private int partitionEntered(int car) {
+                return OccupancyIndex.partitionOf(state.cellKey(car), partitions);
+            }
+        }
+    }
+
+    private static final class ForEachTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        ForEachTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ForEachTask(from, middle, action), new ForEachTask(middle, to, action));
+        }
+    }
+
+    /**
+     * Parallel reduction keeping the smallest non-negative value, or a negative value if there is none.
+     */
+    private static final class EarliestTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntUnaryOperator value;
+
+        EarliestTask(int from, int to, IntUnaryOperator value) {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from == 1) {
+                return value.applyAsInt(from);
+            }
+            int middle = (from + to) >>> 1;
+            EarliestTask right = new EarliestTask(middle, to, value);
+            right.fork();
+            int a = new EarliestTask(from, middle, value).compute();
+            int b = right.join();
+            if (a < 0) {
+                return b;
+            }
+            return b < 0 ? a : Math.min(a, b);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+
+/**
+ * Scratch space for moving cars of a {@link FleetState} several steps at once through
+ * their {@link MacroProgram} ops.
+ * <p>
+ * {@link #project} computes where a car will be without touching the fleet state, together
+ * with the bounding box of the cells it visits on the way; {@link #commit} then applies the
+ * projected state. Forward runs are clamped against {@code [0, width) x [0, height)}, so
+ * projections are only exact for cars that start inside the field.
+ */
+final class Projection {
+
+    final int[] endX;
+    final int[] endY;
+    final byte[] endDir;
+    final int[] minX;
+    final int[] maxX;
+    final int[] minY;
+    final int[] maxY;
+
+    Projection(int size) {
+        this.endX = new int[size];
+        this.endY = new int[size];
+        this.endDir = new byte[size];
+        this.minX = new int[size];
+        this.maxX = new int[size];
+        this.minY = new int[size];
+        this.maxY = new int[size];
+    }
+
+    /**
+     * Computes the state of a car at step {@code to} from its current state at step {@code from},
+     * and its bounding box over the steps in between.
+     */
+    void project(FleetState state, MacroProgram program, Field field, int car, int from, int to) {
+        int x = state.x[car];
+        int y = state.y[car];
+        int dir = state.dir[car];
+        minX[car] = x;
+        maxX[car] = x;
+        minY[car] = y;
+        maxY[car] = y;
+
+        int limit = Math.min(to, state.commandLength(car));
+        int step = from;
+        int op = step < limit ? program.opAt(car, step) : -1;
+        while (step < limit) {
+            int until = Math.min(program.opEnd(op), limit);
+            int count = until - step;
+            if (program.isForward(op)) {
+                switch (dir) {
+                    case 0:
+                        y = (int) Math.min((long) y + count, field.getHeight() - 1);
+                        break;
+                    case 1:
+                        x = (int) Math.min((long) x + count, field.getWidth() - 1);
+                        break;
+                    case 2:
+                        y = (int) Math.max((long) y - count, 0);
+                        break;
+                    default:
+                        x = (int) Math.max((long) x - count, 0);
+                        break;
+                }
+                minX[car] = Math.min(minX[car], x);
+                maxX[car] = Math.max(maxX[car], x);
+                minY[car] = Math.min(minY[car], y);
+                maxY[car] = Math.max(maxY[car], y);
+            } else if (step == program.opBegin(car, op) && until == program.opEnd(op)) {
+                dir = (dir + program.quarterTurnsOf(op)) & 3;
+            } else {
+                int base = state.commandStart(car);
+                for (int s = step; s < until; s++) {
+                    dir = (dir + MacroProgram.quarterTurns(state.commands[base + s])) & 3;
+                }
+            }
+            step = until;
+            op++;
+        }
+
+        endX[car] = x;
+        endY[car] = y;
+        endDir[car] = (byte) dir;
+    }
+
+    /**
+     * Copies the last projected state of the car into the fleet state.
+     */
+    void commit(FleetState state, int car) {
+        state.x[car] = endX[car];
+        state.y[car] = endY[car];
+        state.dir[car] = endDir[car];
+    }
+
+    boolean boxesOverlap(int a, int b) {
+        return minX[a] <= maxX[b] && minX[b] <= maxX[a]
+                && minY[a] <= maxY[b] && minY[b] <= maxY[a];
+    }
+}
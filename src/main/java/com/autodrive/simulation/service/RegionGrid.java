@@ -0,0 +1,36 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Splits a field into {@code columns x rows} rectangular regions of (nearly) equal size.
+ * <p>
+ * Every cell, inside the field or not, belongs to exactly one region: coordinates beyond
+ * the field are clamped to the border regions. Regions are numbered row by row, starting
+ * at the region holding {@code (0, 0)}.
+ */
+final class RegionGrid {
+
+    private final int columns;
+    private final int rows;
+    private final int columnWidth;
+    private final int rowHeight;
+
+    RegionGrid(int width, int height, int columns, int rows) {
+        if (columns <= 0 || rows <= 0) {
+            throw new IllegalArgumentException("Grid must be at least 1x1: " + columns + "x" + rows);
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.columnWidth = Math.max(1, (width + columns - 1) / columns);
+        this.rowHeight = Math.max(1, (height + rows - 1) / rows);
+    }
+
+    int regionCount() {
+        return columns * rows;
+    }
+
+    int regionOf(int x, int y) {
+        int column = Math.min(columns - 1, Math.max(0, Math.floorDiv(x, columnWidth)));
+        int row = Math.min(rows - 1, Math.max(0, Math.floorDiv(y, rowHeight)));
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,340 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.CommandProgram;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Worker process of {@link DistributedSimulationServiceImpl}: simulates the cars standing
+ * in one region of the field.
+ * <p>
+ * The worker connects back to the coordinator and then only answers its messages (see
+ * {@link DistributedSimulationServiceImpl} for the step protocol). Cars are kept in
+ * slots; a slot freed by a car leaving the region is reused by the next car arriving.
+ * Only the cars of the region are held, so a worker needs memory for its share of the fleet
+ * and for the table of distinct programs of the run, which every worker receives once so
+ * that a car crossing into the region only brings the index of its program.
+ * <p>
+ * Started as {@code java -cp <classpath> com.autodrive.simulation.service.RegionWorker <port> <region>}.
+ */
+public final class RegionWorker {
+
+    static final int INIT = 1;
+    static final int STEP = 2;
+    static final int IMMIGRANTS = 3;
+    static final int FINISH = 4;
+    static final int SHUTDOWN = 5;
+
+    private static final int FREE = -1;
+    private static final int[] TURN_LEFT = {3, 0, 1, 2};
+    private static final int[] TURN_RIGHT = {1, 2, 3, 0};
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    private final int region;
+
+    private int width;
+    private int height;
+    private RegionGrid grid;
+
+    /** Global car index per slot, or {@link #FREE}. */
+    private int[] global = new int[0];
+    private int[] x = new int[0];
+    private int[] y = new int[0];
+    private int[] dir = new int[0];
+    private boolean[] active = new boolean[0];
+    /** Program table of the run, sent once by {@code INIT}. */
+    private byte[][] programs = new byte[0][];
+    private int[] programId = new int[0];
+    private byte[][] program = new byte[0][];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private OccupancyIndex occupancy = new OccupancyIndex(0);
+
+    /** Cars whose cell has to be checked at the end of the current step. */
+    private int[] candidates = new int[16];
+    private int candidateCount;
+    private int[] emigrants = new int[16];
+
+    RegionWorker(int region) {
+        this.region = region;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: RegionWorker <coordinator port> <region>");
+            System.exit(2);
+        }
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+            new RegionWorker(Integer.parseInt(args[1])).serve(socket);
+        }
+    }
+
+    /**
+     * Answers the coordinator until it shuts the worker down or closes the connection.
+     */
+    void serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(region);
+        out.flush();
+
+        while (true) {
+            int message = in.read();
+            switch (message) {
+                case INIT:
+                    init(in);
+                    break;
+                case STEP:
+                    deactivate(in);
+                    move(in.readInt(), out);
+                    break;
+                case IMMIGRANTS:
+                    receive(in);
+                    reportCollisions(out);
+                    break;
+                case FINISH:
+                    deactivate(in);
+                    sendStates(out);
+                    break;
+                case SHUTDOWN:
+                case -1:
+                    return;
+                default:
+                    throw new IOException("Unknown message " + message);
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Replaces the cars of the worker with the cars of a new run.
+     */
+    private void init(DataInputStream in) throws IOException {
+        width = in.readInt();
+        height = in.readInt();
+        grid = new RegionGrid(width, height, in.readInt(), in.readInt());
+
+        programs = new byte[in.readInt()][];
+        for (int p = 0; p < programs.length; p++) {
+            programs[p] = readProgram(in);
+        }
+
+        int count = in.readInt();
+        allocate(count);
+        slotCount = 0;
+        freeCount = 0;
+        candidateCount = 0;
+        if (candidates.length < count) {
+            candidates = new int[count];
+        }
+        occupancy = new OccupancyIndex(global.length);
+        for (int i = 0; i < count; i++) {
+            int slot = slotCount++;
+            global[slot] = in.readInt();
+            x[slot] = in.readInt();
+            y[slot] = in.readInt();
+            dir[slot] = in.readByte();
+            active[slot] = in.readBoolean();
+            programId[slot] = in.readInt();
+            program[slot] = programs[programId[slot]];
+            if (active[slot]) {
+                candidateCount = occupancy.addAtStart(slot, OccupancyIndex.cellKey(x[slot], y[slot]), candidates,
+                        candidateCount);
+            }
+        }
+    }
+
+    /**
+     * Executes the step for the cars of the region and sends the ones that left it.
+     */
+    private void move(int step, DataOutputStream out) throws IOException {
+        int emigrantCount = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (global[slot] == FREE || !active[slot] || step >= program[slot].length) {
+                continue;
+            }
+            switch (program[slot][step]) {
+                case CommandProgram.LEFT:
+                    dir[slot] = TURN_LEFT[dir[slot]];
+                    break;
+                case CommandProgram.RIGHT:
+                    dir[slot] = TURN_RIGHT[dir[slot]];
+                    break;
+                case CommandProgram.FORWARD:
+                    int nextX = x[slot] + DX[dir[slot]];
+                    int nextY = y[slot] + DY[dir[slot]];
+                    if (nextX >= 0 && nextX < width && nextY >= 0 && nextY < height) {
+                        x[slot] = nextX;
+                        y[slot] = nextY;
+                        if (grid.regionOf(nextX, nextY) == region) {
+                            occupancy.move(slot, OccupancyIndex.cellKey(nextX, nextY));
+                            addCandidate(slot);
+                        } else {
+                            occupancy.remove(slot);
+                            if (emigrantCount == emigrants.length) {
+                                emigrants = Arrays.copyOf(emigrants, emigrantCount * 2);
+                            }
+                            emigrants[emigrantCount++] = slot;
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        out.writeInt(emigrantCount);
+        for (int e = 0; e < emigrantCount; e++) {
+            int slot = emigrants[e];
+            writeCar(out, global[slot], x[slot], y[slot], dir[slot], programId[slot]);
+            global[slot] = FREE;
+            program[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Takes over the cars that moved into the region during the step.
+     */
+    private void receive(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int slot = freeCount > 0 ? freeSlots[--freeCount] : newSlot();
+            global[slot] = in.readInt();
+            x[slot] = in.readInt();
+            y[slot] = in.readInt();
+            dir[slot] = in.readByte();
+            active[slot] = true;
+            programId[slot] = in.readInt();
+            program[slot] = programs[programId[slot]];
+            occupancy.add(slot, OccupancyIndex.cellKey(x[slot], y[slot]));
+            addCandidate(slot);
+        }
+    }
+
+    /**
+     * Sends every cell of the region that a candidate shares with another car, with its
+     * cars in global order. The cars stay active until the coordinator asks for them.
+     */
+    private void reportCollisions(DataOutputStream out) throws IOException {
+        int[] collided = new int[candidateCount];
+        int collidedCount = occupancy.collisions(candidates, 0, candidateCount, collided);
+        candidateCount = 0;
+
+        out.writeInt(collidedCount);
+        int[] cars = new int[4];
+        for (int c = 0; c < collidedCount; c++) {
+            int count = 0;
+            for (int slot = collided[c]; slot >= 0; slot = occupancy.nextInCell(slot)) {
+                if (count == cars.length) {
+                    cars = Arrays.copyOf(cars, count * 2);
+                }
+                cars[count++] = global[slot];
+            }
+            Arrays.sort(cars, 0, count);
+            out.writeLong(occupancy.cellOf(collided[c]));
+            out.writeInt(count);
+            for (int k = 0; k < count; k++) {
+                out.writeInt(cars[k]);
+            }
+        }
+    }
+
+    /**
+     * Deactivates the cars on the cells the coordinator kept as collisions of the last step.
+     */
+    private void deactivate(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            int slot = occupancy.firstAt(in.readLong());
+            while (slot >= 0) {
+                int next = occupancy.nextInCell(slot);
+                active[slot] = false;
+                occupancy.remove(slot);
+                slot = next;
+            }
+        }
+    }
+
+    private void sendStates(DataOutputStream out) throws IOException {
+        out.writeInt(slotCount - freeCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (global[slot] != FREE) {
+                out.writeInt(global[slot]);
+                out.writeInt(x[slot]);
+                out.writeInt(y[slot]);
+                out.writeByte(dir[slot]);
+                out.writeBoolean(active[slot]);
+            }
+        }
+    }
+
+    private void addCandidate(int slot) {
+        if (candidateCount == candidates.length) {
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        }
+        candidates[candidateCount++] = slot;
+    }
+
+    private int newSlot() {
+        if (slotCount == global.length) {
+            allocate(Math.max(16, slotCount * 2));
+            // The index has one entry per slot, so it is rebuilt for the new capacity
+            occupancy = new OccupancyIndex(global.length);
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (global[slot] != FREE && active[slot]) {
+                    occupancy.add(slot, OccupancyIndex.cellKey(x[slot], y[slot]));
+                }
+            }
+        }
+        return slotCount++;
+    }
+
+    private void allocate(int capacity) {
+        if (capacity <= global.length) {
+            return;
+        }
+        global = Arrays.copyOf(global, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        dir = Arrays.copyOf(dir, capacity);
+        active = Arrays.copyOf(active, capacity);
+        programId = Arrays.copyOf(programId, capacity);
+        program = Arrays.copyOf(program, capacity);
+    }
+
+    /**
+     * Writes a car crossing into another region; its program goes as an index into the table of the run.
+     */
+    static void writeCar(DataOutputStream out, int car, int x, int y, int dir, int program) throws IOException {
+        out.writeInt(car);
+        out.writeInt(x);
+        out.writeInt(y);
+        out.writeByte(dir);
+        out.writeInt(program);
+    }
+
+    static void writeProgram(DataOutputStream out, byte[] program) throws IOException {
+        out.writeInt(program.length);
+        out.write(program);
+    }
+
+    static byte[] readProgram(DataInputStream in) throws IOException {
+        byte[] program = new byte[in.readInt()];
+        in.readFully(program);
+        return program;
+    }
+}
@@ -0,0 +1,246 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+
+import java.util.*;
+
+/**
+ * {@link SimulationService} that jumps isolated cars across whole runs of commands.
+ * <p>
+ * Commands are compiled into run-length {@link MacroProgram} ops ({@code FORWARD n},
+ * {@code TURN k}), and the run is cut into windows of {@code window} steps. At the start of
+ * a window every car's bounding box for the window is computed from its ops; a car whose
+ * box does not touch any other active car's box cannot take part in a collision during the
+ * window, so it is moved to its end-of-window state in O(ops) instead of step by step.
+ * The other cars are stepped exactly as in {@link SimulationServiceImpl}. When only one
+ * car is active, the window spans the rest of the run.
+ * <p>
+ * Forward runs are clamped against the rectangle {@code [0, width) x [0, height)} of the
+ * field, which is what {@link Field#isInside(int, int)} checks; cars starting outside the
+ * field are always stepped.
+ */
+public class RunLengthSimulationServiceImpl implements SimulationService {
+
+    private static final int DEFAULT_WINDOW = 64;
+
+    /** Above this many nearby cars a car is stepped without checking every box. */
+    private static final int NEIGHBOUR_LIMIT = 32;
+
+    private final int window;
+
+    public RunLengthSimulationServiceImpl() {
+        this(DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param window number of steps planned at once; larger windows jump further but give
+     *               bigger boxes that overlap more often
+     */
+    public RunLengthSimulationServiceImpl(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        this.window = window;
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = new RunLengthRun(field, cars).simulate(true);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return new RunLengthRun(field, cars).simulate(false);
+    }
+
+    private final class RunLengthRun {
+
+        private final Field field;
+        private final List<Car> cars;
+        private final FleetState state;
+        private final MacroProgram program;
+        private final OccupancyIndex occupancy;
+        private final CollisionLog log;
+        private final boolean[] inside;
+
+        private final int[] moved;
+        private final int[] collided;
+        private final int[] stepped;
+        private final int[] jumped;
+        private int steppedCount;
+        private int jumpedCount;
+
+        /** End-of-window state of jumped cars and window bounding box of every active car. */
+        private final Projection projection;
+        private final OccupancyIndex tiles;
+
+        RunLengthRun(Field field, List<Car> cars) {
+            this.field = field;
+            this.cars = cars;
+            this.state = FleetState.of(cars);
+            this.program = MacroProgram.compile(state);
+            this.occupancy = new OccupancyIndex(state.size);
+            this.log = new CollisionLog(cars);
+            this.inside = new boolean[state.size];
+            this.moved = new int[state.size];
+            this.collided = new int[state.size];
+            this.stepped = new int[state.size];
+            this.jumped = new int[state.size];
+            this.projection = new Projection(state.size);
+            this.tiles = new OccupancyIndex(state.size);
+
+            for (int car = 0; car < state.size; car++) {
+                inside[car] = field.isInside(state.x[car], state.y[car]);
+            }
+        }
+
+        CollisionLog simulate(boolean stopAtFirstCollision) {
+            int movedCount = state.addStartCells(occupancy, moved);
+
+            int step = 0;
+            while (step < state.maxSteps) {
+                int end = activeCount() <= 1 ? state.maxSteps : (int) Math.min((long) step + window, state.maxSteps);
+                plan(step, end);
+
+                for (int s = step; s < end; s++) {
+                    for (int i = 0; i < steppedCount; i++) {
+                        int car = stepped[i];
+                        if (state.execute(car, s, field)) {
+                            occupancy.move(car, state.cellKey(car));
+                            if (s > 0) {
+                                moved[movedCount++] = car;
+                            }
+                        }
+                    }
+
+                    int collidedCount;
+                    if (stopAtFirstCollision) {
+                        collided[0] = occupancy.earliestCollision(moved, movedCount);
+                        collidedCount = collided[0] < 0 ? 0 : 1;
+                    } else {
+                        collidedCount = occupancy.collisions(moved, 0, movedCount, collided);
+                    }
+                    movedCount = 0;
+
+                    for (int c = 0; c < collidedCount; c++) {
+                        state.collide(occupancy, collided[c], s + 1, log);
+                    }
+
+                    if (stopAtFirstCollision && collidedCount > 0) {
+                        // Jumped cars are still at the start of the window; bring them to this step
+                        for (int i = 0; i < jumpedCount; i++) {
+                            int car = jumped[i];
+                            project(car, step, s + 1);
+                            commit(car);
+                        }
+                        state.writeBack(cars);
+                        return log;
+                    }
+                }
+
+                for (int i = 0; i < jumpedCount; i++) {
+                    commit(jumped[i]);
+                }
+                step = end;
+            }
+
+            state.writeBack(cars);
+            return log;
+        }
+
+        private int activeCount() {
+            int count = 0;
+            for (int car = 0; car < state.size && count < 2; car++) {
+                if (state.active[car]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Splits the active cars into cars stepped during {@code [from, to)} and isolated cars jumped to {@code to}.
+         */
+        private void plan(int from, int to) {
+            int span = to - from;
+            long tileSize = 2L * span + 1;
+
+            for (int car = 0; car < state.size; car++) {
+                if (!state.active[car]) {
+                    continue;
+                }
+                if (inside[car]) {
+                    project(car, from, to);
+                } else {
+                    projection.minX[car] = state.x[car] - span;
+                    projection.maxX[car] = state.x[car] + span;
+                    projection.minY[car] = state.y[car] - span;
+                    projection.maxY[car] = state.y[car] + span;
+                }
+                tiles.add(car, OccupancyIndex.cellKey(
+                        (int) Math.floorDiv(state.x[car], tileSize), (int) Math.floorDiv(state.y[car], tileSize)));
+            }
+
+            steppedCount = 0;
+            jumpedCount = 0;
+            for (int car = 0; car < state.size; car++) {
+                if (!state.active[car]) {
+                    continue;
+                }
+                if (inside[car] && isIsolated(car)) {
+                    jumped[jumpedCount++] = car;
+                } else {
+                    stepped[steppedCount++] = car;
+                }
+            }
+
+            for (int car = 0; car < state.size; car++) {
+                tiles.remove(car);
+            }
+        }
+
+        /**
+         * Two boxes of a window can only overlap if the cars start in the same or in adjacent tiles.
+         */
+        private boolean isIsolated(int car) {
+            long tile = tiles.cellOf(car);
+            int tileX = OccupancyIndex.cellX(tile);
+            int tileY = OccupancyIndex.cellY(tile);
+            int neighbours = 0;
+
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int other = tiles.firstAt(OccupancyIndex.cellKey(tileX + dx, tileY + dy));
+                    for (; other >= 0; other = tiles.nextInCell(other)) {
+                        if (other == car) {
+                            continue;
+                        }
+                        if (++neighbours > NEIGHBOUR_LIMIT || projection.boxesOverlap(car, other)) {
+                            return false;
+                        }
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void project(int car, int from, int to) {
+            projection.project(state, program, field, car, from, to);
+        }
+
+        private void commit(int car) {
+            projection.commit(state, car);
+            occupancy.move(car, state.cellKey(car));
+        }
+    }
+}
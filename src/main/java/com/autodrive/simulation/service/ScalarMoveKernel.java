@@ -0,0 +1,55 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.CommandProgram;
+
+/**
+ * {@link MoveKernel} running one car at a time, with table lookups instead of the
+ * {@link com.autodrive.simulation.model.Direction} objects of {@link com.autodrive.simulation.model.Car}.
+ */
+final class ScalarMoveKernel implements MoveKernel {
+
+    private static final int[] TURN_LEFT = {3, 0, 1, 2};
+    private static final int[] TURN_RIGHT = {1, 2, 3, 0};
+    private static final int[] DX = {0, 1, 0, -1};
+    private static final int[] DY = {1, 0, -1, 0};
+
+    @Override
+    public void step(int count, int[] codes, int[] x, int[] y, int[] dir, int width, int height, boolean[] moved) {
+        step(0, count, codes, x, y, dir, width, height, moved);
+    }
+
+    /**
+     * Executes the codes of the cars {@code [from, to)}.
+     */
+    static void step(int from, int to, int[] codes, int[] x, int[] y, int[] dir, int width, int height,
+                     boolean[] moved) {
+        for (int i = from; i < to; i++) {
+            boolean changed = false;
+            switch (codes[i]) {
+                case CommandProgram.LEFT:
+                    dir[i] = TURN_LEFT[dir[i]];
+                    break;
+                case CommandProgram.RIGHT:
+                    dir[i] = TURN_RIGHT[dir[i]];
+                    break;
+                case CommandProgram.FORWARD:
+                    int nextX = x[i] + DX[dir[i]];
+                    int nextY = y[i] + DY[dir[i]];
+                    if (nextX >= 0 && nextX < width && nextY >= 0 && nextY < height) {
+                        x[i] = nextX;
+                        y[i] = nextY;
+                        changed = true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            moved[i] = changed;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,121 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Field;
+
+import java.util.List;
+
+/**
+ * 128-bit hash of everything a run depends on: the field size and, in list order, the name,
+ * position, heading, active flag and program of every car.
+ * <p>
+ * Programs contribute their cached 128-bit fingerprint ({@link CommandProgram#fingerprint()}
+ * and {@link CommandProgram#fingerprintLow()}), so hashing a scenario costs a few operations
+ * per car no matter how long the programs are, and command strings that only differ in
+ * ignored characters give the same fingerprint. Two different programs thus only share a
+ * key if both of their independent 64-bit hashes collide.
+ * <p>
+ * The hash is not cryptographic: accidental collisions are negligible, but a scenario built
+ * on purpose to collide with another one is not ruled out.
+ */
+public final class ScenarioFingerprint {
+
+    private static final long SEED_HIGH = 0x243F6A8885A308D3L;
+    private static final long SEED_LOW = 0x13198A2E03707344L;
+
+    private final long high;
+    private final long low;
+
+    private ScenarioFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static ScenarioFingerprint of(Field field, List<Car> cars) {
+        Hasher hasher = new Hasher();
+        hasher.add(OccupancyIndex.cellKey(field.getWidth(), field.getHeight()));
+        hasher.add(cars.size());
+        for (Car car : cars) {
+            String name = car.getName();
+            hasher.add(name == null ? -1 : name.length());
+            if (name != null) {
+                for (int i = 0; i < name.length(); i += 4) {
+                    long word = 0;
+                    for (int k = i, end = Math.min(i + 4, name.length()); k < end; k++) {
+                        word = word << 16 | name.charAt(k);
+                    }
+                    hasher.add(word);
+                }
+            }
+            hasher.add(OccupancyIndex.cellKey(car.getX(), car.getY()));
+            CommandProgram program = car.getProgram();
+            hasher.add((long) car.getDirection().ordinal() << 1 | (car.isActive() ? 1 : 0));
+            hasher.add(program == null ? 0 : program.fingerprint());
+            hasher.add(program == null ? 0 : program.fingerprintLow());
+        }
+        return new ScenarioFingerprint(hasher.finish(hasher.high), hasher.finish(hasher.low));
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * @return the fingerprint as 32 hex digits, e.g. for file names
+     */
+    public String toHex() {
+        return String.format("%016x%016x", high, low);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ScenarioFingerprint)) {
+            return false;
+        }
+        ScenarioFingerprint other = (ScenarioFingerprint) o;
+        return high == other.high && low == other.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ low >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    /**
+     * Two independent multiply-rotate lanes over the same words.
+     */
+    private static final class Hasher {
+
+        long high = SEED_HIGH;
+        long low = SEED_LOW;
+        long count;
+
+        void add(long word) {
+            high = Long.rotateLeft(high ^ word * 0x9E3779B97F4A7C15L, 29) * 0xBF58476D1CE4E5B9L;
+            low = Long.rotateLeft(low ^ word * 0xC2B2AE3D27D4EB4FL, 37) * 0x94D049BB133111EBL;
+            count++;
+        }
+
+        long finish(long lane) {
+            lane ^= count;
+            lane ^= lane >>> 33;
+            lane *= 0xFF51AFD7ED558CCDL;
+            lane ^= lane >>> 33;
+            lane *= 0xC4CEB9FE1A85EC53L;
+            return lane ^ lane >>> 33;
+        }
+    }
+}
@@ -18,5 +18,37 @@ public interface SimulationService {
      * @return a {@link CollisionResult} when a collision occurs; otherwise {@code null}.
      */
     CollisionResult run(Field field, List<Car> cars);
+
+    /**
+     * Runs the simulation like {@link #run(Field, List)} and hands the state of every car
+     * after each command it executes to the recorder, e.g. a {@link TrajectoryTrace}.
+     * <p>
+     * Engines that jump over steps cannot observe each of them. By default the result and the
+     * final state of the cars come from {@link #run(Field, List)} of this service, and the steps
+     * handed to the recorder are replayed from a copy of the start state by the step-by-step
+     * {@link SimulationServiceImpl}, which takes the same steps.
+     */
+    default CollisionResult run(Field field, List<Car> cars, TrajectoryRecorder recorder) {
+        if (cars == null || cars.isEmpty()) {
+            return run(field, cars);
+        }
+        List<Car> replay = StateSnapshot.of(0, cars).restore(cars);
+        CollisionResult result = run(field, cars);
+        new SimulationServiceImpl().simulate(field, replay, 0, Integer.MAX_VALUE, true, recorder);
+        return result;
+    }
+
+    /**
+     * Runs the simulation for the given field and cars without stopping at the first collision.
+     * Collided cars are deactivated and the remaining cars carry on until every command is executed.
+     * <p>
+     * By default the run goes through the reference {@link SimulationServiceImpl}, so services
+     * written before this method keep compiling; engines override it with their own run.
+     *
+     * @return every collision of the run; empty when no collision occurs.
+     */
+    default CollisionLog runAll(Field field, List<Car> cars) {
+        return new SimulationServiceImpl().runAll(field, cars);
+    }
 }
 
@@ -11,6 +11,12 @@ public class SimulationServiceImpl implements SimulationService {
      * Runs the simulation for the given field and list of cars.
      * Returns {@link CollisionResult} when a collision occurs (and marks collided cars inactive).
      * Returns {@code null} if no collision occurred.
+     * <p>
+     * When several cells collide in the same step, the reported one is the cell
+     * of the earliest car in the list, so the result does not depend on hashing.
+     * <p>
+     * Occupied cells are tracked in an {@link OccupancyIndex} that is only updated for cars
+     * that changed cell, so each step only checks the cells those cars moved into.
      */
     @Override
     public CollisionResult run(Field field, List<Car> cars) {
@@ -18,45 +24,131 @@ public class SimulationServiceImpl implements SimulationService {
             return null;
         }
 
-        int maxSteps = cars.stream()
-                .mapToInt(c -> c.getCommands() == null ? 0 : c.getCommands().length())
+        CollisionLog log = simulate(field, cars, 0, Integer.MAX_VALUE, true, null);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    @Override
+    public CollisionResult run(Field field, List<Car> cars, TrajectoryRecorder recorder) {
+        if (cars == null || cars.isEmpty()) {
+            return null;
+        }
+
+        CollisionLog log = simulate(field, cars, 0, Integer.MAX_VALUE, true, recorder);
+        return log.isEmpty() ? null : log.toResult(0);
+    }
+
+    /**
+     * Runs the simulation to the end. Every collided cell of a step is recorded, ordered by
+     * its earliest car, and its cars are deactivated before the next step.
+     */
+    @Override
+    public CollisionLog runAll(Field field, List<Car> cars) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, 0, Integer.MAX_VALUE, false, null);
+    }
+
+    /**
+     * Same as {@link #runAll(Field, List)}, reporting every executed command to the recorder.
+     */
+    public CollisionLog runAll(Field field, List<Car> cars, TrajectoryRecorder recorder) {
+        if (cars == null || cars.isEmpty()) {
+            return new CollisionLog(List.of());
+        }
+
+        return simulate(field, cars, 0, Integer.MAX_VALUE, false, recorder);
+    }
+
+    /**
+     * Simulates the steps {@code [from, to)} of a run whose cars are in their state before step {@code from}.
+     * Only a run starting at step {@code 0} checks the cars that already share a cell.
+     */
+    CollisionLog simulate(Field field, List<Car> cars, int from, int to, boolean stopAtFirstCollision,
+                          TrajectoryRecorder recorder) {
+        return simulate(field, cars, from, to, stopAtFirstCollision, recorder, new CollisionLog(cars));
+    }
+
+    /**
+     * Same as {@link #simulate(Field, List, int, int, boolean, TrajectoryRecorder)}, appending collisions to the given log.
+     */
+    CollisionLog simulate(Field field, List<Car> cars, int from, int to, boolean stopAtFirstCollision,
+                          TrajectoryRecorder recorder, CollisionLog log) {
+        int maxSteps = Math.min(to, cars.stream()
+                .mapToInt(Car::getCommandCount)
                 .max()
-                .orElse(0);
+                .orElse(0));
 
-        for (int step = 0; step < maxSteps; step++) {
+        int carCount = cars.size();
+        OccupancyIndex occupancy = new OccupancyIndex(carCount);
+        int[] moved = new int[carCount];
+        int[] collided = new int[carCount];
+        int movedCount = 0;
 
-            for (Car car : cars) {
-                String commands = car.getCommands();
-                if (car.isActive() && step < (commands == null ? 0 : commands.length())) {
-                    car.execute(commands.charAt(step), field);
-                }
+        for (int i = 0; i < carCount; i++) {
+            Car car = cars.get(i);
+            if (!car.isActive()) {
+                continue;
+            }
+            long cell = OccupancyIndex.cellKey(car.getX(), car.getY());
+            if (from == 0) {
+                movedCount = occupancy.addAtStart(i, cell, moved, movedCount);
+            } else {
+                occupancy.add(i, cell);
             }
+        }
+
+        for (int step = from; step < maxSteps; step++) {
 
-            Map<String, List<Car>> positionMap = new HashMap<>();
-            for (Car car : cars) {
-                if (car.isActive()) {
-                    positionMap
-                            .computeIfAbsent(car.positionKey(), k -> new ArrayList<>())
-                            .add(car);
+            for (int i = 0; i < carCount; i++) {
+                Car car = cars.get(i);
+                boolean executes = car.isActive() && step < car.getCommandCount();
+                if (car.executeStep(step, field)) {
+                    occupancy.move(i, OccupancyIndex.cellKey(car.getX(), car.getY()));
+                    if (step > 0) {
+                        moved[movedCount++] = i;
+                    }
+                }
+                if (executes && recorder != null) {
+                    recorder.record(i, car.getX(), car.getY(), car.getDirection());
                 }
             }
 
-            for (Map.Entry<String, List<Car>> entry : positionMap.entrySet()) {
-                if (entry.getValue().size() > 1) {
-                    int collisionStep = step + 1;
-                    String pos = entry.getKey();
+            int collidedCount;
+            if (stopAtFirstCollision) {
+                collided[0] = occupancy.earliestCollision(moved, movedCount);
+                collidedCount = collided[0] < 0 ? 0 : 1;
+            } else {
+                collidedCount = occupancy.collisions(moved, 0, movedCount, collided);
+            }
+            movedCount = 0;
 
-                    List<String> names = new ArrayList<>();
-                    for (Car car : entry.getValue()) {
-                        car.deactivate();
-                        names.add(car.getName());
+            for (int c = 0; c < collidedCount; c++) {
+                log.begin(step + 1, occupancy.cellOf(collided[c]));
+                int i = collided[c];
+                while (i >= 0) {
+                    int next = occupancy.nextInCell(i);
+                    cars.get(i).deactivate();
+                    if (recorder != null) {
+                        recorder.deactivated(i);
                     }
-
-                    return new CollisionResult(collisionStep, pos, names);
+                    occupancy.remove(i);
+                    log.addCar(i);
+                    i = next;
                 }
             }
+
+            if (recorder != null) {
+                recorder.endStep(step);
+            }
+
+            if (stopAtFirstCollision && collidedCount > 0) {
+                break;
+            }
         }
 
-        return null;
+        return log;
     }
 }
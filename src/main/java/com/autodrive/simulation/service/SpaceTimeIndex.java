@@ -0,0 +1,127 @@
+package com.autodrive.simulation.service;
+
+/**
+ * Index from {@code (step, cell)} to the cars standing on the cell after executing that step.
+ * <p>
+ * Every entry is one car at one step, stored in a primitive open-addressing table with
+ * linear probing; entries of the same step and cell are simply neighbours in the probe
+ * sequence. Removal uses backward-shift deletion, like {@link OccupancyIndex}, so the table
+ * can shrink and grow again as a run is partly re-simulated.
+ */
+final class SpaceTimeIndex {
+
+    private static final int NONE = -1;
+
+    private long[] cells;
+    private int[] steps;
+    /** Car of each slot plus one; {@code 0} marks an empty slot. */
+    private int[] cars;
+    private int size;
+    private int mask;
+    private int shift;
+
+    SpaceTimeIndex(int expectedEntries) {
+        allocateTable(Integer.highestOneBit(Math.max(4, expectedEntries) * 2 - 1) << 1);
+    }
+
+    void add(int car, int step, long cell) {
+        if ((size + 1) * 2 > cars.length) {
+            grow();
+        }
+        insert(car, step, cell);
+        size++;
+    }
+
+    /**
+     * Removes the entry of the car at that step; does nothing if there is none.
+     */
+    void remove(int car, int step, long cell) {
+        int slot = home(step, cell);
+        while (cars[slot] != 0) {
+            if (cars[slot] == car + 1 && steps[slot] == step && cells[slot] == cell) {
+                deleteSlot(slot);
+                size--;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * @return the earliest car other than {@code excluded} on the cell after the step, or a
+     * negative value when there is none
+     */
+    int firstAt(int step, long cell, int excluded) {
+        int first = NONE;
+        for (int slot = home(step, cell); cars[slot] != 0; slot = (slot + 1) & mask) {
+            int car = cars[slot] - 1;
+            if (car != excluded && steps[slot] == step && cells[slot] == cell && (first == NONE || car < first)) {
+                first = car;
+            }
+        }
+        return first;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void insert(int car, int step, long cell) {
+        int slot = home(step, cell);
+        while (cars[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        cells[slot] = cell;
+        steps[slot] = step;
+        cars[slot] = car + 1;
+    }
+
+    private void allocateTable(int capacity) {
+        this.cells = new long[capacity];
+        this.steps = new int[capacity];
+        this.cars = new int[capacity];
+        this.mask = capacity - 1;
+        this.shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    private void grow() {
+        long[] oldCells = cells;
+        int[] oldSteps = steps;
+        int[] oldCars = cars;
+        allocateTable(oldCars.length * 2);
+        for (int slot = 0; slot < oldCars.length; slot++) {
+            if (oldCars[slot] != 0) {
+                insert(oldCars[slot] - 1, oldSteps[slot], oldCells[slot]);
+            }
+        }
+    }
+
+    private int home(int step, long cell) {
+        return (int) (((cell ^ (long) step * 0xC2B2AE3D27D4EB4FL) * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /**
+     * Backward-shift deletion, so lookups never need tombstones.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (cars[next] == 0) {
+                break;
+            }
+            int home = home(steps[next], cells[next]);
+            boolean homeBetween = hole <= next
+                    ? hole < home && home <= next
+                    : hole < home || home <= next;
+            if (!homeBetween) {
+                cells[hole] = cells[next];
+                steps[hole] = steps[next];
+                cars[hole] = cars[next];
+                hole = next;
+            }
+        }
+        cars[hole] = 0;
+    }
+}
@@ -0,0 +1,141 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of every car before a given step of a run: position, heading and whether it is
+ * still active.
+ * <p>
+ * Cars execute command {@code k} at step {@code k}, so the command cursor of an active car
+ * is the step itself, clamped to its program, and is not stored. A snapshot takes 9 bytes
+ * per car: the packed cell (see {@link CollisionLog#getCell(int)}) and one byte holding the
+ * heading and the active flag.
+ */
+public final class StateSnapshot {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int ACTIVE = 4;
+
+    private final int step;
+    private final long[] cells;
+    private final byte[] flags;
+
+    private StateSnapshot(int step, long[] cells, byte[] flags) {
+        this.step = step;
+        this.cells = cells;
+        this.flags = flags;
+    }
+
+    /**
+     * Captures the current state of the cars, taken before step {@code step}.
+     */
+    public static StateSnapshot of(int step, List<Car> cars) {
+        int size = cars.size();
+        long[] cells = new long[size];
+        byte[] flags = new byte[size];
+        for (int i = 0; i < size; i++) {
+            Car car = cars.get(i);
+            cells[i] = OccupancyIndex.cellKey(car.getX(), car.getY());
+            flags[i] = flags(car.getDirection().ordinal(), car.isActive());
+        }
+        return new StateSnapshot(step, cells, flags);
+    }
+
+    static StateSnapshot of(int step, long[] cells, byte[] flags) {
+        return new StateSnapshot(step, cells.clone(), flags.clone());
+    }
+
+    static byte flags(int direction, boolean active) {
+        return (byte) (active ? direction | ACTIVE : direction);
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} uses for a snapshot of that many cars
+     */
+    public static int byteSize(int carCount) {
+        return 2 * Integer.BYTES + carCount * (Long.BYTES + 1);
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putInt(step);
+        buffer.putInt(cells.length);
+        for (long cell : cells) {
+            buffer.putLong(cell);
+        }
+        buffer.put(flags);
+    }
+
+    public static StateSnapshot readFrom(ByteBuffer buffer) {
+        int step = buffer.getInt();
+        int size = buffer.getInt();
+        long[] cells = new long[size];
+        byte[] flags = new byte[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = buffer.getLong();
+        }
+        buffer.get(flags);
+        return new StateSnapshot(step, cells, flags);
+    }
+
+    /**
+     * @return copies of the given cars, which have to be the cars of the run, in the state of this snapshot
+     */
+    public List<Car> restore(List<Car> cars) {
+        List<Car> restored = new ArrayList<>(cells.length);
+        for (int i = 0; i < cells.length; i++) {
+            Car car = cars.get(i);
+            Car copy = Car.withProgram(car.getName(), getX(i), getY(i), getDirection(i), car.getProgram());
+            if (!isActive(i)) {
+                copy.deactivate();
+            }
+            restored.add(copy);
+        }
+        return restored;
+    }
+
+    /**
+     * Moves the given cars, which have to be the cars of the run, to the state of this snapshot.
+     * Cars cannot be reactivated, so an active car of the snapshot has to be active already.
+     */
+    public void applyTo(List<Car> cars) {
+        for (int i = 0; i < cells.length; i++) {
+            Car car = cars.get(i);
+            car.moveTo(getX(i), getY(i), getDirection(i));
+            if (!isActive(i)) {
+                car.deactivate();
+            }
+        }
+    }
+
+    /**
+     * @return the step this snapshot was taken before; {@code 0} is the start of the run
+     */
+    public int getStep() {
+        return step;
+    }
+
+    public int getCarCount() {
+        return cells.length;
+    }
+
+    public int getX(int car) {
+        return OccupancyIndex.cellX(cells[car]);
+    }
+
+    public int getY(int car) {
+        return OccupancyIndex.cellY(cells[car]);
+    }
+
+    public Direction getDirection(int car) {
+        return DIRECTIONS[flags[car] & 3];
+    }
+
+    public boolean isActive(int car) {
+        return (flags[car] & ACTIVE) != 0;
+    }
+}
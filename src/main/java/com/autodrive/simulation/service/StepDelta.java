@@ -0,0 +1,156 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * What changed during one step of a run, or during several consecutive steps when a slow
+ * subscriber of a {@link StepPublisher} had them coalesced.
+ * <p>
+ * A change is a car that moved to another cell or turned; it carries the state of the car
+ * at the end of the delta. Changes are ordered by car index and name each car once, so a
+ * coalesced delta holds at most one change per car however many steps it covers. Cars
+ * deactivated by a collision are listed separately, also by index.
+ */
+public final class StepDelta {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final byte MOVED = 1;
+    private static final byte TURNED = 2;
+
+    private final List<Car> cars;
+    private final int firstStep;
+    private final int step;
+    private final int[] changedCars;
+    private final long[] cells;
+    private final byte[] dirs;
+    private final byte[] flags;
+    private final int[] deactivatedCars;
+
+    StepDelta(List<Car> cars, int firstStep, int step, int[] changedCars, long[] cells, byte[] dirs, byte[] flags,
+              int[] deactivatedCars) {
+        this.cars = cars;
+        this.firstStep = firstStep;
+        this.step = step;
+        this.changedCars = changedCars;
+        this.cells = cells;
+        this.dirs = dirs;
+        this.flags = flags;
+        this.deactivatedCars = deactivatedCars;
+    }
+
+    static byte flags(boolean moved, boolean turned) {
+        return (byte) ((moved ? MOVED : 0) | (turned ? TURNED : 0));
+    }
+
+    /**
+     * Combines this delta with the one of the steps right after it. A car changed in both keeps
+     * its later state, and counts as moved or turned if it did so in either.
+     */
+    StepDelta merge(StepDelta later) {
+        int[] mergedCars = new int[changedCars.length + later.changedCars.length];
+        long[] mergedCells = new long[mergedCars.length];
+        byte[] mergedDirs = new byte[mergedCars.length];
+        byte[] mergedFlags = new byte[mergedCars.length];
+        int count = 0;
+        int a = 0;
+        int b = 0;
+        while (a < changedCars.length || b < later.changedCars.length) {
+            int carA = a < changedCars.length ? changedCars[a] : Integer.MAX_VALUE;
+            int carB = b < later.changedCars.length ? later.changedCars[b] : Integer.MAX_VALUE;
+            if (carA < carB) {
+                mergedCars[count] = carA;
+                mergedCells[count] = cells[a];
+                mergedDirs[count] = dirs[a];
+                mergedFlags[count++] = flags[a++];
+            } else {
+                mergedCars[count] = carB;
+                mergedCells[count] = later.cells[b];
+                mergedDirs[count] = later.dirs[b];
+                mergedFlags[count++] = (byte) (later.flags[b++] | (carA == carB ? flags[a++] : 0));
+            }
+        }
+
+        int[] deactivated = Arrays.copyOf(deactivatedCars, deactivatedCars.length + later.deactivatedCars.length);
+        System.arraycopy(later.deactivatedCars, 0, deactivated, deactivatedCars.length, later.deactivatedCars.length);
+        // A car is deactivated once, so the two lists never overlap
+        Arrays.sort(deactivated);
+
+        return new StepDelta(cars, firstStep, later.step, Arrays.copyOf(mergedCars, count),
+                Arrays.copyOf(mergedCells, count), Arrays.copyOf(mergedDirs, count), Arrays.copyOf(mergedFlags, count),
+                deactivated);
+    }
+
+    /**
+     * @return the first step covered; equal to {@link #getStep()} unless steps were coalesced
+     */
+    public int getFirstStep() {
+        return firstStep;
+    }
+
+    /**
+     * @return the last step covered
+     */
+    public int getStep() {
+        return step;
+    }
+
+    public boolean isCoalesced() {
+        return firstStep != step;
+    }
+
+    public int getChangeCount() {
+        return changedCars.length;
+    }
+
+    /**
+     * @return the index in the run's car list of the car of change {@code change}
+     */
+    public int getCar(int change) {
+        return changedCars[change];
+    }
+
+    public String getCarName(int change) {
+        return cars.get(changedCars[change]).getName();
+    }
+
+    public int getX(int change) {
+        return OccupancyIndex.cellX(cells[change]);
+    }
+
+    public int getY(int change) {
+        return OccupancyIndex.cellY(cells[change]);
+    }
+
+    public Direction getDirection(int change) {
+        return DIRECTIONS[dirs[change]];
+    }
+
+    public boolean hasMoved(int change) {
+        return (flags[change] & MOVED) != 0;
+    }
+
+    public boolean hasTurned(int change) {
+        return (flags[change] & TURNED) != 0;
+    }
+
+    public int getDeactivatedCount() {
+        return deactivatedCars.length;
+    }
+
+    /**
+     * @return the index in the run's car list of the {@code k}-th deactivated car
+     */
+    public int getDeactivatedCar(int k) {
+        return deactivatedCars[k];
+    }
+
+    @Override
+    public String toString() {
+        return "StepDelta{steps=" + firstStep + ".." + step + ", changes=" + changedCars.length
+                + ", deactivated=" + Arrays.toString(deactivatedCars) + '}';
+    }
+}
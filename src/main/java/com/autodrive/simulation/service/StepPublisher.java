@@ -0,0 +1,351 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link TrajectoryRecorder} that publishes a {@link StepDelta} per step of a run to
+ * {@link Flow.Subscriber}s, as they ask for them:
+ * <pre>
+ * try (StepPublisher publisher = new StepPublisher(cars)) {
+ *     publisher.subscribe(dashboard);
+ *     service.run(field, cars, publisher);
+ * }
+ * </pre>
+ * Each subscriber holds at most one undelivered delta. When a step ends while its previous
+ * delta is still waiting for demand, the publisher either merges the new step into it
+ * ({@link Overflow#COALESCE}, the default), so a slow subscriber receives fewer, wider deltas
+ * and never more than one change per car, or makes the run wait for the subscriber
+ * ({@link Overflow#BLOCK}). Either way the memory held is bounded by the number of cars,
+ * not by the length of the run.
+ * <p>
+ * Deltas are delivered on the given executor; each subscriber gets its deltas one at a time,
+ * in step order. Without subscribers the recorder returns at once, and a run without any
+ * recorder pays nothing at all. A subscriber joining mid-run receives whole steps only,
+ * from the next step boundary on; if the run went on without subscribers, the publisher
+ * first spends one step catching up with the cell and heading of every car. {@link #close()}
+ * completes every subscriber once its last delta is delivered.
+ */
+public final class StepPublisher implements Flow.Publisher<StepDelta>, TrajectoryRecorder, AutoCloseable {
+
+    /**
+     * What happens to a step that ends while a subscriber has not taken the previous delta yet.
+     */
+    public enum Overflow {
+        /** Merge the step into the waiting delta. */
+        COALESCE,
+        /** Make the run wait until the subscriber asks for the waiting delta. */
+        BLOCK
+    }
+
+    private final List<Car> cars;
+    private final Overflow overflow;
+    private final Executor executor;
+    private final CopyOnWriteArrayList<StepSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    /** Subscribers waiting for the next step boundary. */
+    private final CopyOnWriteArrayList<StepSubscription> joining = new CopyOnWriteArrayList<>();
+
+    /** What the current step does; {@code null} between steps. */
+    private Mode mode;
+    /** Whether {@link #lastCell} and {@link #lastDir} hold the state before the current step. */
+    private boolean synced = true;
+
+    private final long[] lastCell;
+    private final byte[] lastDir;
+    private int stepChanges;
+    private int[] changedCars = new int[16];
+    private long[] changedCells = new long[16];
+    private byte[] changedDirs = new byte[16];
+    private byte[] changedFlags = new byte[16];
+    private int stepDeactivated;
+    private int[] deactivatedCars = new int[4];
+    private volatile boolean closed;
+
+    /**
+     * Coalesces for slow subscribers and delivers on the common fork-join pool.
+     */
+    public StepPublisher(List<Car> cars) {
+        this(cars, Overflow.COALESCE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the deliveries; with {@link Overflow#BLOCK} it must not be the
+     *                 thread of the run, or the run waits forever
+     */
+    public StepPublisher(List<Car> cars, Overflow overflow, Executor executor) {
+        this.cars = cars;
+        this.overflow = Objects.requireNonNull(overflow);
+        this.executor = Objects.requireNonNull(executor);
+        this.lastCell = new long[cars.size()];
+        this.lastDir = new byte[cars.size()];
+        for (int i = 0; i < lastDir.length; i++) {
+            Car car = cars.get(i);
+            lastCell[i] = OccupancyIndex.cellKey(car.getX(), car.getY());
+            lastDir[i] = (byte) car.getDirection().ordinal();
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super StepDelta> subscriber) {
+        StepSubscription subscription = new StepSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        } else {
+            joining.add(subscription);
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty() || !joining.isEmpty();
+    }
+
+    @Override
+    public void record(int car, int x, int y, Direction direction) {
+        Mode step = mode == null ? beginStep() : mode;
+        if (step == Mode.IDLE) {
+            return;
+        }
+        long cell = OccupancyIndex.cellKey(x, y);
+        byte dir = (byte) direction.ordinal();
+        boolean moved = cell != lastCell[car];
+        boolean turned = dir != lastDir[car];
+        lastCell[car] = cell;
+        lastDir[car] = dir;
+        // A car that neither turned nor changed cell was stopped by the border
+        if ((!moved && !turned) || step == Mode.CATCH_UP) {
+            return;
+        }
+        if (stepChanges == changedCars.length) {
+            int capacity = stepChanges * 2;
+            changedCars = Arrays.copyOf(changedCars, capacity);
+            changedCells = Arrays.copyOf(changedCells, capacity);
+            changedDirs = Arrays.copyOf(changedDirs, capacity);
+            changedFlags = Arrays.copyOf(changedFlags, capacity);
+        }
+        changedCars[stepChanges] = car;
+        changedCells[stepChanges] = cell;
+        changedDirs[stepChanges] = dir;
+        changedFlags[stepChanges++] = StepDelta.flags(moved, turned);
+    }
+
+    @Override
+    public void deactivated(int car) {
+        if ((mode == null ? beginStep() : mode) != Mode.DELIVER) {
+            return;
+        }
+        if (stepDeactivated == deactivatedCars.length) {
+            deactivatedCars = Arrays.copyOf(deactivatedCars, stepDeactivated * 2);
+        }
+        deactivatedCars[stepDeactivated++] = car;
+    }
+
+    @Override
+    public void endStep(int step) {
+        Mode ended = mode == null ? beginStep() : mode;
+        mode = null;
+        if (ended != Mode.DELIVER) {
+            // Cars only record while they execute commands, so from step to step they record
+            // without gaps: after one step of catching up every car that records again is known
+            synced = ended == Mode.CATCH_UP;
+            return;
+        }
+        int[] deactivated = Arrays.copyOf(deactivatedCars, stepDeactivated);
+        Arrays.sort(deactivated);
+        StepDelta delta = new StepDelta(cars, step, step, Arrays.copyOf(changedCars, stepChanges),
+                Arrays.copyOf(changedCells, stepChanges), Arrays.copyOf(changedDirs, stepChanges),
+                Arrays.copyOf(changedFlags, stepChanges), deactivated);
+        stepChanges = 0;
+        stepDeactivated = 0;
+
+        for (StepSubscription subscription : subscriptions) {
+            subscription.offer(delta);
+        }
+    }
+
+    /**
+     * Completes every subscriber after its last delta; later subscribers are completed at once.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (StepSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        for (StepSubscription subscription : joining) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+        joining.clear();
+    }
+
+    /**
+     * Decides at a step boundary what the step does, admitting the subscribers that joined
+     * once the last state of the cars is known.
+     */
+    private Mode beginStep() {
+        if (synced && !joining.isEmpty()) {
+            for (StepSubscription subscription : joining) {
+                joining.remove(subscription);
+                subscriptions.add(subscription);
+            }
+        }
+        if (!subscriptions.isEmpty()) {
+            mode = Mode.DELIVER;
+        } else if (!joining.isEmpty()) {
+            mode = Mode.CATCH_UP;
+        } else {
+            // Nothing is tracked, so a later subscriber has to wait for a step of catching up
+            synced = false;
+            mode = Mode.IDLE;
+        }
+        return mode;
+    }
+
+    private enum Mode {
+        /** Nobody listens; nothing is recorded. */
+        IDLE,
+        /** Only the last state of the cars is recorded, for subscribers admitted after the step. */
+        CATCH_UP,
+        /** The step is recorded and delivered. */
+        DELIVER
+    }
+
+    /**
+     * Demand, waiting delta and delivery loop of one subscriber.
+     */
+    private final class StepSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super StepDelta> subscriber;
+        /** Guards the fields below. */
+        private final Object lock = new Object();
+        private final AtomicInteger wip = new AtomicInteger();
+        private long demand;
+        private StepDelta pending;
+        private boolean completed;
+        private boolean cancelled;
+        private boolean terminated;
+        private Throwable failure;
+
+        StepSubscription(Flow.Subscriber<? super StepDelta> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(StepDelta delta) {
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                if (overflow == Overflow.BLOCK) {
+                    boolean interrupted = false;
+                    while (pending != null && !cancelled) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                }
+                pending = pending == null ? delta : pending.merge(delta);
+            }
+            schedule();
+        }
+
+        void complete() {
+            synchronized (lock) {
+                completed = true;
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Demand must be positive: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                pending = null;
+                lock.notifyAll();
+            }
+            subscriptions.remove(this);
+            joining.remove(this);
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this::drain);
+            }
+        }
+
+        /**
+         * Delivers while there is demand; only one drain runs at a time for a subscriber.
+         */
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                while (true) {
+                    StepDelta next;
+                    Throwable error;
+                    boolean finish;
+                    synchronized (lock) {
+                        if (terminated || cancelled) {
+                            return;
+                        }
+                        error = failure;
+                        next = error == null && demand > 0 ? pending : null;
+                        if (next != null) {
+                            pending = null;
+                            demand--;
+                            lock.notifyAll();
+                        }
+                        finish = error != null || (next == null && completed && pending == null);
+                        terminated = finish;
+                    }
+                    if (error != null) {
+                        subscriptions.remove(this);
+                        joining.remove(this);
+                        subscriber.onError(error);
+                        return;
+                    }
+                    if (finish) {
+                        subscriber.onComplete();
+                        return;
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    subscriber.onNext(next);
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
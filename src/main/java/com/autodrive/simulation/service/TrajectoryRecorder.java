@@ -0,0 +1,31 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Direction;
+
+/**
+ * Receives the state of the cars while a run goes on, see
+ * {@link SimulationService#run(com.autodrive.simulation.model.Field, java.util.List, TrajectoryRecorder)}.
+ * <p>
+ * Within a step, {@link #record} is called in list order for every car that executed a
+ * command of that step, then {@link #deactivated} for every car removed by a collision of
+ * the step, and finally {@link #endStep}.
+ */
+public interface TrajectoryRecorder {
+
+    /**
+     * Called after car {@code car} executed its command of the current step.
+     */
+    void record(int car, int x, int y, Direction direction);
+
+    /**
+     * Called when car {@code car} collided in the current step and takes no further part in the run.
+     */
+    default void deactivated(int car) {
+    }
+
+    /**
+     * Called once every car executed step {@code step} and its collisions were resolved.
+     */
+    default void endStep(int step) {
+    }
+}
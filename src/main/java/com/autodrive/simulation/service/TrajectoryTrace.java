@@ -0,0 +1,104 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+
+import java.util.List;
+
+/**
+ * Position and heading of every car after each command it executed during a run.
+ * <p>
+ * Entry {@code 0} of a car is its state before the first step and entry {@code k} its
+ * state after executing command {@code k - 1}; a car stops recording once it runs out of
+ * commands or is deactivated. Each car's entries live in a packed cell array (see
+ * {@link CollisionLog#getCell(int)}) and a heading array sized for its whole program
+ * up front, so recording allocates nothing per step.
+ */
+public final class TrajectoryTrace implements TrajectoryRecorder {
+
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private final long[][] cells;
+    private final byte[][] dirs;
+    private final int[] length;
+
+    /**
+     * Starts a trace at the current state of the given cars.
+     */
+    public TrajectoryTrace(List<Car> cars) {
+        int size = cars.size();
+        this.cells = new long[size][];
+        this.dirs = new byte[size][];
+        this.length = new int[size];
+        for (int i = 0; i < size; i++) {
+            Car car = cars.get(i);
+            int capacity = car.getCommandCount() + 1;
+            cells[i] = new long[capacity];
+            dirs[i] = new byte[capacity];
+            record(i, car.getX(), car.getY(), car.getDirection());
+        }
+    }
+
+    /**
+     * Traces every car on its own, as if no other car was on the field.
+     * The given cars are left untouched.
+     */
+    public static TrajectoryTrace replay(Field field, List<Car> cars) {
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+        for (int i = 0; i < cars.size(); i++) {
+            Car original = cars.get(i);
+            Car car = Car.withProgram(original.getName(), original.getX(), original.getY(),
+                    original.getDirection(), original.getProgram());
+            for (int step = 0; step < car.getCommandCount(); step++) {
+                car.executeStep(step, field);
+                trace.record(i, car.getX(), car.getY(), car.getDirection());
+            }
+        }
+        return trace;
+    }
+
+    @Override
+    public void record(int car, int x, int y, Direction direction) {
+        int entry = length[car]++;
+        cells[car][entry] = OccupancyIndex.cellKey(x, y);
+        dirs[car][entry] = (byte) direction.ordinal();
+    }
+
+    public int getCarCount() {
+        return length.length;
+    }
+
+    /**
+     * @return the number of entries of the car: its start state plus one per executed command
+     */
+    public int getLength(int car) {
+        return length[car];
+    }
+
+    /**
+     * @return the cell packed as {@code (long) x << 32 | (y & 0xFFFFFFFFL)}
+     */
+    public long getCell(int car, int entry) {
+        return cells[car][check(car, entry)];
+    }
+
+    public int getX(int car, int entry) {
+        return OccupancyIndex.cellX(getCell(car, entry));
+    }
+
+    public int getY(int car, int entry) {
+        return OccupancyIndex.cellY(getCell(car, entry));
+    }
+
+    public Direction getDirection(int car, int entry) {
+        return DIRECTIONS[dirs[car][check(car, entry)]];
+    }
+
+    private int check(int car, int entry) {
+        if (entry < 0 || entry >= length[car]) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " of car " + car + " with " + length[car] + " entries");
+        }
+        return entry;
+    }
+}
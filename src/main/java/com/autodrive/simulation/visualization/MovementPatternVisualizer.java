@@ -2,7 +2,9 @@ package com.autodrive.simulation.visualization;
 
 import com.autodrive.simulation.model.Field;
 import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.service.TrajectoryTrace;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -11,5 +13,22 @@ import java.util.List;
  */
 public interface MovementPatternVisualizer {
     void displayMovementPatterns(Field field, List<Car> cars);
+
+    /**
+     * Displays the movement patterns recorded in a trace of a run of the given cars.
+     * The cars may already have moved; their start state is taken from the trace.
+     * <p>
+     * By default copies of the cars are put back in that start state and displayed with
+     * {@link #displayMovementPatterns(Field, List)}.
+     */
+    default void displayMovementPatterns(Field field, List<Car> cars, TrajectoryTrace trace) {
+        List<Car> start = new ArrayList<>(cars.size());
+        for (int i = 0; i < cars.size(); i++) {
+            Car car = cars.get(i);
+            start.add(Car.withProgram(car.getName(), trace.getX(i, 0), trace.getY(i, 0), trace.getDirection(i, 0),
+                    car.getProgram()));
+        }
+        displayMovementPatterns(field, start);
+    }
 }
 
@@ -2,129 +2,235 @@ package com.autodrive.simulation.visualization;
 
 import com.autodrive.simulation.model.Field;
 import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
 import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.TiledGrid;
+import com.autodrive.simulation.service.TrajectoryTrace;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.*;
 
+/**
+ * Draws the path of each car on a grid.
+ * <p>
+ * Every frame (the grid and legend of one car, or the shared grid in
+ * {@link Layout#COMPOSITE} mode) is built in a reusable buffer and written to the
+ * {@link Writer} with a single call. Cropping limits the grid to the cells the drawn
+ * paths actually use, which keeps frames small on large fields.
+ * <p>
+ * Instances reuse their buffer and are not thread-safe.
+ */
 public class MovementVisualizer implements MovementPatternVisualizer {
 
     /**
-     * Displays the movement pattern for each car on a 2D grid
+     * How the cars of one call are laid out.
+     */
+    public enum Layout {
+        /** One grid and step-by-step legend per car. */
+        PER_CAR,
+        /** Every car on one shared grid; cells visited by several cars show {@code *}. */
+        COMPOSITE
+    }
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    /** Target of the frames; {@code null} writes to the current {@link System#out}. */
+    private final Writer out;
+    private final Layout layout;
+    private final boolean cropToViewport;
+    private final StringBuilder frame = new StringBuilder();
+
+    /**
+     * Writes one full-field grid per car to {@link System#out}.
+     */
+    public MovementVisualizer() {
+        this(null, Layout.PER_CAR, false);
+    }
+
+    /**
+     * @param out            receives every frame with one write; flushed after each frame
+     * @param layout         one grid per car, or all cars on one grid
+     * @param cropToViewport draw only the rectangle spanned by the drawn paths instead of the whole field
+     */
+    public MovementVisualizer(Writer out, Layout layout, boolean cropToViewport) {
+        this.out = out;
+        this.layout = layout;
+        this.cropToViewport = cropToViewport;
+    }
+
+    /**
+     * Displays the movement pattern for each car on a 2D grid, replaying each car on its own
      */
     @Override
     public void displayMovementPatterns(Field field, List<Car> cars) {
-        System.out.println("\n=== Movement Patterns ===\n");
+        displayMovementPatterns(field, cars, TrajectoryTrace.replay(field, cars));
+    }
+
+    /**
+     * Displays the movement pattern for each car on a 2D grid, as recorded in the trace
+     */
+    @Override
+    public void displayMovementPatterns(Field field, List<Car> cars, TrajectoryTrace trace) {
+        frame.setLength(0);
+        frame.append("\n=== Movement Patterns ===\n").append(NEWLINE);
+        flushFrame();
+
+        if (layout == Layout.COMPOSITE) {
+            displayCompositePattern(field, cars, trace);
+            return;
+        }
 
-        for (Car car : cars) {
-            displayCarMovementPattern(field, car);
+        for (int i = 0; i < cars.size(); i++) {
+            displayCarMovementPattern(field, cars.get(i), trace, i);
         }
     }
 
     /**
      * Displays the movement pattern for a single car
      */
-    private void displayCarMovementPattern(Field field, Car car) {
-        System.out.println("Car: " + car.getName() +
-                " (Starting at " + car.getX() + ", " + car.getY() +
-                " facing " + car.getDirection() + ")");
+    private void displayCarMovementPattern(Field field, Car car, TrajectoryTrace trace, int index) {
+        frame.setLength(0);
+        frame.append("Car: ").append(car.getName())
+                .append(" (Starting at ").append(trace.getX(index, 0)).append(", ").append(trace.getY(index, 0))
+                .append(" facing ").append(trace.getDirection(index, 0)).append(")").append(NEWLINE);
 
         // Create a empty grid to track positions
-        char[][] grid = createEmptyGrid(field);
-
-        // Track the movement path
-        List<CarPosition> path = calculatePath(field, car);
+        TiledGrid grid = createEmptyGrid(field);
 
         // Mark positions on grid
-        markPathOnGrid(grid, path);
+        markPathOnGrid(grid, car, trace, index);
 
         // Display grid
-        printGrid(grid, field);
+        Viewport viewport = cropToViewport ? Viewport.of(trace, index, index + 1) : Viewport.of(field);
+        printGrid(grid, viewport);
 
         // Display movement legend
-        printMovementLegend(path);
-
-        System.out.println();
-    }
-
-    /**
-     * Calculate the path of movement for a car
-     */
-    private List<CarPosition> calculatePath(Field field, Car car) {
-        List<CarPosition> path = new ArrayList<>();
-        int currentX = car.getX();
-        int currentY = car.getY();
-        Direction currentDirection = car.getDirection();
-
-        // Add starting position
-        path.add(new CarPosition(currentX, currentY, currentDirection, 0, "START"));
-
-        // Simulate the car's movement
-        String commands = car.getCommands();
-        for (int step = 0; step < commands.length(); step++) {
-            char command = commands.charAt(step);
-
-            switch (command) {
-                case 'L':
-                    currentDirection = currentDirection.left();
-                    path.add(new CarPosition(currentX, currentY, currentDirection, step + 1, "LEFT"));
-                    break;
-                case 'R':
-                    currentDirection = currentDirection.right();
-                    path.add(new CarPosition(currentX, currentY, currentDirection, step + 1, "RIGHT"));
-                    break;
-                case 'F':
-                    int nextX = currentX + currentDirection.dx;
-                    int nextY = currentY + currentDirection.dy;
-
-                    if (field.isInside(nextX, nextY)) {
-                        currentX = nextX;
-                        currentY = nextY;
-                        path.add(new CarPosition(currentX, currentY, currentDirection, step + 1, "FORWARD"));
-                    } else {
-                        // Move ignored, stay in place
-                        path.add(new CarPosition(currentX, currentY, currentDirection, step + 1, "FORWARD (ignored, boundary)"));
-                    }
-                    break;
-                default:
-                    // Invalid command - skip
-                    break;
+        printMovementLegend(car, trace, index);
+
+        frame.append(NEWLINE);
+        flushFrame();
+    }
+
+    /**
+     * Displays every car on one grid, followed by a short legend
+     */
+    private void displayCompositePattern(Field field, List<Car> cars, TrajectoryTrace trace) {
+        TiledGrid grid = createEmptyGrid(field);
+        // Index + 1 of the car that marked each cell, or -1 once several cars did
+        TiledGrid owners = createEmptyGrid(field);
+
+        for (int i = 0; i < cars.size(); i++) {
+            markPathOnGrid(grid, cars.get(i), trace, i);
+            for (int entry = 0; entry < trace.getLength(i); entry++) {
+                int x = trace.getX(i, entry);
+                int y = trace.getY(i, entry);
+                int owner = owners.get(x, y);
+                if (owner == 0 || owner == i + 1) {
+                    owners.set(x, y, i + 1);
+                } else {
+                    owners.set(x, y, -1);
+                    grid.set(x, y, '*');
+                }
             }
         }
 
-        return path;
+        frame.setLength(0);
+        frame.append("Cars:");
+        for (int i = 0; i < cars.size(); i++) {
+            frame.append(' ').append(cars.get(i).getName())
+                    .append(" (").append(trace.getX(i, 0)).append(", ").append(trace.getY(i, 0))
+                    .append(' ').append(trace.getDirection(i, 0)).append(')');
+        }
+        frame.append(NEWLINE);
+
+        printGrid(grid, cropToViewport ? Viewport.of(trace, 0, cars.size()) : Viewport.of(field));
+
+        frame.append("Movement Summary:").append(NEWLINE);
+        frame.append("  S = Start position").append(NEWLINE);
+        frame.append("  E = End position").append(NEWLINE);
+        frame.append("  ↑↓←→ = Direction faced").append(NEWLINE);
+        frame.append("  * = Visited by several cars").append(NEWLINE);
+        frame.append(NEWLINE);
+        flushFrame();
     }
 
     /**
-     * Create an empty grid representation
+     * Writes the buffered frame with a single call
      */
-    private char[][] createEmptyGrid(Field field) {
-        char[][] grid = new char[field.getHeight()][field.getWidth()];
-        for (int y = 0; y < field.getHeight(); y++) {
-            for (int x = 0; x < field.getWidth(); x++) {
-                grid[y][x] = '.';
-            }
+    private void flushFrame() {
+        if (out == null) {
+            System.out.print(frame);
+            return;
+        }
+        try {
+            out.append(frame);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Unknown commands are skipped in the path: only the start and entries that
+     * follow a turn or a forward move are shown
+     */
+    private static boolean isShown(Car car, int entry) {
+        return entry == 0 || car.getProgram().codeAt(entry - 1) != CommandProgram.NOOP;
+    }
+
+    /**
+     * Describe what the car did to reach a trace entry
+     */
+    private static String actionOf(Car car, TrajectoryTrace trace, int index, int entry) {
+        if (entry == 0) {
+            return "START";
+        }
+        switch (car.getProgram().codeAt(entry - 1)) {
+            case CommandProgram.LEFT:
+                return "LEFT";
+            case CommandProgram.RIGHT:
+                return "RIGHT";
+            default:
+                // Move ignored at the boundary when the car stayed in place
+                return trace.getCell(index, entry) != trace.getCell(index, entry - 1)
+                        ? "FORWARD" : "FORWARD (ignored, boundary)";
         }
-        return grid;
+    }
+
+    /**
+     * Create an empty grid representation.
+     * Only the chunks the path touches are allocated; unmarked cells print as '.'
+     */
+    private TiledGrid createEmptyGrid(Field field) {
+        return new TiledGrid(field);
     }
 
     /**
      * Mark the path on the grid
      */
-    private void markPathOnGrid(char[][] grid, List<CarPosition> path) {
-        for (int i = 0; i < path.size(); i++) {
-            CarPosition pos = path.get(i);
+    private void markPathOnGrid(TiledGrid grid, Car car, TrajectoryTrace trace, int index) {
+        int last = trace.getLength(index) - 1;
+        while (!isShown(car, last)) {
+            last--;
+        }
+
+        for (int entry = 0; entry <= last; entry++) {
+            if (!isShown(car, entry)) {
+                continue;
+            }
             char symbol;
 
-            if (i == 0) {
+            if (entry == 0) {
                 symbol = 'S'; // Start
-            } else if (i == path.size() - 1) {
+            } else if (entry == last) {
                 symbol = 'E'; // End
             } else {
-                symbol = getDirectionSymbol(pos.direction);
+                symbol = getDirectionSymbol(trace.getDirection(index, entry));
             }
 
-            int gridY = grid.length - 1 - pos.y; // Flip Y for display
-            grid[gridY][pos.x] = symbol;
+            grid.set(trace.getX(index, entry), trace.getY(index, entry), symbol);
         }
     }
 
@@ -141,66 +247,91 @@ public class MovementVisualizer implements MovementPatternVisualizer {
     }
 
     /**
-     * Print the grid with coordinates
+     * Print the viewport of the grid with coordinates
      */
-    private void printGrid(char[][] grid, Field field) {
+    private void printGrid(TiledGrid grid, Viewport viewport) {
         // Print top border with X coordinates
-        System.out.print("    x→ ");
-        for (int x = 0; x < field.getWidth(); x++) {
-            System.out.print(x + " ");
+        frame.append("    x→ ");
+        for (int x = viewport.minX; x <= viewport.maxX; x++) {
+            frame.append(x).append(' ');
         }
-        System.out.println();
+        frame.append(NEWLINE);
 
-        // Print grid with Y coordinates
-        for (int y = 0; y < grid.length; y++) {
-            System.out.printf("y=%d | ", grid.length - 1 - y);
-            for (int x = 0; x < grid[y].length; x++) {
-                System.out.print(grid[y][x] + " ");
+        // Print grid with Y coordinates, top row first
+        for (int y = viewport.maxY; y >= viewport.minY; y--) {
+            frame.append("y=").append(y).append(" | ");
+            for (int x = viewport.minX; x <= viewport.maxX; x++) {
+                int symbol = grid.get(x, y);
+                frame.append(symbol == 0 ? '.' : (char) symbol).append(' ');
             }
-            System.out.println();
+            frame.append(NEWLINE);
         }
 
         // Print bottom border
-        System.out.print("    +");
-        for (int x = 0; x < field.getWidth(); x++) {
-            System.out.print("-+");
+        frame.append("    +");
+        for (int x = viewport.minX; x <= viewport.maxX; x++) {
+            frame.append("-+");
         }
-        System.out.println();
+        frame.append(NEWLINE);
     }
 
     /**
      * Print movement legend/summary
      */
-    private void printMovementLegend(List<CarPosition> path) {
-        System.out.println("Movement Summary:");
-        System.out.println("  S = Start position");
-        System.out.println("  E = End position");
-        System.out.println("  ↑↓←→ = Direction faced");
-        System.out.println();
-        System.out.println("Step-by-step execution:");
+    private void printMovementLegend(Car car, TrajectoryTrace trace, int index) {
+        frame.append("Movement Summary:").append(NEWLINE);
+        frame.append("  S = Start position").append(NEWLINE);
+        frame.append("  E = End position").append(NEWLINE);
+        frame.append("  ↑↓←→ = Direction faced").append(NEWLINE);
+        frame.append(NEWLINE);
+        frame.append("Step-by-step execution:").append(NEWLINE);
 
-        for (CarPosition pos : path) {
-            System.out.printf("  Step %d: %s at (%d, %d) facing %s%n",
-                    pos.step, pos.action, pos.x, pos.y, pos.direction);
+        for (int entry = 0; entry < trace.getLength(index); entry++) {
+            if (isShown(car, entry)) {
+                frame.append("  Step ").append(entry).append(": ").append(actionOf(car, trace, index, entry))
+                        .append(" at (").append(trace.getX(index, entry)).append(", ").append(trace.getY(index, entry))
+                        .append(") facing ").append(trace.getDirection(index, entry)).append(NEWLINE);
+            }
         }
     }
 
     /**
-     * Inner class to represent a position in the path
+     * Inclusive rectangle of cells to draw
      */
-    private static class CarPosition {
-        int x;
-        int y;
-        Direction direction;
-        int step;
-        String action;
+    private static final class Viewport {
+        final int minX;
+        final int maxX;
+        final int minY;
+        final int maxY;
+
+        private Viewport(int minX, int maxX, int minY, int maxY) {
+            this.minX = minX;
+            this.maxX = maxX;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
 
-        CarPosition(int x, int y, Direction direction, int step, String action) {
-            this.x = x;
-            this.y = y;
-            this.direction = direction;
-            this.step = step;
-            this.action = action;
+        static Viewport of(Field field) {
+            return new Viewport(0, field.getWidth() - 1, 0, field.getHeight() - 1);
+        }
+
+        /**
+         * @return the smallest rectangle holding every entry of the cars {@code [from, to)}; empty without cars
+         */
+        static Viewport of(TrajectoryTrace trace, int from, int to) {
+            int minX = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE;
+            int minY = Integer.MAX_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int car = from; car < to; car++) {
+                for (int entry = 0; entry < trace.getLength(car); entry++) {
+                    minX = Math.min(minX, trace.getX(car, entry));
+                    maxX = Math.max(maxX, trace.getX(car, entry));
+                    minY = Math.min(minY, trace.getY(car, entry));
+                    maxY = Math.max(maxY, trace.getY(car, entry));
+                }
+            }
+            return new Viewport(minX, maxX, minY, maxY);
         }
     }
 }
@@ -0,0 +1,127 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.batch.BatchSimulationRunner.ResultOrder;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchSimulationRunnerTest {
+
+    /**
+     * Even scenarios collide at step 7, odd ones have a single car.
+     */
+    private static Scenario scenario(int i) {
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A" + i, 1, 2, Direction.N, "FFRFFFFRRL"));
+        if (i % 2 == 0) {
+            cars.add(new Car("B" + i, 7, 8, Direction.W, "FFLFFFFFFF"));
+        }
+        return new Scenario(new Field(10, 10), cars);
+    }
+
+    @Test
+    void inputOrderShouldDeliverEveryResultInOrder() {
+        List<ScenarioResult> results = new ArrayList<>();
+        try (BatchSimulationRunner runner = new BatchSimulationRunner(new SimulationServiceImpl(), 4)) {
+            runner.run(IntStream.range(0, 1000).mapToObj(BatchSimulationRunnerTest::scenario),
+                    ResultOrder.INPUT, results::add);
+        }
+
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ScenarioResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(i % 2 == 0, result.hasCollision());
+            if (result.hasCollision()) {
+                assertEquals(7, result.getCollision().getStep());
+                assertEquals("5,4", result.getCollision().getPosition());
+            } else {
+                assertEquals(5, result.getScenario().getCars().get(0).getX());
+                assertEquals(4, result.getScenario().getCars().get(0).getY());
+            }
+        }
+    }
+
+    @Test
+    void completionOrderShouldDeliverEveryResultOnce() {
+        Set<Long> indices = new HashSet<>();
+        try (BatchSimulationRunner runner = new BatchSimulationRunner(new SimulationServiceImpl(), 3, 5)) {
+            runner.run(IntStream.range(0, 500).mapToObj(BatchSimulationRunnerTest::scenario),
+                    ResultOrder.COMPLETION, result -> assertTrue(indices.add(result.getIndex())));
+        }
+
+        assertEquals(500, indices.size());
+    }
+
+    @Test
+    void inputShouldNotBeReadFurtherThanMaxInFlightAheadOfTheConsumer() {
+        int maxInFlight = 6;
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        Iterator<Scenario> input = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return read.get() < 200;
+            }
+
+            @Override
+            public Scenario next() {
+                assertTrue(read.get() - delivered.get() < maxInFlight);
+                return scenario(read.getAndIncrement());
+            }
+        };
+
+        for (ResultOrder order : ResultOrder.values()) {
+            read.set(0);
+            delivered.set(0);
+            try (BatchSimulationRunner runner = new BatchSimulationRunner(new SimulationServiceImpl(), 2, maxInFlight)) {
+                runner.run(input, order, result -> delivered.incrementAndGet());
+            }
+            assertEquals(200, delivered.get());
+        }
+    }
+
+    @Test
+    void failingScenarioShouldStopTheBatch() {
+        SimulationService failing = new SimulationService() {
+            @Override
+            public CollisionResult run(Field field, List<Car> cars) {
+                if (cars.get(0).getName().equals("A13")) {
+                    throw new IllegalArgumentException("broken");
+                }
+                return null;
+            }
+        };
+
+        for (ResultOrder order : ResultOrder.values()) {
+            try (BatchSimulationRunner runner = new BatchSimulationRunner(failing, 2)) {
+                Stream<Scenario> scenarios = IntStream.range(0, 100).mapToObj(BatchSimulationRunnerTest::scenario);
+                IllegalStateException e = assertThrows(IllegalStateException.class,
+                        () -> runner.run(scenarios, order, result -> { }));
+                assertEquals("Scenario 13 failed", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void invalidSettingsShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BatchSimulationRunner(new SimulationServiceImpl(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new BatchSimulationRunner(new SimulationServiceImpl(), 2, 0));
+    }
+}
@@ -0,0 +1,145 @@
+package com.autodrive.simulation.batch;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Scenario;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzHarnessTest {
+
+    @Test
+    void generatedCarsShouldFollowTheCarCreatorRules() {
+        ScenarioGenerator generator = new ScenarioGenerator(7).withField(30, 20).withDensity(0.5)
+                .withCommandLength(3, 9).withForwardShare(0.5);
+
+        for (long i = 0; i < 50; i++) {
+            Scenario scenario = generator.generate(i);
+            Field field = scenario.getField();
+            assertEquals(30, field.getWidth());
+            assertEquals(20, field.getHeight());
+            assertEquals(300, scenario.getCars().size());
+
+            Set<String> names = new HashSet<>();
+            Set<String> cells = new HashSet<>();
+            for (Car car : scenario.getCars()) {
+                assertTrue(names.add(car.getName()));
+                assertFalse(car.getName().isEmpty());
+                assertTrue(field.isInside(car.getX(), car.getY()));
+                assertTrue(cells.add(car.getX() + "," + car.getY()), "cars start on distinct cells");
+                assertTrue(car.getCommands().matches("[LRF]{3,9}"), car.getCommands());
+            }
+        }
+    }
+
+    @Test
+    void scenariosShouldOnlyDependOnSeedAndIndex() {
+        ScenarioGenerator generator = new ScenarioGenerator(11).withDensity(0.3);
+
+        assertEquals(describe(generator.generate(5)), describe(generator.generate(5)));
+        assertEquals(describe(generator.generate(5)), describe(new ScenarioGenerator(11).withDensity(0.3).generate(5)));
+        assertNotEquals(describe(generator.generate(5)), describe(generator.generate(6)));
+        assertNotEquals(describe(generator.generate(5)), describe(new ScenarioGenerator(12).withDensity(0.3).generate(5)));
+    }
+
+    @Test
+    void forwardShareShouldSetTheCommandMix() {
+        assertTrue(new ScenarioGenerator(3).withForwardShare(1).generate(0).getCars().stream()
+                .allMatch(car -> car.getCommands().matches("F+")));
+        assertTrue(new ScenarioGenerator(3).withForwardShare(0).generate(0).getCars().stream()
+                .allMatch(car -> car.getCommands().matches("[LR]+")));
+    }
+
+    @Test
+    void invalidSettingsShouldBeRejected() {
+        ScenarioGenerator generator = new ScenarioGenerator(1);
+        assertThrows(IllegalArgumentException.class, () -> generator.withDensity(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.withDensity(1.5));
+        assertThrows(IllegalArgumentException.class, () -> generator.withCommandLength(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> generator.withCommandLength(5, 4));
+        assertThrows(IllegalArgumentException.class, () -> generator.withField(0, 4));
+    }
+
+    @Test
+    void reportShouldMatchRunningEveryScenarioInOrder() {
+        ScenarioGenerator generator = new ScenarioGenerator(99).withField(20, 20).withDensity(0.01);
+        int scenarios = 1000;
+
+        long collisions = 0;
+        long collidedCars = 0;
+        long commands = 0;
+        int maxStep = 0;
+        SimulationService reference = new SimulationServiceImpl();
+        for (int i = 0; i < scenarios; i++) {
+            Scenario scenario = generator.generate(i);
+            for (Car car : scenario.getCars()) {
+                commands += car.getCommandCount();
+            }
+            CollisionResult collision = reference.run(scenario.getField(), scenario.getCars());
+            if (collision != null) {
+                collisions++;
+                collidedCars += collision.getCollidedCarNames().size();
+                maxStep = Math.max(maxStep, collision.getStep());
+            }
+        }
+
+        FuzzReport report = new FuzzHarness(new SimulationServiceImpl(), 4).run(generator, scenarios);
+
+        assertEquals(scenarios, report.getScenarios());
+        assertEquals(scenarios * 4L, report.getCars());
+        assertEquals(commands, report.getCommands());
+        assertEquals(collisions, report.getCollisions());
+        assertEquals(collidedCars, report.getCollidedCars());
+        assertEquals(maxStep, report.getMaxCollisionStep());
+        assertTrue(collisions > 0 && collisions < scenarios, report.toString());
+        assertEquals(0, report.getFailures());
+        assertEquals(-1, report.getFirstFailedScenario());
+        assertTrue(report.getScenariosPerSecond() > 0);
+    }
+
+    @Test
+    void failingScenariosShouldBeCountedAndTheLowestReported() {
+        SimulationService failsOnOddStartColumn = new SimulationService() {
+            @Override
+            public CollisionResult run(Field field, List<Car> cars) {
+                if (cars.get(0).getX() % 2 == 1) {
+                    throw new IllegalStateException("odd");
+                }
+                return null;
+            }
+        };
+        ScenarioGenerator generator = new ScenarioGenerator(5);
+        long expectedFailures = 0;
+        long firstFailed = -1;
+        for (int i = 0; i < 500; i++) {
+            if (generator.generate(i).getCars().get(0).getX() % 2 == 1) {
+                expectedFailures++;
+                firstFailed = firstFailed < 0 ? i : firstFailed;
+            }
+        }
+
+        FuzzReport report = new FuzzHarness(failsOnOddStartColumn, 3).run(generator, 500);
+
+        assertEquals(expectedFailures, report.getFailures());
+        assertEquals(500 - expectedFailures, report.getScenarios());
+        assertEquals(firstFailed, report.getFirstFailedScenario());
+        assertEquals("java.lang.IllegalStateException: odd", report.getFirstFailure());
+    }
+
+    private static String describe(Scenario scenario) {
+        StringBuilder text = new StringBuilder();
+        for (Car car : scenario.getCars()) {
+            text.append(car.getName()).append(' ').append(car.getX()).append(' ').append(car.getY())
+                    .append(' ').append(car.getDirection()).append(' ').append(car.getCommands()).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,95 @@
+package com.autodrive.simulation.cli;
+
+import com.autodrive.simulation.io.JsonLinesWriter;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeadlessRunnerTest {
+
+    private static List<String> runDirectory(String... files) throws IOException {
+        Path dir = Files.createTempDirectory("scenarios");
+        Path output = Files.createTempFile("results", ".jsonl");
+        try {
+            for (int i = 0; i < files.length; i += 2) {
+                Files.write(dir.resolve(files[i]), files[i + 1].getBytes(StandardCharsets.UTF_8));
+            }
+            new HeadlessRunner(new SimulationServiceImpl()).run(dir, output, 2);
+            return Files.readAllLines(output, StandardCharsets.UTF_8);
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void shouldWriteOneLinePerCarInFileOrder() throws IOException {
+        List<String> lines = runDirectory(
+                "b.txt", "10 10\nA 1 2 N FFRFFFFRRL\nB 7 8 W FFLFFFFFFF\nC 0 0 N L\n",
+                "a.txt", "10 10\nA 1 2 N FFRFFFFRRL\nB 0 0 E R\n");
+
+        assertEquals(List.of(
+                "{\"scenario\":\"a.txt\",\"car\":\"A\",\"x\":5,\"y\":4,\"direction\":\"S\"}",
+                "{\"scenario\":\"a.txt\",\"car\":\"B\",\"x\":0,\"y\":0,\"direction\":\"S\"}",
+                "{\"scenario\":\"b.txt\",\"car\":\"A\",\"collidesWith\":[\"B\"],\"position\":\"5,4\",\"step\":7}",
+                "{\"scenario\":\"b.txt\",\"car\":\"B\",\"collidesWith\":[\"A\"],\"position\":\"5,4\",\"step\":7}"),
+                lines);
+    }
+
+    @Test
+    void unreadableFileShouldBecomeAnErrorLineInPlace() throws IOException {
+        List<String> lines = runDirectory(
+                "1.txt", "5 5\nA 9 9 N F\n",
+                "2.txt", "5 5\nA 0 0 N F\n");
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"scenario\":\"1.txt\",\"error\":\"Line 2: "), lines.get(0));
+        assertEquals("{\"scenario\":\"2.txt\",\"car\":\"A\",\"x\":0,\"y\":1,\"direction\":\"N\"}", lines.get(1));
+    }
+
+    @Test
+    void manyScenariosShouldAllBeWrittenThroughSeveralChunks() throws IOException {
+        Path dir = Files.createTempDirectory("scenarios");
+        Path output = Files.createTempFile("results", ".jsonl");
+        try {
+            StringBuilder cars = new StringBuilder("100 100\n");
+            for (int i = 0; i < 2000; i++) {
+                cars.append("car").append(i).append(' ').append(i % 100).append(' ').append(i / 100).append(" N R\n");
+            }
+            for (int f = 0; f < 5; f++) {
+                Files.write(dir.resolve("s" + f + ".txt"), cars.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            HeadlessRunner runner = new HeadlessRunner(new SimulationServiceImpl());
+            runner.run(dir, output, 3);
+
+            List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+            assertEquals(10_000, lines.size());
+            assertEquals("{\"scenario\":\"s4.txt\",\"car\":\"car1999\",\"x\":99,\"y\":19,\"direction\":\"E\"}",
+                    lines.get(9_999));
+            assertEquals(5, runner.getScenarioCount());
+            assertEquals(0, runner.getCollisionCount());
+        } finally {
+            try (Stream<Path> paths = Files.walk(dir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            Files.delete(output);
+        }
+    }
+
+    @Test
+    void stringsShouldBeEscaped() {
+        assertEquals("\"a\\\"b\\\\c\\n\\u0001\"",
+                JsonLinesWriter.appendString(new StringBuilder(), "a\"b\\c\n\u0001").toString());
+    }
+}
@@ -0,0 +1,112 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Scenario;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScenarioFileParserTest {
+
+    private static Scenario parse(ScenarioFileParser parser, String content) throws IOException {
+        Path file = Files.createTempFile("scenario", ".txt");
+        try {
+            Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+            return parser.parse(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static ScenarioFormatException parseError(String content) {
+        return assertThrows(ScenarioFormatException.class, () -> parse(new ScenarioFileParser(), content));
+    }
+
+    @Test
+    void validFileShouldProduceFieldAndCars() throws IOException {
+        Scenario scenario = parse(new ScenarioFileParser(),
+                "# two cars\r\n10 10\r\n\r\nA 1 2 N FFRFFFFRRL\r\n\tB  7 8 w ffLFFFFFFF  \r\n");
+
+        assertEquals(10, scenario.getField().getWidth());
+        assertEquals(10, scenario.getField().getHeight());
+        List<Car> cars = scenario.getCars();
+        assertEquals(2, cars.size());
+        assertEquals("A", cars.get(0).getName());
+        assertEquals(1, cars.get(0).getX());
+        assertEquals(2, cars.get(0).getY());
+        assertEquals(Direction.N, cars.get(0).getDirection());
+        assertEquals("FFRFFFFRRL", cars.get(0).getCommands());
+        assertEquals("B", cars.get(1).getName());
+        assertEquals(Direction.W, cars.get(1).getDirection());
+        assertEquals("FFLFFFFFFF", cars.get(1).getCommands());
+    }
+
+    @Test
+    void bytesShouldBeParsedLikeAFile() throws IOException {
+        Scenario scenario = new ScenarioFileParser().parse("10 10\nA 1 2 N FFRFFFFRRL\nB 7 8 W FFLFFFFFFF".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, scenario.getCars().size());
+        assertEquals("FFLFFFFFFF", scenario.getCars().get(1).getCommands());
+        assertThrows(ScenarioFormatException.class,
+                () -> new ScenarioFileParser().parse("10 10\nA 10 2 N F\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void lastLineWithoutNewlineShouldBeParsed() throws IOException {
+        Scenario scenario = parse(new ScenarioFileParser(), "5 5\nCar 0 0 E F");
+
+        assertEquals(1, scenario.getCars().size());
+        assertEquals("Car", scenario.getCars().get(0).getName());
+    }
+
+    @Test
+    void invalidCarsShouldBeRejectedWithCarCreatorRules() {
+        assertEquals("Line 2: Position (10, 2) is outside field boundaries!", parseError("10 10\nA 10 2 N F\n").getMessage());
+        assertEquals("Line 2: Invalid direction! Use N, E, S, or W.", parseError("10 10\nA 1 2 X F\n").getMessage());
+        assertEquals("Line 2: Invalid direction! Use N, E, S, or W.", parseError("10 10\nA 1 2 NE F\n").getMessage());
+        assertEquals("Line 3: Invalid commands! Only L, R, F are allowed.", parseError("10 10\nA 1 2 N F\nB 1 3 N FFB\n").getMessage());
+        assertEquals("Line 2: Invalid commands! Only L, R, F are allowed.", parseError("10 10\nA 1 2 N\n").getMessage());
+        assertEquals("Line 2: Invalid position! Enter integers for x and y.", parseError("10 10\nA 1x 2 N F\n").getMessage());
+        assertEquals("Line 2: Invalid position! Enter integers for x and y.", parseError("10 10\nA 1 99999999999 N F\n").getMessage());
+        assertEquals("Line 2: Invalid format! Use: name x y Direction commands", parseError("10 10\nA 1 2 N F extra\n").getMessage());
+        assertEquals(2, parseError("10 10\nA 1\n").getLine());
+    }
+
+    @Test
+    void invalidFieldShouldBeRejected() {
+        assertEquals("Line 1: Field size must be positive.", parseError("0 10\n").getMessage());
+        assertEquals("Line 1: Please enter valid integers.", parseError("a 10\n").getMessage());
+        assertEquals("Line 1: Please enter exactly two integers.", parseError("10 10 10\n").getMessage());
+        assertEquals("Line 1: Missing field size line", parseError("").getMessage());
+    }
+
+    @Test
+    void linesShouldBeParsedAcrossMappedWindows() throws IOException {
+        StringBuilder content = new StringBuilder("100 100\n");
+        for (int i = 0; i < 200; i++) {
+            content.append("C").append(i).append(' ').append(i % 100).append(' ').append(i / 2).append(" S LRF\n");
+        }
+
+        Scenario scenario = parse(new ScenarioFileParser(24), content.toString());
+
+        assertEquals(200, scenario.getCars().size());
+        Car last = scenario.getCars().get(199);
+        assertEquals("C199", last.getName());
+        assertEquals(99, last.getX());
+        assertEquals(99, last.getY());
+        assertEquals("LRF", last.getCommands());
+    }
+
+    @Test
+    void lineLongerThanWindowShouldBeRejected() {
+        assertThrows(ScenarioFormatException.class,
+                () -> parse(new ScenarioFileParser(16), "10 10\nA 1 2 N FFFFFFFFFFFFFFFFFFFF\nB 1 1 N F\n"));
+    }
+}
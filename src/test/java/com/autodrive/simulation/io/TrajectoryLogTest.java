@@ -0,0 +1,126 @@
+package com.autodrive.simulation.io;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import com.autodrive.simulation.service.TrajectoryRecorder;
+import com.autodrive.simulation.service.TrajectoryTrace;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryLogTest {
+
+    /**
+     * Runs the cars while writing the log and a trace, then checks every step read back against the trace.
+     */
+    private static void assertRoundTrip(Field field, List<Car> cars, boolean stopAtFirstCollision, int window)
+            throws IOException {
+        Path file = Files.createTempFile("trajectory", ".log");
+        try {
+            TrajectoryTrace trace = new TrajectoryTrace(cars);
+            try (TrajectoryLogWriter writer = new TrajectoryLogWriter(file, cars)) {
+                TrajectoryRecorder both = new TrajectoryRecorder() {
+                    @Override
+                    public void record(int car, int x, int y, Direction direction) {
+                        trace.record(car, x, y, direction);
+                        writer.record(car, x, y, direction);
+                    }
+
+                    @Override
+                    public void deactivated(int car) {
+                        writer.deactivated(car);
+                    }
+
+                    @Override
+                    public void endStep(int step) {
+                        writer.endStep(step);
+                    }
+                };
+                if (stopAtFirstCollision) {
+                    new SimulationServiceImpl().run(field, cars, both);
+                } else {
+                    new SimulationServiceImpl().runAll(field, cars, both);
+                }
+            }
+
+            try (TrajectoryLogReader reader = new TrajectoryLogReader(file, window)) {
+                assertEquals(cars.size(), reader.getCarCount());
+                assertStep(trace, reader);
+                while (reader.nextStep()) {
+                    assertStep(trace, reader);
+                }
+                assertFalse(reader.nextStep());
+                for (int car = 0; car < cars.size(); car++) {
+                    assertEquals(cars.get(car).isActive(), reader.isActive(car));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void assertStep(TrajectoryTrace trace, TrajectoryLogReader reader) {
+        for (int car = 0; car < reader.getCarCount(); car++) {
+            int entry = Math.min(reader.getStep(), trace.getLength(car) - 1);
+            assertEquals(trace.getX(car, entry), reader.getX(car), "x of car " + car + " at step " + reader.getStep());
+            assertEquals(trace.getY(car, entry), reader.getY(car), "y of car " + car + " at step " + reader.getStep());
+            assertEquals(trace.getDirection(car, entry), reader.getDirection(car));
+        }
+    }
+
+    @Test
+    void collisionScenarioShouldReadBackEveryStep() throws IOException {
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"));
+        cars.add(new Car("B", 7, 8, Direction.W, "FFLFFFFFFF"));
+        cars.add(new Car("C", 0, 0, Direction.S, "FXLFF"));
+
+        assertRoundTrip(new Field(10, 10), cars, true, 1 << 20);
+
+        assertFalse(cars.get(0).isActive());
+        assertFalse(cars.get(1).isActive());
+    }
+
+    @Test
+    void randomScenariosShouldReadBackEveryStep() throws IOException {
+        Random random = new Random(14);
+        String alphabet = "LRFFFFX";
+        for (int round = 0; round < 30; round++) {
+            Field field = new Field(1 + random.nextInt(12), 1 + random.nextInt(12));
+            List<Car> cars = new ArrayList<>();
+            int carCount = 1 + random.nextInt(20);
+            for (int i = 0; i < carCount; i++) {
+                StringBuilder commands = new StringBuilder();
+                int length = random.nextInt(40);
+                for (int c = 0; c < length; c++) {
+                    commands.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                cars.add(new Car("C" + i, random.nextInt(field.getWidth()), random.nextInt(field.getHeight()),
+                        Direction.values()[random.nextInt(4)], commands.toString()));
+            }
+
+            // A tiny window makes the reader remap in the middle of varints and steps
+            assertRoundTrip(field, cars, round % 3 == 0, round % 2 == 0 ? 3 : 1 << 20);
+        }
+    }
+
+    @Test
+    void readerShouldRejectOtherFiles() throws IOException {
+        Path file = Files.createTempFile("trajectory", ".log");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 0});
+            assertThrows(IOException.class, () -> new TrajectoryLogReader(file).close());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
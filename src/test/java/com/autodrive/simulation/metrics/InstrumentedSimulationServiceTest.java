@@ -0,0 +1,150 @@
+package com.autodrive.simulation.metrics;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.service.CollisionLog;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.autodrive.simulation.service.ServiceEquivalence.collidingCars;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentedSimulationServiceTest {
+
+    @Test
+    void runsShouldBeCountedWithStepsCarsAndCollisions() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        SimulationService service = new InstrumentedSimulationService(new SimulationServiceImpl(), metrics);
+        Field field = new Field(10, 10);
+
+        CollisionResult result = service.run(field, collidingCars());
+        CollisionLog log = service.runAll(field, collidingCars());
+        service.run(field, List.of(new Car("D", 0, 0, Direction.N, "FFF")));
+
+        assertEquals(7, result.getStep());
+        assertEquals(1, log.size());
+        assertEquals(3, metrics.getRunCount());
+        assertEquals(7 + 10 + 3, metrics.getStepCount());
+        assertEquals(7, metrics.getCarCount());
+        assertEquals(2, metrics.getCollisionCount());
+        assertEquals(0, metrics.getActiveCarCount());
+        assertEquals(0, metrics.getRunsInProgress());
+
+        long runs = 0;
+        for (long count : metrics.getLatencyHistogram()) {
+            runs += count;
+        }
+        assertEquals(3, runs);
+        assertTrue(metrics.getLatencyP99Millis() >= metrics.getLatencyP50Millis());
+        assertTrue(metrics.getMeanAllocatedBytesPerRun() != 0);
+
+        metrics.reset();
+        assertEquals(0, metrics.getRunCount());
+        assertEquals(0.0, metrics.getLatencyP50Millis());
+    }
+
+    @Test
+    void failingRunsShouldBeCountedAndRethrown() {
+        SimulationMetrics metrics = new SimulationMetrics();
+        SimulationService failing = new SimulationService() {
+            @Override
+            public CollisionResult run(Field field, List<Car> cars) {
+                throw new IllegalStateException("boom");
+            }
+
+            @Override
+            public CollisionLog runAll(Field field, List<Car> cars) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        SimulationService service = new InstrumentedSimulationService(failing, metrics);
+
+        assertThrows(IllegalStateException.class, () -> service.run(new Field(5, 5), collidingCars()));
+
+        assertEquals(1, metrics.getFailedRunCount());
+        assertEquals(0, metrics.getRunCount());
+        assertEquals(0, metrics.getRunsInProgress());
+    }
+
+    @Test
+    void activeCarsShouldAddUpOverConcurrentRuns() throws InterruptedException {
+        SimulationMetrics metrics = new SimulationMetrics();
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        SimulationService blocking = (field, cars) -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        };
+        SimulationService service = new InstrumentedSimulationService(blocking, metrics);
+        List<Car> withInactive = collidingCars();
+        withInactive.get(2).deactivate();
+
+        Thread first = new Thread(() -> service.run(new Field(10, 10), collidingCars()));
+        Thread second = new Thread(() -> service.run(new Field(10, 10), withInactive));
+        first.start();
+        second.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(3 + 2, metrics.getActiveCarCount());
+
+        release.countDown();
+        first.join();
+        second.join();
+        assertEquals(0, metrics.getActiveCarCount());
+        assertEquals(2, metrics.getRunCount());
+    }
+
+    @Test
+    void concurrentRunsShouldAllBeCounted() throws InterruptedException {
+        SimulationMetrics metrics = new SimulationMetrics(1);
+        SimulationService service = new InstrumentedSimulationService(new SimulationServiceImpl(), metrics);
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    service.runAll(new Field(10, 10), collidingCars());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1600, metrics.getRunCount());
+        assertEquals(1600 * 10, metrics.getStepCount());
+        assertEquals(1600, metrics.getCollisionCount());
+        assertTrue(metrics.getStepsPerSecond() > 0);
+    }
+
+    @Test
+    void metricsShouldBeReadableThroughThePlatformMBeanServer() throws Exception {
+        SimulationMetrics metrics = new SimulationMetrics();
+        ObjectName name = metrics.register("test-" + System.nanoTime());
+        try {
+            new InstrumentedSimulationService(new SimulationServiceImpl(), metrics).run(new Field(10, 10), collidingCars());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "RunCount"));
+            assertEquals(3L, server.getAttribute(name, "CarCount"));
+            assertThrows(IllegalStateException.class, () -> metrics.register("again"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+}
@@ -0,0 +1,91 @@
+package com.autodrive.simulation.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandProgramTest {
+
+    @Test
+    void equalCommandsShouldShareOneProgram() {
+        Car carA = new Car("A", 0, 0, Direction.N, new String("FFRFF"));
+        Car carB = new Car("B", 1, 1, Direction.E, new String("FFRFF"));
+
+        assertSame(carA.getProgram(), carB.getProgram());
+        assertSame(CommandProgram.of("FFRFF"), carA.getProgram());
+        assertNotSame(CommandProgram.of("FFRF"), carA.getProgram());
+    }
+
+    @Test
+    void commandsShouldBeDecodedOnce() {
+        CommandProgram program = CommandProgram.of("LRFx");
+
+        assertEquals(4, program.length());
+        assertEquals(CommandProgram.LEFT, program.codeAt(0));
+        assertEquals(CommandProgram.RIGHT, program.codeAt(1));
+        assertEquals(CommandProgram.FORWARD, program.codeAt(2));
+        assertEquals(CommandProgram.NOOP, program.codeAt(3));
+        assertEquals("LRFx", program.getCommands());
+    }
+
+    @Test
+    void charactersOutsideTheBasicPlaneShouldBeIgnored() {
+        // A car emoji is a surrogate pair: two chars, each ignored like any unknown command
+        CommandProgram program = CommandProgram.of("F\uD83D\uDE97F\u0100");
+
+        assertEquals(5, program.length());
+        assertEquals(CommandProgram.FORWARD, program.codeAt(0));
+        assertEquals(CommandProgram.NOOP, program.codeAt(1));
+        assertEquals(CommandProgram.NOOP, program.codeAt(2));
+        assertEquals(CommandProgram.FORWARD, program.codeAt(3));
+        assertEquals(CommandProgram.NOOP, program.codeAt(4));
+
+        Car car = new Car("A", 0, 0, Direction.N, "F\uD83D\uDE97F");
+        Field field = new Field(5, 5);
+        for (int step = 0; step < car.getCommandCount(); step++) {
+            car.executeStep(step, field);
+        }
+        assertEquals(2, car.getY());
+    }
+
+    @Test
+    void fingerprintShouldFollowTheCodesInBothHalves() {
+        CommandProgram program = CommandProgram.of("FLFFR");
+        CommandProgram ignored = CommandProgram.of("FLFF?");
+        CommandProgram swapped = CommandProgram.of("LFFFR");
+
+        assertEquals(CommandProgram.of("FLFFX").fingerprint(), ignored.fingerprint());
+        assertEquals(CommandProgram.of("FLFFX").fingerprintLow(), ignored.fingerprintLow());
+        assertNotEquals(program.fingerprint(), swapped.fingerprint());
+        assertNotEquals(program.fingerprintLow(), swapped.fingerprintLow());
+        assertNotEquals(program.fingerprint(), program.fingerprintLow());
+    }
+
+    @Test
+    void executeStepShouldFollowTheProgramAndReportMoves() {
+        Field field = new Field(5, 5);
+        Car car = new Car("A", 0, 3, Direction.N, "FFLF?");
+
+        assertTrue(car.executeStep(0, field));   // (0,4)
+        assertFalse(car.executeStep(1, field));  // blocked by the boundary
+        assertFalse(car.executeStep(2, field));  // turn left -> W
+        assertFalse(car.executeStep(3, field));  // blocked by the boundary
+        assertFalse(car.executeStep(4, field));  // unknown command
+        assertFalse(car.executeStep(5, field));  // past the end of the program
+
+        assertEquals(0, car.getX());
+        assertEquals(4, car.getY());
+        assertEquals(Direction.W, car.getDirection());
+        assertEquals(5, car.getCommandCount());
+    }
+
+    @Test
+    void carWithoutCommandsShouldHaveNoProgram() {
+        Car car = new Car("A", 0, 0, Direction.N, null);
+
+        assertNull(car.getProgram());
+        assertNull(car.getCommands());
+        assertEquals(0, car.getCommandCount());
+        assertFalse(car.executeStep(0, new Field(5, 5)));
+    }
+}
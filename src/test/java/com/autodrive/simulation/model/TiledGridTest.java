@@ -0,0 +1,71 @@
+package com.autodrive.simulation.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiledGridTest {
+
+    @Test
+    void unsetCellsShouldReadAsZeroWithoutAllocatingChunks() {
+        TiledGrid grid = new TiledGrid(new Field(1_000_000, 1_000_000));
+
+        assertEquals(0, grid.get(999_999, 999_999));
+        assertEquals(0, grid.allocatedChunks());
+    }
+
+    @Test
+    void settingCellsShouldOnlyAllocateTheirChunks() {
+        TiledGrid grid = new TiledGrid(new Field(1_000_000, 1_000_000), 4);
+
+        grid.set(0, 0, 'S');
+        grid.set(15, 15, 'E');
+        grid.set(500_000, 7, 1);
+
+        assertEquals('S', grid.get(0, 0));
+        assertEquals('E', grid.get(15, 15));
+        assertEquals(1, grid.get(500_000, 7));
+        assertEquals(0, grid.get(16, 0));
+        assertEquals(2, grid.allocatedChunks());
+    }
+
+    @Test
+    void chunkShouldBeEvictedWhenAllItsCellsAreCleared() {
+        TiledGrid grid = new TiledGrid(new Field(100, 100), 3);
+
+        assertEquals(1, grid.add(10, 10, 1));
+        assertEquals(2, grid.add(10, 10, 1));
+        grid.set(11, 11, 5);
+        assertEquals(1, grid.allocatedChunks());
+
+        grid.add(10, 10, -2);
+        assertEquals(1, grid.allocatedChunks());
+        grid.set(11, 11, 0);
+
+        assertEquals(0, grid.allocatedChunks());
+        assertEquals(0, grid.get(11, 11));
+    }
+
+    @Test
+    void manyChunksShouldSurviveGrowthAndEviction() {
+        TiledGrid grid = new TiledGrid(new Field(10_000, 10_000), 2);
+
+        for (int i = 0; i < 1000; i++) {
+            grid.set(i * 7, i * 3, i + 1);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            grid.set(i * 7, i * 3, 0);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0 ? 0 : i + 1, grid.get(i * 7, i * 3));
+        }
+    }
+
+    @Test
+    void cellsOutsideFieldShouldBeRejected() {
+        TiledGrid grid = new TiledGrid(new Field(5, 5));
+
+        assertThrows(IllegalArgumentException.class, () -> grid.get(5, 0));
+        assertThrows(IllegalArgumentException.class, () -> grid.set(-1, 0, 1));
+    }
+}
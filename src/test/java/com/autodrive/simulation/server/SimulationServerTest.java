@@ -0,0 +1,147 @@
+package com.autodrive.simulation.server;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.service.CollisionResult;
+import com.autodrive.simulation.service.SimulationService;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationServerTest {
+
+    private static final String SCENARIO = "10 10\nA 1 2 N FFRFFFFRRL\nB 7 8 W FFLFFFFFFF\n";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void runShouldAnswerWithCollisionAndFinalCars() throws Exception {
+        try (SimulationServer server = start(new SimulationServiceImpl(), 2, 4)) {
+            HttpResponse<String> response = post(server, "/run", SCENARIO);
+
+            assertEquals(200, response.statusCode());
+            String body = response.body();
+            assertTrue(body.startsWith("{\"latencyMicros\":"), body);
+            assertTrue(body.contains("\"collisions\":[{\"step\":7,\"position\":\"5,4\",\"cars\":[\"A\",\"B\"]}]"), body);
+            assertTrue(body.contains("{\"car\":\"A\",\"x\":5,\"y\":4,\"direction\":\"E\",\"active\":false}"), body);
+            assertTrue(response.headers().firstValue("X-Latency-Micros").isPresent());
+            assertEquals(1, server.getAcceptedCount());
+            assertEquals(1, server.getMetrics().getRunCount());
+        }
+    }
+
+    @Test
+    void runAllAndCollisionFreeRunsShouldListEveryCollisionOrNone() throws Exception {
+        try (SimulationServer server = start(new SimulationServiceImpl(), 1, 0)) {
+            HttpResponse<String> all = post(server, "/run?all", SCENARIO);
+            HttpResponse<String> none = post(server, "/run", "5 5\nA 0 0 N F\n");
+
+            assertTrue(all.body().contains("\"collisions\":[{\"step\":7"), all.body());
+            assertTrue(none.body().contains("\"collisions\":[],\"cars\":[{\"car\":\"A\",\"x\":0,\"y\":1"), none.body());
+        }
+    }
+
+    @Test
+    void invalidRequestsShouldBeAnsweredWithClientErrors() throws Exception {
+        try (SimulationServer server = new SimulationServer(new SimulationServiceImpl(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1, 1, 64)) {
+            server.start();
+
+            HttpResponse<String> malformed = post(server, "/run", "10 10\nA 11 2 N F\n");
+            HttpResponse<String> tooLong = post(server, "/run", "10 10\n" + "A 1 1 N F\n".repeat(20));
+            HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri(server, "/run")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(400, malformed.statusCode());
+            assertTrue(malformed.body().startsWith("{\"error\":\"Line 2"), malformed.body());
+            assertEquals(413, tooLong.statusCode());
+            assertEquals(405, get.statusCode());
+            assertEquals(3, server.getBadRequestCount());
+            assertEquals(0, server.getInFlightCount());
+        }
+    }
+
+    @Test
+    void requestsBeyondWorkersAndQueueShouldBeRejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        SimulationService blocking = new SimulationService() {
+            @Override
+            public CollisionResult run(Field field, List<Car> cars) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+
+        try (SimulationServer server = start(blocking, 2, 1)) {
+            CompletableFuture<HttpResponse<String>> first = postAsync(server, SCENARIO);
+            CompletableFuture<HttpResponse<String>> second = postAsync(server, SCENARIO);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<HttpResponse<String>> queued = postAsync(server, SCENARIO);
+            waitForInFlight(server, 3);
+
+            HttpResponse<String> rejected = post(server, "/run", SCENARIO);
+            assertEquals(503, rejected.statusCode());
+            assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+
+            release.countDown();
+            assertEquals(200, first.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(200, second.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(200, queued.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(3, server.getAcceptedCount());
+            assertEquals(1, server.getRejectedCount());
+
+            HttpResponse<String> stats = client.send(HttpRequest.newBuilder(uri(server, "/stats")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertTrue(stats.body().startsWith("{\"accepted\":3,\"rejected\":1,"), stats.body());
+        }
+    }
+
+    private static SimulationServer start(SimulationService service, int workers, int queue) throws Exception {
+        SimulationServer server = new SimulationServer(service,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), workers, queue);
+        server.start();
+        return server;
+    }
+
+    private static void waitForInFlight(SimulationServer server, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (server.getInFlightCount() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, server.getInFlightCount());
+    }
+
+    private HttpResponse<String> post(SimulationServer server, String path, String body) throws Exception {
+        return client.send(request(server, path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private CompletableFuture<HttpResponse<String>> postAsync(SimulationServer server, String body) {
+        return client.sendAsync(request(server, "/run", body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest request(SimulationServer server, String path, String body) {
+        return HttpRequest.newBuilder(uri(server, path)).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private static URI uri(SimulationServer server, String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+}
@@ -0,0 +1,58 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArraySimulationServiceImplTest {
+
+    private final SimulationService simulationService = new ArraySimulationServiceImpl();
+
+    @Test
+    void twoCarScenarioShouldDetectCollisionAndWriteStateBack() {
+        Field field = new Field(10, 10);
+        Car carA = new Car("A", 1, 2, Direction.N, "FFRFFFFRRL");
+        Car carB = new Car("B", 7, 8, Direction.W, "FFLFFFFFFF");
+        List<Car> cars = new ArrayList<>();
+        cars.add(carA);
+        cars.add(carB);
+
+        CollisionResult result = simulationService.run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(7, result.getStep());
+        assertEquals("5,4", result.getPosition());
+        assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+        assertFalse(carA.isActive());
+        assertFalse(carB.isActive());
+        assertEquals(5, carA.getX());
+        assertEquals(4, carA.getY());
+    }
+
+    @Test
+    void earliestCarShouldDecideWhichCellIsReportedWhenSeveralCollide() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 5, 5, Direction.N, "F"));
+        cars.add(new Car("B", 1, 1, Direction.N, "F"));
+        cars.add(new Car("C", 1, 3, Direction.S, "F"));
+        cars.add(new Car("D", 5, 7, Direction.S, "F"));
+
+        ServiceEquivalence.assertSameRun(simulationService, field, cars, "two cells");
+        CollisionResult result = simulationService.run(field, cars);
+
+        assertEquals("5,6", result.getPosition());
+        assertEquals(List.of("A", "D"), result.getCollidedCarNames());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReferenceImplementation() {
+        ServiceEquivalence.assertMatchesReference(simulationService, 42L, 2000);
+    }
+}
@@ -0,0 +1,147 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.autodrive.simulation.service.ServiceEquivalence.assertSameCars;
+import static com.autodrive.simulation.service.ServiceEquivalence.collidingCars;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingSimulationServiceTest {
+
+    /**
+     * Reference service that counts how often it actually simulates.
+     */
+    private static final class CountingService implements SimulationService {
+        private final SimulationService delegate = new SimulationServiceImpl();
+        int runs;
+
+        @Override
+        public CollisionResult run(Field field, List<Car> cars) {
+            runs++;
+            return delegate.run(field, cars);
+        }
+
+        @Override
+        public CollisionLog runAll(Field field, List<Car> cars) {
+            runs++;
+            return delegate.runAll(field, cars);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    void repeatedScenarioShouldBeAnsweredFromTheCacheWithTheSameFinalState() {
+        Field field = new Field(10, 10);
+        CountingService counting = new CountingService();
+        CachingSimulationService service = new CachingSimulationService(counting, 1 << 20);
+
+        List<Car> first = collidingCars();
+        CollisionResult expected = service.run(field, first);
+        List<Car> second = collidingCars();
+        CollisionResult cached = service.run(field, second);
+
+        assertEquals(1, counting.runs);
+        assertSame(expected, cached);
+        assertSameCars(first, second, "cached run");
+        assertFalse(second.get(0).isActive());
+        assertEquals(1, service.stats().getHitCount());
+        assertEquals(1, service.stats().getMissCount());
+        assertEquals(0.5, service.stats().getHitRate());
+    }
+
+    @Test
+    void runAllShouldBeCachedSeparatelyAndNameTheCallersCars() {
+        Field field = new Field(10, 10);
+        CountingService counting = new CountingService();
+        CachingSimulationService service = new CachingSimulationService(counting, 1 << 20);
+
+        service.run(field, collidingCars());
+        CollisionLog expected = service.runAll(field, collidingCars());
+        List<Car> cars = collidingCars();
+        CollisionLog cached = service.runAll(field, cars);
+
+        assertEquals(2, counting.runs);
+        assertEquals(expected.size(), cached.size());
+        assertEquals(expected.getCarNames(0), cached.getCarNames(0));
+        assertEquals("3,0", cars.get(2).positionKey());
+    }
+
+    @Test
+    void differentScenariosShouldMissButIgnoredCharactersShouldNot() {
+        Field field = new Field(10, 10);
+        CountingService counting = new CountingService();
+        CachingSimulationService service = new CachingSimulationService(counting, 1 << 20);
+
+        service.run(field, List.of(new Car("A", 1, 2, Direction.N, "FFX")));
+        service.run(field, List.of(new Car("A", 1, 2, Direction.N, "FF?")));
+        service.run(field, List.of(new Car("B", 1, 2, Direction.N, "FFX")));
+        service.run(field, List.of(new Car("A", 2, 1, Direction.N, "FFX")));
+        service.run(new Field(10, 11), List.of(new Car("A", 1, 2, Direction.N, "FFX")));
+
+        assertEquals(4, counting.runs);
+        assertNotEquals(ScenarioFingerprint.of(field, List.of(new Car("A", 1, 2, Direction.N, "FL"))),
+                ScenarioFingerprint.of(field, List.of(new Car("A", 1, 2, Direction.N, "LF"))));
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesShouldBeEvictedBeyondTheWeightBound() {
+        Field field = new Field(10, 10);
+        CountingService counting = new CountingService();
+        // Room for two single-car entries
+        CachingSimulationService service = new CachingSimulationService(counting, 2 * (128 + StateSnapshot.byteSize(1)));
+
+        for (String commands : new String[]{"F", "FF", "F", "FFF", "F", "FF"}) {
+            service.run(field, List.of(new Car("A", 0, 0, Direction.N, commands)));
+        }
+
+        // F stays hot; FF was evicted by FFF and has to run again
+        assertEquals(4, counting.runs);
+        assertEquals(2, service.stats().getEntryCount());
+        assertEquals(2, service.stats().getEvictionCount());
+    }
+
+    @Test
+    void diskTierShouldSurviveANewInstance() throws IOException {
+        Field field = new Field(10, 10);
+        Path directory = Files.createTempDirectory("simulation-cache");
+        try {
+            CountingService counting = new CountingService();
+            CollisionResult expected = new CachingSimulationService(counting, 1 << 20, directory).run(field, collidingCars());
+            new CachingSimulationService(counting, 1 << 20, directory).runAll(field, collidingCars());
+
+            CachingSimulationService restarted = new CachingSimulationService(counting, 0, directory);
+            List<Car> cars = collidingCars();
+            CollisionResult cached = restarted.run(field, cars);
+            CollisionLog log = restarted.runAll(field, collidingCars());
+
+            assertEquals(2, counting.runs);
+            assertEquals(expected.getStep(), cached.getStep());
+            assertEquals(expected.getPosition(), cached.getPosition());
+            assertEquals(expected.getCollidedCarNames(), cached.getCollidedCarNames());
+            assertFalse(cars.get(1).isActive());
+            assertEquals(1, log.size());
+            assertEquals(List.of("A", "B"), log.getCarNames(0));
+            assertEquals(2, restarted.stats().getDiskHitCount());
+            assertEquals(0, restarted.stats().getEntryCount());
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.io.CheckpointFileStore;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static com.autodrive.simulation.service.ServiceEquivalence.collidingCars;
+import static com.autodrive.simulation.service.ServiceEquivalence.copy;
+import static com.autodrive.simulation.service.ServiceEquivalence.randomCars;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointedSimulationTest {
+
+    /**
+     * @return the state before {@code step}, simulated from the start
+     */
+    private static StateSnapshot simulateFromStart(Field field, List<Car> cars, int step) {
+        List<Car> copies = copy(cars);
+        new SimulationServiceImpl().simulate(field, copies, 0, step, false, null);
+        return StateSnapshot.of(step, copies);
+    }
+
+    private static void assertSameState(StateSnapshot expected, StateSnapshot actual) {
+        assertEquals(expected.getStep(), actual.getStep());
+        for (int car = 0; car < expected.getCarCount(); car++) {
+            assertEquals(expected.getX(car), actual.getX(car), "x of car " + car + " at step " + expected.getStep());
+            assertEquals(expected.getY(car), actual.getY(car), "y of car " + car + " at step " + expected.getStep());
+            assertEquals(expected.getDirection(car), actual.getDirection(car));
+            assertEquals(expected.isActive(car), actual.isActive(car));
+        }
+    }
+
+    @Test
+    void stateAtShouldMatchASimulationFromTheStart() {
+        Random random = new Random(15);
+        for (int round = 0; round < 10; round++) {
+            Field field = new Field(2 + random.nextInt(10), 2 + random.nextInt(10));
+            List<Car> cars = randomCars(random, field, 1 + random.nextInt(15), 60);
+            List<Car> start = copy(cars);
+            CheckpointStore store = new InMemoryCheckpointStore();
+
+            CheckpointedSimulation simulation = CheckpointedSimulation.run(field, cars, 1 + random.nextInt(8), store);
+
+            assertEquals(1 + simulation.getStepCount() / simulation.getInterval(), store.size());
+            for (int step = 0; step <= simulation.getStepCount() + 2; step++) {
+                assertSameState(simulateFromStart(field, start, step), simulation.stateAt(step));
+            }
+            assertSameState(StateSnapshot.of(simulation.getStepCount(), cars), simulation.stateAt(simulation.getStepCount()));
+        }
+    }
+
+    @Test
+    void collisionsShouldMatchRunAll() {
+        List<Car> cars = collidingCars();
+
+        CheckpointedSimulation simulation = CheckpointedSimulation.run(new Field(10, 10), cars, 4, new InMemoryCheckpointStore());
+
+        assertEquals(1, simulation.getCollisions().size());
+        assertEquals(7, simulation.getCollisions().getStep(0));
+        assertTrue(simulation.stateAt(6).isActive(0));
+        assertFalse(simulation.stateAt(7).isActive(0));
+        assertEquals(5, simulation.stateAt(9).getX(0));
+        assertEquals(4, simulation.stateAt(9).getY(0));
+    }
+
+    @Test
+    void fileStoreShouldGiveTheSameStatesAsTheMemoryStore() throws IOException {
+        Random random = new Random(16);
+        Field field = new Field(20, 20);
+        List<Car> cars = randomCars(random, field, 30, 200);
+        List<Car> copy = copy(cars);
+        Path file = Files.createTempFile("checkpoints", ".bin");
+
+        try (CheckpointFileStore store = new CheckpointFileStore(file, false)) {
+            CheckpointedSimulation onDisk = CheckpointedSimulation.run(field, cars, 16, store);
+            CheckpointedSimulation inMemory = CheckpointedSimulation.run(field, copy, 16, new InMemoryCheckpointStore());
+
+            assertEquals(StateSnapshot.byteSize(30) * (long) store.size(), Files.size(file));
+            for (int step = 0; step <= onDisk.getStepCount(); step += 7) {
+                assertSameState(inMemory.stateAt(step), onDisk.stateAt(step));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void storesShouldRejectSnapshotsOutOfOrder() {
+        List<Car> cars = List.of(new Car("A", 0, 0, Direction.N, "F"));
+        CheckpointStore store = new InMemoryCheckpointStore();
+        store.add(StateSnapshot.of(4, cars));
+
+        assertThrows(IllegalArgumentException.class, () -> store.add(StateSnapshot.of(4, cars)));
+        assertNull(store.floor(3));
+        assertEquals(4, store.floor(100).getStep());
+        assertThrows(IllegalArgumentException.class,
+                () -> CheckpointedSimulation.run(new Field(5, 5), cars, 0, store));
+    }
+}
@@ -0,0 +1,66 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistributedSimulationServiceImplTest {
+
+    @Test
+    void workerProcessesShouldMatchReferenceImplementation() {
+        try (DistributedSimulationServiceImpl service = new DistributedSimulationServiceImpl(2, 2)) {
+            assertEquals(4, service.getRegionCount());
+
+            ServiceEquivalence.assertMatchesReference(service, 42L, 50);
+        }
+    }
+
+    @Test
+    void carEnteringAnOccupiedCellAcrossTheBorderShouldCollide() {
+        // Regions split at x = 5: A crosses from the left region onto B, which never moves
+        Field field = new Field(10, 10);
+        Car carA = new Car("A", 3, 4, Direction.E, "FF");
+        Car carB = new Car("B", 5, 4, Direction.N, "LL");
+        Car carC = new Car("C", 9, 9, Direction.S, "F");
+        List<Car> cars = new ArrayList<>(List.of(carA, carB, carC));
+
+        try (DistributedSimulationServiceImpl service = DistributedSimulationServiceImpl.inThreads(2, 1)) {
+            CollisionResult result = service.run(field, cars);
+
+            assertNotNull(result);
+            assertEquals(2, result.getStep());
+            assertEquals("5,4", result.getPosition());
+            assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+        }
+        assertFalse(carA.isActive());
+        assertFalse(carB.isActive());
+        assertEquals(Direction.S, carB.getDirection());
+        assertTrue(carC.isActive());
+        assertEquals(8, carC.getY());
+    }
+
+    @Test
+    void anyGridShouldMatchReferenceImplementation() {
+        for (int[] grid : new int[][]{{1, 1}, {3, 2}, {1, 4}, {8, 8}}) {
+            // The last grid has more regions than most fields have cells, leaving some workers empty
+            try (DistributedSimulationServiceImpl service = DistributedSimulationServiceImpl.inThreads(grid[0], grid[1])) {
+                ServiceEquivalence.assertMatchesReference(service, 7L + grid[0], 200);
+            }
+        }
+    }
+
+    @Test
+    void closedServiceShouldRejectRuns() {
+        DistributedSimulationServiceImpl service = DistributedSimulationServiceImpl.inThreads(1, 1);
+        service.close();
+
+        List<Car> cars = List.of(new Car("A", 0, 0, Direction.N, "F"));
+        assertThrows(IllegalStateException.class, () -> service.run(new Field(2, 2), cars));
+    }
+}
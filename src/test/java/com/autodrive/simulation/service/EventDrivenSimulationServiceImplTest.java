@@ -0,0 +1,86 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDrivenSimulationServiceImplTest {
+
+    @Test
+    void farApartCarsShouldBeJumpedUntilTheyMeet() {
+        Field field = new Field(100000, 10);
+        Car carA = new Car("A", 0, 5, Direction.E, "F".repeat(60000));
+        Car carB = new Car("B", 99998, 5, Direction.W, "F".repeat(60000));
+        List<Car> cars = new ArrayList<>();
+        cars.add(carA);
+        cars.add(carB);
+
+        ServiceEquivalence.assertSameRun(new EventDrivenSimulationServiceImpl(), field, cars, "crossing");
+        CollisionResult result = new EventDrivenSimulationServiceImpl().run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(49999, result.getStep());
+        assertEquals("49999,5", result.getPosition());
+    }
+
+    @Test
+    void parkedCarsSharingACellShouldCollideAtFirstStep() {
+        Field field = new Field(50, 50);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 3, 3, Direction.N, ""));
+        cars.add(new Car("B", 3, 3, Direction.E, ""));
+        cars.add(new Car("C", 40, 40, Direction.S, "F".repeat(30)));
+
+        CollisionResult result = new EventDrivenSimulationServiceImpl().run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(1, result.getStep());
+        assertEquals("3,3", result.getPosition());
+        assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+    }
+
+    @Test
+    void parkedCarsSharingACellShouldCollideWhenOnlyInactiveCarsHaveCommands() {
+        Field field = new Field(10, 10);
+        Car inactive = new Car("C", 6, 6, Direction.N, "FF");
+        inactive.deactivate();
+        List<Car> cars = new ArrayList<>(List.of(new Car("A", 3, 3, Direction.N, ""),
+                new Car("B", 3, 3, Direction.E, ""), inactive));
+
+        ServiceEquivalence.assertSameRun(new EventDrivenSimulationServiceImpl(), field, cars, "run");
+        ServiceEquivalence.assertSameRunAll(new EventDrivenSimulationServiceImpl(), field, cars, "runAll");
+        assertEquals(List.of("A", "B"), new EventDrivenSimulationServiceImpl().run(field, cars).getCollidedCarNames());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReference() {
+        ServiceEquivalence.assertMatchesReference(new EventDrivenSimulationServiceImpl(), 700L, 1000);
+    }
+
+    @Test
+    void sparseScenariosWithLongRunsShouldMatchReference() {
+        Random random = new Random(7);
+        for (int run = 0; run < 40; run++) {
+            Field field = new Field(200, 200);
+            List<Car> cars = new ArrayList<>();
+            for (int c = 0; c < 20; c++) {
+                StringBuilder commands = new StringBuilder();
+                for (int segment = 0; segment < 10; segment++) {
+                    commands.append("F".repeat(random.nextInt(60)));
+                    commands.append(random.nextBoolean() ? "L" : "RR");
+                }
+                cars.add(new Car("C" + c, random.nextInt(200), random.nextInt(200),
+                        Direction.values()[random.nextInt(4)], commands.toString()));
+            }
+            ServiceEquivalence.assertSameRun(new EventDrivenSimulationServiceImpl(), field, cars, "sparse " + run);
+            ServiceEquivalence.assertSameRunAll(new EventDrivenSimulationServiceImpl(), field, cars, "sparse all " + run);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.autodrive.simulation.service.ServiceEquivalence.randomCar;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalSimulationTest {
+
+    /**
+     * Runs copies of the cars from scratch and compares collisions and final state.
+     */
+    private static void assertSameAsFullRun(Field field, List<Car> cars, IncrementalSimulation simulation) {
+        List<Car> copies = ServiceEquivalence.copy(cars);
+        CollisionLog expected = new SimulationServiceImpl().runAll(field, copies);
+        CollisionLog actual = simulation.getCollisions();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getStep(i), actual.getStep(i));
+            assertEquals(expected.getCell(i), actual.getCell(i));
+            assertEquals(expected.getCarNames(i), actual.getCarNames(i));
+        }
+
+        StateSnapshot state = simulation.stateAt(simulation.getStepCount());
+        for (int car = 0; car < cars.size(); car++) {
+            assertEquals(copies.get(car).getX(), state.getX(car), "x of car " + car);
+            assertEquals(copies.get(car).getY(), state.getY(car), "y of car " + car);
+            assertEquals(copies.get(car).getDirection(), state.getDirection(car));
+            assertEquals(copies.get(car).isActive(), state.isActive(car));
+        }
+    }
+
+    @Test
+    void addingAndReplacingCarsShouldMatchAFullRun() {
+        assertRandomChangesMatchAFullRun(16, 40);
+    }
+
+    @Test
+    void shortAndEmptyProgramsAndInactiveCarsShouldMatchAFullRun() {
+        // Most runs start without any step and many cars park on their start cell
+        assertRandomChangesMatchAFullRun(17, 3);
+    }
+
+    private static void assertRandomChangesMatchAFullRun(long seed, int maxCommands) {
+        Random random = new Random(seed);
+        for (int round = 0; round < 20; round++) {
+            Field field = new Field(3 + random.nextInt(10), 3 + random.nextInt(10));
+            List<Car> cars = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(10); i++) {
+                cars.add(randomCar(random, field, "C" + i, maxCommands));
+            }
+            IncrementalSimulation simulation = new IncrementalSimulation(field, cars);
+            assertSameAsFullRun(field, cars, simulation);
+
+            for (int change = 0; change < 15; change++) {
+                if (random.nextBoolean()) {
+                    Car car = randomCar(random, field, "C" + cars.size(), maxCommands);
+                    cars.add(car);
+                    assertEquals(cars.size() - 1, simulation.addCar(car));
+                } else {
+                    int index = random.nextInt(cars.size());
+                    Car car = randomCar(random, field, "C" + index, maxCommands);
+                    cars.set(index, car);
+                    simulation.replaceCar(index, car);
+                }
+                assertSameAsFullRun(field, cars, simulation);
+            }
+        }
+    }
+
+    @Test
+    void parkedCarsSharingACellShouldCollideOnceTheRunHasSteps() {
+        Field field = new Field(5, 1);
+        List<Car> cars = new ArrayList<>();
+        IncrementalSimulation simulation = new IncrementalSimulation(field);
+        for (Car car : List.of(new Car("A", 0, 0, Direction.E, ""), new Car("B", 0, 0, Direction.E, ""),
+                new Car("C", 3, 0, Direction.N, "L"))) {
+            cars.add(car);
+            simulation.addCar(car);
+        }
+
+        assertEquals(List.of("A", "B"), simulation.getFirstCollision().getCollidedCarNames());
+        assertSameAsFullRun(field, cars, simulation);
+
+        // Without any command left the run has no step, so nothing is checked
+        cars.set(2, new Car("C", 3, 0, Direction.N, ""));
+        simulation.replaceCar(2, cars.get(2));
+        assertNull(simulation.getFirstCollision());
+        assertSameAsFullRun(field, cars, simulation);
+    }
+
+    @Test
+    void inactiveCarsShouldStayOutOfTheRun() {
+        Field field = new Field(5, 1);
+        Car parked = new Car("A", 2, 0, Direction.E, "");
+        parked.deactivate();
+        List<Car> cars = new ArrayList<>(List.of(parked, new Car("B", 0, 0, Direction.E, "FFFF")));
+
+        IncrementalSimulation simulation = new IncrementalSimulation(field, cars);
+
+        assertNull(simulation.getFirstCollision());
+        assertFalse(simulation.stateAt(0).isActive(0));
+        assertSameAsFullRun(field, cars, simulation);
+    }
+
+    @Test
+    void carMeetingNobodyShouldNotResimulate() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"));
+        cars.add(new Car("B", 7, 8, Direction.W, "FFLFFFFFFF"));
+        IncrementalSimulation simulation = new IncrementalSimulation(field, cars);
+
+        simulation.addCar(new Car("C", 0, 9, Direction.E, "FFFFFFFFFFFFFFFFFFFF"));
+
+        assertEquals(-1, simulation.getLastResumeStep());
+        assertEquals(20, simulation.getStepCount());
+        assertEquals(7, simulation.getFirstCollision().getStep());
+        assertEquals(9, simulation.stateAt(20).getX(2));
+    }
+
+    @Test
+    void carMeetingAnotherShouldResimulateFromThatStep() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"));
+        cars.add(new Car("B", 7, 8, Direction.W, "FFLFFFFFFF"));
+        IncrementalSimulation simulation = new IncrementalSimulation(field, cars);
+
+        // Waits one step, then reaches (1,4) after step 1, together with A
+        simulation.addCar(new Car("C", 0, 4, Direction.E, "XFF"));
+
+        assertEquals(1, simulation.getLastResumeStep());
+        CollisionResult first = simulation.getFirstCollision();
+        assertEquals(2, first.getStep());
+        assertEquals(List.of("A", "C"), first.getCollidedCarNames());
+        assertFalse(simulation.stateAt(2).isActive(0));
+        assertTrue(simulation.stateAt(2).isActive(1));
+
+        // Removing the detour of C brings the original collision back
+        simulation.replaceCar(2, new Car("C", 0, 4, Direction.S, "XFF"));
+        assertEquals(1, simulation.getLastResumeStep());
+        assertEquals(7, simulation.getFirstCollision().getStep());
+    }
+}
@@ -0,0 +1,97 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KernelSimulationServiceImplTest {
+
+    @Test
+    void twoCarScenarioShouldDetectCollisionAndWriteStateBack() {
+        Field field = new Field(10, 10);
+        Car carA = new Car("A", 1, 2, Direction.N, "FFRFFFFRRL");
+        Car carB = new Car("B", 7, 8, Direction.W, "FFLFFFFFFF");
+        List<Car> cars = new ArrayList<>(List.of(carA, carB));
+
+        CollisionResult result = new KernelSimulationServiceImpl().run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(7, result.getStep());
+        assertEquals("5,4", result.getPosition());
+        assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+        assertFalse(carA.isActive());
+        assertEquals(5, carA.getX());
+        assertEquals(4, carA.getY());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReferenceImplementationWithEitherKernel() {
+        ServiceEquivalence.assertMatchesReference(new KernelSimulationServiceImpl(), 42L, 2000);
+        ServiceEquivalence.assertMatchesReference(new KernelSimulationServiceImpl(new ScalarMoveKernel()), 42L, 2000);
+    }
+
+    @Test
+    void vectorKernelShouldBePickedWhenTheModuleIsPresent() {
+        boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        String name = new KernelSimulationServiceImpl().getKernelName();
+
+        assertEquals(available, name.startsWith("vector"), name);
+    }
+
+    @Test
+    void kernelShouldMatchScalarLoopOnEveryLaneIncludingTheTail() {
+        MoveKernel kernel = MoveKernel.create();
+        Random random = new Random(5);
+        for (int count : new int[]{0, 1, 7, 8, 15, 16, 17, 63, 1000}) {
+            int[] codes = new int[count];
+            int[] x = new int[count];
+            int[] y = new int[count];
+            int[] dir = new int[count];
+            for (int i = 0; i < count; i++) {
+                codes[i] = random.nextInt(4);
+                // Borders included, so the boundary mask is exercised on every side
+                x[i] = random.nextInt(5);
+                y[i] = random.nextInt(4);
+                dir[i] = random.nextInt(4);
+            }
+            int[] expectedX = x.clone();
+            int[] expectedY = y.clone();
+            int[] expectedDir = dir.clone();
+            boolean[] expectedMoved = new boolean[count];
+            boolean[] moved = new boolean[count];
+
+            new ScalarMoveKernel().step(count, codes, expectedX, expectedY, expectedDir, 5, 4, expectedMoved);
+            kernel.step(count, codes, x, y, dir, 5, 4, moved);
+
+            String label = kernel.name() + " with " + count + " cars";
+            assertArrayEquals(expectedX, x, label);
+            assertArrayEquals(expectedY, y, label);
+            assertArrayEquals(expectedDir, dir, label);
+            assertTrue(Arrays.equals(expectedMoved, moved), label);
+        }
+    }
+
+    @Test
+    void scalarKernelShouldTurnAndStopAtTheBorder() {
+        int[] codes = {1, 2, 3, 3};
+        int[] x = {0, 0, 0, 4};
+        int[] y = {0, 0, 0, 0};
+        int[] dir = {0, 3, 0, 1};
+        boolean[] moved = new boolean[4];
+
+        new ScalarMoveKernel().step(4, codes, x, y, dir, 5, 5, moved);
+
+        assertArrayEquals(new int[]{3, 0, 0, 1}, dir);
+        assertArrayEquals(new int[]{0, 0, 0, 4}, x);
+        assertArrayEquals(new int[]{0, 0, 1, 0}, y);
+        assertTrue(Arrays.equals(new boolean[]{false, false, true, false}, moved));
+    }
+}
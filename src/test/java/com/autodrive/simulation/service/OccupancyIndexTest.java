@@ -0,0 +1,74 @@
+package com.autodrive.simulation.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyIndexTest {
+
+    @Test
+    void carsOnSameCellShouldBeChainedInIndexOrder() {
+        OccupancyIndex index = new OccupancyIndex(4);
+        long cell = OccupancyIndex.cellKey(3, 4);
+
+        index.add(2, cell);
+        index.add(0, cell);
+        index.add(3, cell);
+        index.add(1, OccupancyIndex.cellKey(4, 3));
+
+        assertEquals(3, index.occupants(3));
+        assertEquals(0, index.firstInCell(3));
+        assertEquals(2, index.nextInCell(0));
+        assertEquals(3, index.nextInCell(2));
+        assertTrue(index.nextInCell(3) < 0);
+        assertEquals("3,4", OccupancyIndex.position(index.cellOf(2)));
+    }
+
+    @Test
+    void earliestCollisionShouldReturnFirstCarOfEarliestSharedCell() {
+        OccupancyIndex index = new OccupancyIndex(5);
+        index.add(0, OccupancyIndex.cellKey(0, 0));
+        index.add(1, OccupancyIndex.cellKey(5, 5));
+        index.add(2, OccupancyIndex.cellKey(1, 1));
+        index.add(3, OccupancyIndex.cellKey(5, 5));
+        index.add(4, OccupancyIndex.cellKey(1, 1));
+
+        assertEquals(2, index.earliestCollision(new int[]{4}, 1));
+        assertEquals(1, index.earliestCollision(new int[]{4, 3}, 2));
+
+        index.move(3, OccupancyIndex.cellKey(6, 5));
+        assertEquals(1, index.occupants(1));
+        assertTrue(index.earliestCollision(new int[]{0, 1, 3}, 3) < 0);
+    }
+
+    @Test
+    void randomMovesShouldKeepCountsConsistentWithAMap() {
+        int cars = 200;
+        OccupancyIndex index = new OccupancyIndex(cars);
+        Map<Long, Integer> expected = new HashMap<>();
+        long[] cellOf = new long[cars];
+        Random random = new Random(3);
+
+        for (int car = 0; car < cars; car++) {
+            cellOf[car] = OccupancyIndex.cellKey(random.nextInt(10), random.nextInt(10));
+            index.add(car, cellOf[car]);
+            expected.merge(cellOf[car], 1, Integer::sum);
+        }
+
+        for (int round = 0; round < 20000; round++) {
+            int car = random.nextInt(cars);
+            long cell = OccupancyIndex.cellKey(random.nextInt(10) - 1, random.nextInt(10) - 1);
+            expected.merge(cellOf[car], -1, Integer::sum);
+            expected.merge(cell, 1, Integer::sum);
+            cellOf[car] = cell;
+            index.move(car, cell);
+
+            int probe = random.nextInt(cars);
+            assertEquals((int) expected.get(cellOf[probe]), index.occupants(probe));
+        }
+    }
+}
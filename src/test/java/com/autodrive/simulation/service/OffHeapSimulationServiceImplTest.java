@@ -0,0 +1,132 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.CommandProgram;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapSimulationServiceImplTest {
+
+    private final OffHeapSimulationServiceImpl simulationService = new OffHeapSimulationServiceImpl();
+
+    @Test
+    void twoCarScenarioShouldDetectCollisionAndWriteStateBack() {
+        Field field = new Field(10, 10);
+        Car carA = new Car("A", 1, 2, Direction.N, "FFRFFFFRRL");
+        Car carB = new Car("B", 7, 8, Direction.W, "FFLFFFFFFF");
+        List<Car> cars = new ArrayList<>(List.of(carA, carB));
+
+        CollisionResult result = simulationService.run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(7, result.getStep());
+        assertEquals("5,4", result.getPosition());
+        assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+        assertFalse(carA.isActive());
+        assertFalse(carB.isActive());
+        assertEquals(5, carA.getX());
+        assertEquals(4, carA.getY());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReferenceImplementation() {
+        ServiceEquivalence.assertMatchesReference(simulationService, 42L, 2000);
+        ServiceEquivalence.assertMatchesReference(simulationService, 7L, 2000);
+    }
+
+    @Test
+    void carsStartingOnOneCellShouldCollideAfterTheFirstStep() {
+        Field field = new Field(5, 5);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 2, 2, Direction.N, "F"));
+        cars.add(new Car("B", 2, 2, Direction.E, "L"));
+        cars.add(new Car("C", 2, 2, Direction.S, "R"));
+
+        ServiceEquivalence.assertSameRun(simulationService, field, cars, "shared start");
+        ServiceEquivalence.assertSameRunAll(simulationService, field, cars, "shared start, all");
+    }
+
+    @Test
+    void parkedCarsSharingACellShouldCollideWhenOnlyInactiveCarsHaveCommands() {
+        Field field = new Field(5, 5);
+        Car inactive = new Car("C", 4, 4, Direction.S, "FF");
+        inactive.deactivate();
+        List<Car> cars = new ArrayList<>(List.of(new Car("A", 2, 2, Direction.N, ""),
+                new Car("B", 2, 2, Direction.E, ""), inactive));
+
+        ServiceEquivalence.assertSameRun(simulationService, field, cars, "inactive commands");
+        ServiceEquivalence.assertSameRunAll(simulationService, field, cars, "inactive commands, all");
+        assertNotNull(simulationService.run(field, cars));
+    }
+
+    @Test
+    void storedFleetShouldRunInPlaceWithNamesByIndex() {
+        Field field = new Field(10, 10);
+        try (OffHeapCarStore store = OffHeapCarStore.allocate(4)) {
+            long route = store.addProgram(CommandProgram.of("FFRFFFFRRL"));
+            store.add(1, 2, Direction.N, route);
+            store.add(7, 8, Direction.W, store.addProgram(CommandProgram.of("FFLFFFFFFF")));
+            store.add(0, 0, Direction.E, route);
+
+            CollisionLog log = simulationService.runAll(field, store, car -> "car-" + car);
+
+            assertEquals(1, log.size());
+            assertEquals(7, log.getStep(0));
+            assertEquals("5,4", log.getPosition(0));
+            assertEquals(List.of("car-0", "car-1"), log.getCarNames(0));
+            assertFalse(store.isActive(0));
+            assertFalse(store.isActive(1));
+            assertTrue(store.isActive(2));
+            assertEquals(2, store.getX(2));
+            assertEquals(0, store.getY(2));
+            assertEquals(Direction.W, store.getDirection(2));
+            assertEquals(10, store.getCursor(2));
+            assertEquals(7, store.getCursor(0));
+            assertEquals("FFRFFFFRRL", store.getCommands(2));
+        }
+    }
+
+    @Test
+    void mappedStoreShouldMatchTheReferenceOnALargeFleet() throws IOException {
+        Path carFile = Files.createTempFile("cars", ".bin");
+        Path programFile = Files.createTempFile("programs", ".bin");
+        Random random = new Random(3);
+        Field field = new Field(300, 300);
+        List<Car> cars = ServiceEquivalence.randomCars(random, field, 20_000, 60);
+        List<Car> expected = ServiceEquivalence.copy(cars);
+        CollisionLog expectedLog = new SimulationServiceImpl().runAll(field, expected);
+
+        try (OffHeapCarStore store = OffHeapCarStore.mapped(carFile, programFile, 1)) {
+            store.addAll(cars);
+            CollisionLog log = simulationService.runAll(field, store, car -> cars.get(car).getName());
+            store.writeBack(cars, 0);
+
+            assertEquals(expectedLog.size(), log.size());
+            for (int i = 0; i < log.size(); i++) {
+                ServiceEquivalence.assertSameResult(expectedLog.toResult(i), log.toResult(i), "collision " + i);
+            }
+            ServiceEquivalence.assertSameCars(expected, cars, "mapped");
+        } finally {
+            Files.delete(carFile);
+            Files.delete(programFile);
+        }
+    }
+
+    @Test
+    void unknownProgramShouldBeRejected() {
+        try (OffHeapCarStore store = OffHeapCarStore.allocate(1)) {
+            assertThrows(IllegalArgumentException.class, () -> store.add(0, 0, Direction.N, 0));
+            assertThrows(IndexOutOfBoundsException.class, () -> store.getX(0));
+        }
+    }
+}
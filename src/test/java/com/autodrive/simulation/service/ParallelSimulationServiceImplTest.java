@@ -0,0 +1,65 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSimulationServiceImplTest {
+
+    @Test
+    void twoCarScenarioShouldDetectCollisionAtExpectedStepAndPosition() {
+        Field field = new Field(10, 10);
+        Car carA = new Car("A", 1, 2, Direction.N, "FFRFFFFRRL");
+        Car carB = new Car("B", 7, 8, Direction.W, "FFLFFFFFFF");
+        List<Car> cars = new ArrayList<>();
+        cars.add(carA);
+        cars.add(carB);
+
+        CollisionResult result = new ParallelSimulationServiceImpl().run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(7, result.getStep());
+        assertEquals("5,4", result.getPosition());
+        assertEquals(List.of("A", "B"), result.getCollidedCarNames());
+        assertFalse(carA.isActive());
+        assertFalse(carB.isActive());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReferenceForAnyThreadCount() {
+        for (int threads : new int[]{1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                // Tiny ranges so that even small fleets are spread over several tasks
+                SimulationService service = new ParallelSimulationServiceImpl(pool, 2);
+                ServiceEquivalence.assertMatchesReference(service, 7L + threads, 500);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    void largeFleetShouldMatchReference() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SimulationService service = new ParallelSimulationServiceImpl(pool, 64);
+            Random random = new Random(11);
+            for (int run = 0; run < 5; run++) {
+                Field field = new Field(300, 300);
+                List<Car> cars = ServiceEquivalence.randomCars(random, field, 3000, 60);
+                ServiceEquivalence.assertSameRun(service, field, cars, "large run " + run);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
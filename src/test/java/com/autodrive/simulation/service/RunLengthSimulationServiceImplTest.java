@@ -0,0 +1,76 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunLengthSimulationServiceImplTest {
+
+    @Test
+    void singleCarShouldBeClampedAtTheBoundaryAcrossLongRuns() {
+        Field field = new Field(10, 10);
+        Car car = new Car("A", 1, 2, Direction.N, "F".repeat(1000) + "RR" + "F".repeat(3) + "LLL");
+        List<Car> cars = new ArrayList<>();
+        cars.add(car);
+
+        assertNull(new RunLengthSimulationServiceImpl().run(field, cars));
+
+        assertEquals(1, car.getX());
+        assertEquals(6, car.getY());
+        assertEquals(Direction.W, car.getDirection());
+    }
+
+    @Test
+    void farApartCarsShouldOnlyMeetWhenTheirRunsCross() {
+        Field field = new Field(1000, 1000);
+        Car carA = new Car("A", 0, 500, Direction.E, "F".repeat(600));
+        Car carB = new Car("B", 998, 500, Direction.W, "F".repeat(600));
+        Car carC = new Car("C", 10, 10, Direction.N, "RRRR".repeat(150));
+        List<Car> cars = new ArrayList<>();
+        cars.add(carA);
+        cars.add(carB);
+        cars.add(carC);
+
+        ServiceEquivalence.assertSameRun(new RunLengthSimulationServiceImpl(16), field, cars, "crossing");
+        CollisionResult result = new RunLengthSimulationServiceImpl(16).run(field, cars);
+
+        assertNotNull(result);
+        assertEquals(499, result.getStep());
+        assertEquals("499,500", result.getPosition());
+        assertEquals(Direction.W, carC.getDirection());
+    }
+
+    @Test
+    void randomScenariosShouldMatchReferenceForSeveralWindows() {
+        for (int window : new int[]{1, 3, 8, 64}) {
+            ServiceEquivalence.assertMatchesReference(new RunLengthSimulationServiceImpl(window), 100L + window, 500);
+        }
+    }
+
+    @Test
+    void sparseScenariosWithLongRunsShouldMatchReference() {
+        Random random = new Random(5);
+        for (int run = 0; run < 40; run++) {
+            Field field = new Field(60, 60);
+            List<Car> cars = new ArrayList<>();
+            for (int c = 0; c < 12; c++) {
+                StringBuilder commands = new StringBuilder();
+                for (int segment = 0; segment < 8; segment++) {
+                    commands.append("F".repeat(random.nextInt(30)));
+                    commands.append(random.nextBoolean() ? "L" : "RR");
+                }
+                cars.add(new Car("C" + c, random.nextInt(60), random.nextInt(60),
+                        Direction.values()[random.nextInt(4)], commands.toString()));
+            }
+            ServiceEquivalence.assertSameRun(new RunLengthSimulationServiceImpl(16), field, cars, "sparse " + run);
+            ServiceEquivalence.assertSameRunAll(new RunLengthSimulationServiceImpl(16), field, cars, "sparse all " + run);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test helper that checks an alternative {@link SimulationService} against {@link SimulationServiceImpl}
+ * on random scenarios: same {@link CollisionResult} (or {@link CollisionLog}) and same final state of every car.
+ * It also holds the scenarios the service tests share.
+ */
+public final class ServiceEquivalence {
+
+    private static final String COMMANDS = "LRFFFF";
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private ServiceEquivalence() {
+    }
+
+    /**
+     * A and B collide at (5,4) in step 7 on a 10x10 field; C drives three cells east without meeting anyone.
+     */
+    public static List<Car> collidingCars() {
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"));
+        cars.add(new Car("B", 7, 8, Direction.W, "FFLFFFFFFF"));
+        cars.add(new Car("C", 0, 0, Direction.E, "FFF"));
+        return cars;
+    }
+
+    static void assertMatchesReference(SimulationService candidate, long seed, int scenarios) {
+        Random random = new Random(seed);
+        for (int i = 0; i < scenarios; i++) {
+            int width = 1 + random.nextInt(12);
+            int height = 1 + random.nextInt(12);
+            Field field = new Field(width, height);
+            List<Car> cars = randomCars(random, field, 1 + random.nextInt(12), random.nextInt(40));
+
+            assertSameRun(candidate, field, cars, "scenario " + i + " (seed " + seed + ")");
+            assertSameRunAll(candidate, field, cars, "scenario " + i + " (seed " + seed + ", all)");
+        }
+    }
+
+    static void assertSameRunAll(SimulationService candidate, Field field, List<Car> cars, String label) {
+        List<Car> expectedCars = copy(cars);
+        List<Car> actualCars = copy(cars);
+
+        CollisionLog expected = new SimulationServiceImpl().runAll(field, expectedCars);
+        CollisionLog actual = candidate.runAll(field, actualCars);
+
+        assertEquals(expected.size(), actual.size(), label + " collisions");
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameResult(expected.toResult(i), actual.toResult(i), label + " collision " + i);
+        }
+        assertSameCars(expectedCars, actualCars, label);
+    }
+
+    static void assertSameRun(SimulationService candidate, Field field, List<Car> cars, String label) {
+        List<Car> expectedCars = copy(cars);
+        List<Car> actualCars = copy(cars);
+
+        CollisionResult expected = new SimulationServiceImpl().run(field, expectedCars);
+        CollisionResult actual = candidate.run(field, actualCars);
+
+        assertSameResult(expected, actual, label);
+        assertSameCars(expectedCars, actualCars, label);
+    }
+
+    static void assertSameCars(List<Car> expectedCars, List<Car> actualCars, String label) {
+        for (int c = 0; c < expectedCars.size(); c++) {
+            Car e = expectedCars.get(c);
+            Car a = actualCars.get(c);
+            assertEquals(e.toString(), a.toString(), label + " car " + c);
+            assertEquals(e.isActive(), a.isActive(), label + " active " + c);
+        }
+    }
+
+    static void assertSameResult(CollisionResult expected, CollisionResult actual, String label) {
+        if (expected == null) {
+            assertNull(actual, label);
+            return;
+        }
+        assertNotNull(actual, label);
+        assertEquals(expected.getStep(), actual.getStep(), label + " step");
+        assertEquals(expected.getPosition(), actual.getPosition(), label + " position");
+        assertEquals(expected.getCollidedCarNames(), actual.getCollidedCarNames(), label + " names");
+    }
+
+    /**
+     * Random cars, some of which are inactive from the start (see {@link #randomCar}) and some
+     * parked without commands on the start cell of an earlier car, so runs also cover the step
+     * bound set by inactive programs and the check of shared start cells after step 0.
+     */
+    static List<Car> randomCars(Random random, Field field, int count, int maxCommands) {
+        List<Car> cars = new ArrayList<>();
+        for (int c = 0; c < count; c++) {
+            if (c > 0 && random.nextInt(8) == 0) {
+                Car other = cars.get(random.nextInt(c));
+                cars.add(new Car("C" + c, other.getX(), other.getY(),
+                        DIRECTIONS[random.nextInt(DIRECTIONS.length)], ""));
+            } else {
+                cars.add(randomCar(random, field, "C" + c, maxCommands));
+            }
+        }
+        return cars;
+    }
+
+    /**
+     * @return a car with a random start and program; one in eight is inactive from the start
+     */
+    static Car randomCar(Random random, Field field, String name, int maxCommands) {
+        int length = random.nextInt(maxCommands + 1);
+        StringBuilder commands = new StringBuilder(length);
+        for (int k = 0; k < length; k++) {
+            commands.append(COMMANDS.charAt(random.nextInt(COMMANDS.length())));
+        }
+        Car car = new Car(name,
+                random.nextInt(field.getWidth()),
+                random.nextInt(field.getHeight()),
+                DIRECTIONS[random.nextInt(DIRECTIONS.length)],
+                commands.toString());
+        if (random.nextInt(8) == 0) {
+            car.deactivate();
+        }
+        return car;
+    }
+
+    static List<Car> copy(List<Car> cars) {
+        List<Car> copies = new ArrayList<>();
+        for (Car car : cars) {
+            Car copy = new Car(car.getName(), car.getX(), car.getY(), car.getDirection(), car.getCommands());
+            if (!car.isActive()) {
+                copy.deactivate();
+            }
+            copies.add(copy);
+        }
+        return copies;
+    }
+}
@@ -65,5 +65,41 @@ class SimulationServiceTest {
         assertFalse(carA.isActive());
         assertFalse(carB.isActive());
     }
-}
 
+    @Test
+    void runAllShouldCarryOnAfterCollisionsAndReportEachOne() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 0, 0, Direction.E, "FFFF"));
+        cars.add(new Car("B", 2, 0, Direction.W, "FFFF"));
+        cars.add(new Car("C", 5, 5, Direction.N, "LLLL"));
+        cars.add(new Car("D", 5, 8, Direction.S, "FFFF"));
+        cars.add(new Car("E", 5, 2, Direction.N, "FFFF"));
+
+        CollisionLog log = simulationService.runAll(field, cars);
+
+        assertEquals(2, log.size());
+        assertEquals(1, log.getStep(0));
+        assertEquals("1,0", log.getPosition(0));
+        assertEquals(List.of("A", "B"), log.getCarNames(0));
+        assertEquals(3, log.getStep(1));
+        assertEquals("5,5", log.getPosition(1));
+        assertEquals(List.of("C", "D", "E"), log.getCarNames(1));
+        assertEquals(3, log.getCarCount(1));
+        assertEquals(4, log.getCar(1, 2));
+        assertEquals(5, log.getCollidedCarCount());
+        assertFalse(cars.get(4).isActive());
+    }
+
+    @Test
+    void runAllShouldReturnEmptyLogWhenNoCollisionOccurs() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>();
+        cars.add(new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"));
+
+        CollisionLog log = simulationService.runAll(field, cars);
+
+        assertTrue(log.isEmpty());
+        assertEquals(0, log.stream().count());
+    }
+}
@@ -0,0 +1,253 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StepPublisherTest {
+
+    private static final Field FIELD = new Field(10, 10);
+
+    private static List<Car> twoCars() {
+        return new ArrayList<>(List.of(
+                new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"),
+                new Car("B", 7, 8, Direction.W, "FFLFFFFFFF")));
+    }
+
+    @Test
+    void eachStepShouldBeDeliveredWithItsMovesTurnsAndDeactivations() {
+        List<Car> cars = twoCars();
+        Collector collector = new Collector(Long.MAX_VALUE);
+
+        try (StepPublisher publisher = new StepPublisher(cars, StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            publisher.subscribe(collector);
+            new SimulationServiceImpl().run(FIELD, cars, publisher);
+        }
+
+        assertTrue(collector.completed);
+        assertEquals(7, collector.deltas.size());
+        StepDelta first = collector.deltas.get(0);
+        assertEquals(0, first.getStep());
+        assertEquals(2, first.getChangeCount());
+        assertEquals("A", first.getCarName(0));
+        assertEquals(3, first.getY(0));
+        assertTrue(first.hasMoved(0));
+        assertFalse(first.hasTurned(0));
+
+        StepDelta turn = collector.deltas.get(2);
+        assertEquals(2, turn.getChangeCount());
+        assertTrue(turn.hasTurned(0));
+        assertFalse(turn.hasMoved(0));
+        assertEquals(Direction.E, turn.getDirection(0));
+
+        StepDelta last = collector.deltas.get(6);
+        assertEquals(6, last.getStep());
+        assertEquals(2, last.getDeactivatedCount());
+        assertEquals(0, last.getDeactivatedCar(0));
+        assertEquals(1, last.getDeactivatedCar(1));
+        assertFalse(collector.deltas.stream().anyMatch(StepDelta::isCoalesced));
+    }
+
+    @Test
+    void slowSubscriberShouldReceiveCoalescedDeltasWithTheFinalState() {
+        List<Car> cars = twoCars();
+        Collector collector = new Collector(1);
+
+        try (StepPublisher publisher = new StepPublisher(cars, StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            publisher.subscribe(collector);
+            new SimulationServiceImpl().run(FIELD, cars, publisher);
+            assertEquals(1, collector.deltas.size());
+
+            collector.subscription.request(Long.MAX_VALUE);
+        }
+
+        assertEquals(2, collector.deltas.size());
+        StepDelta rest = collector.deltas.get(1);
+        assertTrue(rest.isCoalesced());
+        assertEquals(1, rest.getFirstStep());
+        assertEquals(6, rest.getStep());
+        assertEquals(2, rest.getChangeCount());
+        for (int change = 0; change < rest.getChangeCount(); change++) {
+            Car car = cars.get(rest.getCar(change));
+            assertEquals(car.getX(), rest.getX(change));
+            assertEquals(car.getY(), rest.getY(change));
+            assertEquals(car.getDirection(), rest.getDirection(change));
+            assertTrue(rest.hasMoved(change));
+            assertTrue(rest.hasTurned(change));
+        }
+        assertEquals(2, rest.getDeactivatedCount());
+        assertTrue(collector.completed);
+    }
+
+    @Test
+    void blockingPublisherShouldWaitForDemandAndLoseNoStep() throws InterruptedException {
+        List<Car> cars = twoCars();
+        ExecutorService delivery = Executors.newSingleThreadExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+        Collector collector = new Collector(1) {
+            @Override
+            public void onNext(StepDelta delta) {
+                super.onNext(delta);
+                // Asks for the next step only after a pause, so the run has to wait each time
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                subscription.request(1);
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                done.countDown();
+            }
+        };
+
+        try (StepPublisher publisher = new StepPublisher(cars, StepPublisher.Overflow.BLOCK, delivery)) {
+            publisher.subscribe(collector);
+            new SimulationServiceImpl().runAll(FIELD, cars, publisher);
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        delivery.shutdown();
+        assertEquals(10, collector.deltas.size());
+        for (int step = 0; step < 10; step++) {
+            assertEquals(step, collector.deltas.get(step).getStep());
+        }
+    }
+
+    @Test
+    void runWithoutSubscribersShouldMatchPlainRunAndCancelledSubscriberShouldStopReceiving() {
+        List<Car> expected = twoCars();
+        List<Car> cars = twoCars();
+        Collector collector = new Collector(2) {
+            @Override
+            public void onNext(StepDelta delta) {
+                super.onNext(delta);
+                if (deltas.size() == 2) {
+                    subscription.cancel();
+                }
+            }
+        };
+
+        CollisionResult plain = new SimulationServiceImpl().run(FIELD, expected);
+        CollisionResult published;
+        try (StepPublisher publisher = new StepPublisher(cars, StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            assertFalse(publisher.hasSubscribers());
+            published = new SimulationServiceImpl().run(FIELD, cars, publisher);
+
+            publisher.subscribe(collector);
+            new SimulationServiceImpl().run(FIELD, twoCars(), publisher);
+            assertFalse(publisher.hasSubscribers());
+        }
+
+        assertEquals(plain.getStep(), published.getStep());
+        assertEquals(plain.getPosition(), published.getPosition());
+        assertEquals(2, collector.deltas.size());
+        assertFalse(collector.completed);
+    }
+
+    @Test
+    void subscriberJoiningMidStepShouldStartAtTheNextStep() {
+        Collector early = new Collector(Long.MAX_VALUE);
+        Collector late = new Collector(Long.MAX_VALUE);
+        try (StepPublisher publisher = new StepPublisher(twoCars(), StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            publisher.subscribe(early);
+            publisher.record(0, 1, 3, Direction.N);
+            publisher.subscribe(late);
+            publisher.record(1, 6, 8, Direction.W);
+            publisher.endStep(0);
+            publisher.record(0, 1, 4, Direction.N);
+            publisher.endStep(1);
+        }
+
+        assertEquals(2, early.deltas.size());
+        assertEquals(1, late.deltas.size());
+        StepDelta first = late.deltas.get(0);
+        assertEquals(1, first.getFirstStep());
+        assertEquals(1, first.getChangeCount());
+        assertTrue(first.hasMoved(0));
+        assertTrue(late.completed);
+    }
+
+    @Test
+    void subscriberJoiningAfterStepsWithoutSubscribersShouldWaitForTheCarsToBeCaughtUp() {
+        Collector late = new Collector(Long.MAX_VALUE);
+        try (StepPublisher publisher = new StepPublisher(twoCars(), StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            publisher.record(0, 1, 3, Direction.N);
+            publisher.endStep(0);
+            publisher.subscribe(late);
+            publisher.record(0, 1, 4, Direction.N);
+            publisher.endStep(1);
+            publisher.record(0, 1, 4, Direction.E);
+            publisher.endStep(2);
+        }
+
+        assertEquals(1, late.deltas.size());
+        StepDelta first = late.deltas.get(0);
+        assertEquals(2, first.getStep());
+        assertEquals(1, first.getChangeCount());
+        assertTrue(first.hasTurned(0));
+        assertFalse(first.hasMoved(0));
+    }
+
+    @Test
+    void invalidDemandShouldFailTheSubscriber() {
+        Collector collector = new Collector(0);
+        try (StepPublisher publisher = new StepPublisher(twoCars(), StepPublisher.Overflow.COALESCE, Runnable::run)) {
+            publisher.subscribe(collector);
+            collector.subscription.request(0);
+        }
+
+        assertTrue(collector.error instanceof IllegalArgumentException, String.valueOf(collector.error));
+        assertFalse(collector.completed);
+    }
+
+    private static class Collector implements Flow.Subscriber<StepDelta> {
+
+        final List<StepDelta> deltas = new ArrayList<>();
+        private final long initialDemand;
+        Flow.Subscription subscription;
+        volatile boolean completed;
+        Throwable error;
+
+        Collector(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialDemand > 0) {
+                subscription.request(initialDemand);
+            }
+        }
+
+        @Override
+        public void onNext(StepDelta delta) {
+            deltas.add(delta);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
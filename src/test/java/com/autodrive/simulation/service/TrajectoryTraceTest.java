@@ -0,0 +1,91 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.autodrive.simulation.service.ServiceEquivalence.collidingCars;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryTraceTest {
+
+    @Test
+    void tracedRunShouldRecordEveryStepUntilTheCollision() {
+        Field field = new Field(10, 10);
+        List<Car> cars = collidingCars();
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+
+        CollisionResult result = new SimulationServiceImpl().run(field, cars, trace);
+
+        assertEquals(7, result.getStep());
+        assertEquals(8, trace.getLength(0));
+        assertEquals(8, trace.getLength(1));
+        assertEquals(1, trace.getX(0, 0));
+        assertEquals(2, trace.getY(0, 0));
+        assertEquals(Direction.N, trace.getDirection(0, 0));
+        assertEquals(Direction.E, trace.getDirection(0, 3));
+        assertEquals(5, trace.getX(0, 7));
+        assertEquals(4, trace.getY(0, 7));
+        assertEquals(trace.getCell(0, 7), trace.getCell(1, 7));
+        assertThrows(IndexOutOfBoundsException.class, () -> trace.getX(0, 8));
+    }
+
+    @Test
+    void replayShouldTraceEachCarAloneWithoutMovingIt() {
+        Field field = new Field(10, 10);
+        List<Car> cars = collidingCars();
+
+        TrajectoryTrace trace = TrajectoryTrace.replay(field, cars);
+
+        assertEquals(11, trace.getLength(0));
+        assertEquals(5, trace.getX(0, 10));
+        assertEquals(4, trace.getY(0, 10));
+        assertEquals(Direction.S, trace.getDirection(0, 10));
+        assertEquals(1, cars.get(0).getX());
+        assertTrue(cars.get(0).isActive());
+    }
+
+    @Test
+    void enginesWithoutTracingShouldRecordTheSameTraceAsTheReference() {
+        Field field = new Field(10, 10);
+        List<Car> expectedCars = collidingCars();
+        TrajectoryTrace expected = new TrajectoryTrace(expectedCars);
+        new SimulationServiceImpl().run(field, expectedCars, expected);
+
+        List<Car> cars = collidingCars();
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+        CollisionResult result = new EventDrivenSimulationServiceImpl().run(field, cars, trace);
+
+        assertEquals(7, result.getStep());
+        for (int car = 0; car < 2; car++) {
+            assertEquals(expected.getLength(car), trace.getLength(car));
+            for (int entry = 0; entry < trace.getLength(car); entry++) {
+                assertEquals(expected.getCell(car, entry), trace.getCell(car, entry));
+                assertEquals(expected.getDirection(car, entry), trace.getDirection(car, entry));
+            }
+        }
+    }
+
+    @Test
+    void defaultRecordedRunShouldTakeTheResultFromTheServiceItself() {
+        Field field = new Field(10, 10);
+        int[] runs = new int[1];
+        SimulationService service = (f, cars) -> {
+            runs[0]++;
+            return new EventDrivenSimulationServiceImpl().run(f, cars);
+        };
+        List<Car> cars = collidingCars();
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+
+        CollisionResult result = service.run(field, cars, trace);
+
+        assertEquals(1, runs[0]);
+        assertEquals(7, result.getStep());
+        assertFalse(cars.get(0).isActive());
+        assertEquals(8, trace.getLength(0));
+        assertEquals(trace.getCell(0, 7), trace.getCell(1, 7));
+    }
+}
@@ -0,0 +1,103 @@
+package com.autodrive.simulation.visualization;
+
+import com.autodrive.simulation.model.Car;
+import com.autodrive.simulation.model.Direction;
+import com.autodrive.simulation.model.Field;
+import com.autodrive.simulation.service.SimulationServiceImpl;
+import com.autodrive.simulation.service.TrajectoryTrace;
+import com.autodrive.simulation.visualization.MovementVisualizer.Layout;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovementVisualizerTest {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private static List<Car> crossingCars() {
+        return List.of(
+                new Car("A", 1, 1, Direction.N, "FF"),
+                new Car("B", 3, 2, Direction.W, "FF"));
+    }
+
+    @Test
+    void compositeCroppedGridShouldDrawEveryCarOnTheUsedCells() {
+        StringWriter out = new StringWriter();
+
+        new MovementVisualizer(out, Layout.COMPOSITE, true).displayMovementPatterns(new Field(10, 10), crossingCars());
+
+        String expectedGrid = String.join(NEWLINE,
+                "Cars: A (1, 1 N) B (3, 2 W)",
+                "    x→ 1 2 3 ",
+                "y=3 | E . . ",
+                "y=2 | * ← S ",
+                "y=1 | S . . ",
+                "    +-+-+-+");
+        assertTrue(out.toString().contains(expectedGrid), out.toString());
+        assertTrue(out.toString().contains("  * = Visited by several cars"));
+        assertFalse(out.toString().contains("Step-by-step execution:"));
+    }
+
+    @Test
+    void perCarCroppedGridShouldOnlyDrawTheCellsOfThatCar() {
+        StringWriter out = new StringWriter();
+
+        new MovementVisualizer(out, Layout.PER_CAR, true).displayMovementPatterns(new Field(10, 10), crossingCars());
+
+        assertTrue(out.toString().contains(String.join(NEWLINE,
+                "Car: B (Starting at 3, 2 facing W)",
+                "    x→ 1 2 3 ",
+                "y=2 | E ← S ",
+                "    +-+-+-+")), out.toString());
+        assertTrue(out.toString().contains("  Step 2: FORWARD at (1, 2) facing W"));
+    }
+
+    @Test
+    void everyFrameShouldBeWrittenWithOneCall() {
+        int[] writes = new int[1];
+        StringBuilder text = new StringBuilder();
+        Writer out = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                writes[0]++;
+                text.append(buffer, offset, length);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        new MovementVisualizer(out, Layout.PER_CAR, false).displayMovementPatterns(new Field(50, 50), crossingCars());
+
+        // Title, then one frame per car
+        assertEquals(3, writes[0]);
+        assertTrue(text.toString().contains("y=49 | "));
+    }
+
+    @Test
+    void tracedRunShouldShowPathsUpToTheCollisionFromTheStartState() {
+        Field field = new Field(10, 10);
+        List<Car> cars = new ArrayList<>(List.of(
+                new Car("A", 1, 2, Direction.N, "FFRFFFFRRL"),
+                new Car("B", 7, 8, Direction.W, "FFLFFFFFFF")));
+        TrajectoryTrace trace = new TrajectoryTrace(cars);
+        new SimulationServiceImpl().run(field, cars, trace);
+        StringWriter out = new StringWriter();
+
+        new MovementVisualizer(out, Layout.PER_CAR, false).displayMovementPatterns(field, cars, trace);
+
+        assertTrue(out.toString().contains("Car: A (Starting at 1, 2 facing N)"), out.toString());
+        assertTrue(out.toString().contains("  Step 7: FORWARD at (5, 4) facing E"));
+        assertFalse(out.toString().contains("  Step 8:"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.autodrive.simulation.service;
+
+import com.autodrive.simulation.model.CommandProgram;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link MoveKernel} processing as many cars per instruction as the preferred vector
+ * shape holds, built on the incubating {@code jdk.incubator.vector} module.
+ * <p>
+ * Branches become lane masks: turns add 1 or 3 to the heading ordinal modulo 4, the
+ * forward offset is selected from the heading, and the move is kept only in lanes whose
+ * code is forward and whose next cell passes the boundary mask. The cars past the last
+ * full vector go through {@link ScalarMoveKernel}.
+ * <p>
+ * Only loaded by {@link MoveKernel#create()} when the module is present.
+ */
+final class VectorMoveKernel implements MoveKernel {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void step(int count, int[] codes, int[] x, int[] y, int[] dir, int width, int height, boolean[] moved) {
+        IntVector zero = IntVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            IntVector code = IntVector.fromArray(SPECIES, codes, i);
+            IntVector heading = IntVector.fromArray(SPECIES, dir, i)
+                    .add(3, code.eq(CommandProgram.LEFT))
+                    .add(1, code.eq(CommandProgram.RIGHT))
+                    .and(3);
+            heading.intoArray(dir, i);
+
+            IntVector dx = zero.blend(1, heading.eq(1)).blend(-1, heading.eq(3));
+            IntVector dy = zero.blend(1, heading.eq(0)).blend(-1, heading.eq(2));
+            IntVector currentX = IntVector.fromArray(SPECIES, x, i);
+            IntVector currentY = IntVector.fromArray(SPECIES, y, i);
+            IntVector nextX = currentX.add(dx);
+            IntVector nextY = currentY.add(dy);
+
+            VectorMask<Integer> move = code.eq(CommandProgram.FORWARD)
+                    .and(nextX.compare(VectorOperators.GE, 0))
+                    .and(nextX.compare(VectorOperators.LT, width))
+                    .and(nextY.compare(VectorOperators.GE, 0))
+                    .and(nextY.compare(VectorOperators.LT, height));
+            currentX.blend(nextX, move).intoArray(x, i);
+            currentY.blend(nextY, move).intoArray(y, i);
+            move.intoArray(moved, i);
+        }
+
+        ScalarMoveKernel.step(i, count, codes, x, y, dir, width, height, moved);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.length() + "x32";
+    }
+}